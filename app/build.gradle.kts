@@ -14,11 +14,17 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // -PmonitorProcess=true runs the service and SMS/boot receivers in a separate ":monitor"
+        // process; by default they share the app's main process
+        val monitorProcess = project.findProperty("monitorProcess") == "true"
+        manifestPlaceholders["monitorProcess"] = if (monitorProcess) ":monitor" else "com.example.mybike"
     }
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            // R8 strips BikeLog.v/d call sites (see proguard-rules.pro)
+            isMinifyEnabled = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -29,14 +35,22 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    buildFeatures {
+        buildConfig = true
+        aidl = true
+    }
+    testOptions {
+        // Local tests of storage classes run through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
 
     implementation(libs.appcompat)
     implementation(libs.material)
-    implementation("androidx.localbroadcastmanager:localbroadcastmanager:1.1.0")
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation("androidx.localbroadcastmanager:localbroadcastmanager:1.1.0")
 }
\ No newline at end of file
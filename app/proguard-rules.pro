@@ -18,4 +18,15 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Verbose and debug logging is compiled out of release builds - the calls and the
+# argument boxing feeding them are removed by R8. Arguments that call into other code
+# are still evaluated, so those calls sit behind isDebugEnabled(), folded to false here.
+-assumenosideeffects class com.example.mybike.BikeLog {
+    public static void v(...);
+    public static void d(...);
+}
+-assumevalues class com.example.mybike.BikeLog {
+    public static boolean isDebugEnabled() return false;
+}
@@ -0,0 +1,111 @@
+package com.example.mybike;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link EscalationEngine} with a fake dialer that can hold a dial back, the way the
+ * service does while the line is still busy with an earlier call.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EscalationEngineTest {
+    private static final long DIAL_TIMEOUT = 300;
+    
+    private final List<String> dialed = new CopyOnWriteArrayList<>();
+    private volatile boolean lineBusy;
+    private volatile CountDownLatch secondDial;
+    private EscalationEngine engine;
+    
+    @Before
+    public void setUp() {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        secondDial = new CountDownLatch(1);
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                engine = new EscalationEngine(context, new CallStateTracker(context), new EscalationEngine.Dialer() {
+                    @Override
+                    public boolean dial(String number) {
+                        dialed.add(number);
+                        if (dialed.size() == 2) {
+                            secondDial.countDown();
+                        }
+                        if (!lineBusy) {
+                            engine.onDialPlaced();
+                        }
+                        return true;
+                    }
+                }, DIAL_TIMEOUT);
+                engine.cancel(); // Drop anything persisted by an earlier run
+            }
+        });
+    }
+    
+    @After
+    public void tearDown() {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                engine.cancel();
+                engine.shutdown();
+            }
+        });
+    }
+    
+    @Test
+    public void dialThatNeverGoesOffHookMovesToNextContact() throws Exception {
+        startEscalation();
+        assertTrue(secondDial.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("01711111111", "01822222222"), dialed);
+    }
+    
+    @Test
+    public void busyLineDoesNotStartTheDialTimeout() throws Exception {
+        lineBusy = true;
+        startEscalation();
+        
+        // Several dial timeouts pass while the call waits for the line - it must stay on the first contact
+        assertFalse(secondDial.await(DIAL_TIMEOUT * 4, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("01711111111"), dialed);
+        assertTrue(engine.isActive());
+        
+        // The line clears and the deferred call goes out - from here the timeout applies
+        lineBusy = false;
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                engine.onDialPlaced();
+            }
+        });
+        assertTrue(secondDial.await(5, TimeUnit.SECONDS));
+        assertEquals("01822222222", dialed.get(1));
+    }
+    
+    private void startEscalation() {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(engine.start(Arrays.asList("01711111111", "01822222222")));
+            }
+        });
+    }
+    
+    private static void runOnMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.mybike;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares a STATE_CHANGED push through LocalBroadcastManager with the same push through
+ * {@link EventBus}. Both paths deliver synchronously on the test thread so only the
+ * dispatch cost is measured.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventBusBenchmarkTest {
+    private static final String TAG = "EventBusBenchmark";
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+    
+    private int received;
+    private long checksum;
+    
+    // Reports both costs without asserting on them - wall-clock comparisons flake on a loaded device
+    @Test
+    public void benchmarkBusAgainstLocalBroadcast() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        
+        long broadcastNanos = benchmarkBroadcast(context);
+        long busNanos = benchmarkBus();
+        
+        Log.i(TAG, "LocalBroadcastManager: " + broadcastNanos / ITERATIONS + " ns/event, EventBus: " +
+                busNanos / ITERATIONS + " ns/event");
+    }
+    
+    private long benchmarkBroadcast(Context context) {
+        LocalBroadcastManager lbm = LocalBroadcastManager.getInstance(context);
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                received++;
+                checksum += intent.getLongExtra("motion_start_time", 0);
+            }
+        };
+        lbm.registerReceiver(receiver, new IntentFilter("STATE_CHANGED"));
+        try {
+            received = 0;
+            for (int i = 0; i < WARMUP; i++) {
+                lbm.sendBroadcastSync(stateIntent(i));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                lbm.sendBroadcastSync(stateIntent(i));
+            }
+            long elapsed = System.nanoTime() - start;
+            assertEquals(WARMUP + ITERATIONS, received);
+            return elapsed;
+        } finally {
+            lbm.unregisterReceiver(receiver);
+        }
+    }
+    
+    private Intent stateIntent(long time) {
+        // Mirrors what the service used to send with every state push
+        Intent intent = new Intent("STATE_CHANGED");
+        intent.putExtra("call_delay_active", true);
+        intent.putExtra("motion_start_time", time);
+        intent.putExtra("call_ready", false);
+        intent.putExtra("last_call_time", time);
+        return intent;
+    }
+    
+    private long benchmarkBus() {
+        EventBus bus = new EventBus();
+        EventBus.Subscriber subscriber = new EventBus.Subscriber() {
+            @Override
+            public void onEvent(int topic, int flags, long value1, long value2) {
+                received++;
+                checksum += value1;
+            }
+        };
+        bus.register(EventBus.TOPIC_STATE, subscriber);
+        received = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            bus.postTimerState(true, false, i, i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bus.postTimerState(true, false, i, i);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(WARMUP + ITERATIONS, received);
+        return elapsed;
+    }
+}
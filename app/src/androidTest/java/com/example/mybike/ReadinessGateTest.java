@@ -0,0 +1,137 @@
+package com.example.mybike;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link ReadinessGate} releases its action on readiness, on recheck() and on
+ * timeout, with the screen and audio conditions under the test's control.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadinessGateTest {
+    private static final long TIMEOUT = 300;
+    
+    private volatile boolean screenOn;
+    private volatile boolean audioReleased;
+    private final AtomicInteger runs = new AtomicInteger();
+    private ReadinessGate gate;
+    
+    @Before
+    public void setUp() {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                gate = new ReadinessGate(context, new ReadinessGate.Condition() {
+                    @Override
+                    public boolean isMet() {
+                        return screenOn;
+                    }
+                }, new ReadinessGate.Condition() {
+                    @Override
+                    public boolean isMet() {
+                        return audioReleased;
+                    }
+                }, TIMEOUT);
+            }
+        });
+    }
+    
+    @Test
+    public void readyGateRunsActionImmediately() {
+        screenOn = true;
+        audioReleased = true;
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                gate.await(countingAction(null));
+                // Ran inside await(), before anything else was posted
+                assertEquals(1, runs.get());
+            }
+        });
+    }
+    
+    @Test
+    public void recheckReleasesOnceConditionsHold() throws Exception {
+        screenOn = true;
+        audioReleased = false;
+        final CountDownLatch ran = new CountDownLatch(1);
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                gate.await(countingAction(ran));
+                assertEquals(0, runs.get());
+                gate.recheck(); // Still holding audio focus
+                assertEquals(0, runs.get());
+                audioReleased = true;
+                gate.recheck();
+            }
+        });
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertEquals(0, gate.getTimeoutCount());
+    }
+    
+    @Test
+    public void timeoutRunsActionAnyway() throws Exception {
+        screenOn = false;
+        audioReleased = true;
+        final CountDownLatch ran = new CountDownLatch(1);
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                gate.await(countingAction(ran));
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(1, gate.getTimeoutCount());
+    }
+    
+    @Test
+    public void laterAwaitReplacesPendingAction() throws Exception {
+        screenOn = false;
+        audioReleased = true;
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(1);
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                gate.await(countingAction(first));
+                gate.await(countingAction(second));
+                screenOn = true;
+                gate.recheck();
+            }
+        });
+        assertTrue(second.await(1, TimeUnit.SECONDS));
+        assertEquals(1, first.getCount());
+        assertEquals(1, runs.get());
+    }
+    
+    private Runnable countingAction(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+                if (latch != null) {
+                    latch.countDown();
+                }
+            }
+        };
+    }
+    
+    private static void runOnMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.mybike;
+
+// One way of telling the owner about motion (siren, SMS, phone call, webhook...).
+// Implementations are driven by AlertDispatcher and must be safe to call from a worker thread.
+public interface AlertChannel {
+    
+    // Single bit, used in the dispatch mask - see AlertDispatcher.CHANNEL_*
+    int getId();
+    
+    String getName();
+    
+    // The dispatcher abandons the delivery (and interrupts it) after this long. Inline channels
+    // run on the caller's thread and are only counted as timed out when they overrun.
+    long getTimeoutMs();
+    
+    boolean isEnabled();
+    
+    // Returns true once the alert has been handed to whatever delivers it
+    boolean deliver(AlertEvent event) throws Exception;
+}
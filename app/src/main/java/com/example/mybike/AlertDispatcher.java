@@ -0,0 +1,227 @@
+package com.example.mybike;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fans one motion trigger out to every selected AlertChannel at once. Channels run on a small
+// bounded pool, each with its own timeout, so a slow or failing channel cannot hold up the
+// others. Inline channels (the siren) run first on the caller's thread and skip the hop; they
+// cannot be abandoned there, so an inline delivery that overruns its timeout counts as timed out.
+public class AlertDispatcher {
+    
+    public static final int CHANNEL_SIREN = 1;
+    public static final int CHANNEL_SMS = 1 << 1;
+    public static final int CHANNEL_CALL = 1 << 2;
+    public static final int CHANNEL_WEBHOOK = 1 << 3;
+    
+    private static final int THREADS = 3;
+    private static final int QUEUE_CAPACITY = 16;
+    
+    private static final class Registration {
+        final AlertChannel channel;
+        final boolean inline;
+        final LatencyRecorder latency;
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong timedOut = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        volatile String lastError;
+        
+        Registration(AlertChannel channel, boolean inline) {
+            this.channel = channel;
+            this.inline = inline;
+            // deliver() returns once the alert is handed off (an SMS queued, a call placed), not when it arrives
+            this.latency = new LatencyRecorder(channel.getName() + " motion-to-handoff", 64);
+        }
+    }
+    
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int SETTLED = 2;
+    
+    // One delivery of one event to one channel. Whoever moves it to SETTLED first - the worker
+    // finishing or the watchdog timing out - decides how it is counted.
+    private static final class Delivery implements Runnable {
+        final Registration registration;
+        final AlertEvent event;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        volatile Future<?> future;
+        
+        Delivery(Registration registration, AlertEvent event) {
+            this.registration = registration;
+            this.event = event;
+        }
+        
+        @Override
+        public void run() {
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                return; // Timed out while still queued
+            }
+            long started = System.nanoTime();
+            boolean delivered = false;
+            Exception error = null;
+            try {
+                delivered = registration.channel.deliver(event);
+            } catch (Exception e) {
+                error = e;
+            }
+            if (state.compareAndSet(RUNNING, SETTLED)) {
+                long elapsedMs = (System.nanoTime() - started) / 1000000;
+                if (registration.inline && elapsedMs > registration.channel.getTimeoutMs()) {
+                    registration.timedOut.incrementAndGet();
+                    registration.lastError = "inline delivery took " + elapsedMs + "ms, limit " +
+                            registration.channel.getTimeoutMs() + "ms";
+                } else {
+                    settle(registration, event, delivered, error);
+                }
+            }
+            if (!registration.inline) {
+                Thread.interrupted(); // A cancel that raced with completion must not reach the next task
+            }
+        }
+        
+        void timeout() {
+            int current = state.get();
+            if (current != SETTLED && state.compareAndSet(current, SETTLED)) {
+                registration.timedOut.incrementAndGet();
+                registration.lastError = "timed out after " + registration.channel.getTimeoutMs() + "ms";
+                // Interrupts only while this delivery is running, never a later task on the same worker
+                Future<?> task = future;
+                if (task != null) {
+                    task.cancel(true);
+                }
+            }
+        }
+    }
+    
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private volatile Registration[] registrations = new Registration[0];
+    
+    public AlertDispatcher() {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+            
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AlertDispatcher-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), factory);
+        executor.allowCoreThreadTimeOut(true);
+        watchdog = new ScheduledThreadPoolExecutor(1, factory);
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+    
+    public synchronized void register(AlertChannel channel, boolean inline) {
+        Registration[] current = registrations;
+        Registration[] updated = new Registration[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = new Registration(channel, inline);
+        registrations = updated;
+    }
+    
+    // Returns the number of channels the event was handed to
+    public int dispatch(AlertEvent event, int channelMask) {
+        int dispatched = 0;
+        Registration[] current = registrations;
+        // Inline channels first - they are the latency-critical ones
+        for (Registration registration : current) {
+            if (registration.inline && selected(registration, channelMask)) {
+                Delivery delivery = new Delivery(registration, event);
+                delivery.run();
+                dispatched++;
+            }
+        }
+        for (Registration registration : current) {
+            if (registration.inline || !selected(registration, channelMask)) {
+                continue;
+            }
+            final Delivery delivery = new Delivery(registration, event);
+            try {
+                delivery.future = executor.submit(delivery);
+                watchdog.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        delivery.timeout();
+                    }
+                }, registration.channel.getTimeoutMs(), TimeUnit.MILLISECONDS);
+                dispatched++;
+            } catch (RejectedExecutionException e) {
+                registration.rejected.incrementAndGet();
+                registration.lastError = "rejected - dispatcher queue full";
+            }
+        }
+        return dispatched;
+    }
+    
+    private static boolean selected(Registration registration, int channelMask) {
+        return (registration.channel.getId() & channelMask) != 0 && registration.channel.isEnabled();
+    }
+    
+    private static void settle(Registration registration, AlertEvent event, boolean delivered, Exception error) {
+        if (delivered) {
+            registration.delivered.incrementAndGet();
+            registration.latency.record((System.nanoTime() - event.triggerNanos) / 1000000);
+        } else {
+            registration.failed.incrementAndGet();
+            registration.lastError = error != null ? error.toString() : "not delivered";
+        }
+    }
+    
+    public long getDeliveredCount(int channelId) {
+        Registration registration = find(channelId);
+        return registration != null ? registration.delivered.get() : 0;
+    }
+    
+    public long getFailedCount(int channelId) {
+        Registration registration = find(channelId);
+        return registration != null ? registration.failed.get() : 0;
+    }
+    
+    public long getTimedOutCount(int channelId) {
+        Registration registration = find(channelId);
+        return registration != null ? registration.timedOut.get() : 0;
+    }
+    
+    private Registration find(int channelId) {
+        for (Registration registration : registrations) {
+            if (registration.channel.getId() == channelId) {
+                return registration;
+            }
+        }
+        return null;
+    }
+    
+    public String summary() {
+        StringBuilder builder = new StringBuilder("Alert channels:");
+        for (Registration registration : registrations) {
+            builder.append("\n  ").append(registration.channel.getName())
+                    .append(registration.channel.isEnabled() ? "" : " (disabled)")
+                    .append(": delivered ").append(registration.delivered.get())
+                    .append(", failed ").append(registration.failed.get())
+                    .append(", timed out ").append(registration.timedOut.get())
+                    .append(", rejected ").append(registration.rejected.get());
+            if (registration.lastError != null) {
+                builder.append(", last error: ").append(registration.lastError);
+            }
+            builder.append("\n    ").append(registration.latency.summary());
+        }
+        return builder.toString();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.mybike;
+
+// Immutable description of one motion trigger, shared by every channel it is dispatched to
+public final class AlertEvent {
+    public final long triggerNanos;  // System.nanoTime() of the motion transition - base for latency
+    public final long wallTime;      // System.currentTimeMillis() for texts and payloads
+    public final float magnitude;
+    public final String status;
+    
+    public AlertEvent(long triggerNanos, long wallTime, float magnitude, String status) {
+        this.triggerNanos = triggerNanos;
+        this.wallTime = wallTime;
+        this.magnitude = magnitude;
+        this.status = status;
+    }
+}
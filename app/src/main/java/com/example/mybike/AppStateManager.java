@@ -2,7 +2,11 @@ package com.example.mybike;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.telephony.PhoneNumberUtils;
 import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 public class AppStateManager {
     private static final String TAG = "AppStateManager";
@@ -16,22 +20,56 @@ public class AppStateManager {
     private static final String KEY_MOTION_START_TIME = "motion_start_time";
     private static final String KEY_IS_CALL_DELAY_ACTIVE = "is_call_delay_active";
     private static final String KEY_IS_CALL_READY = "is_call_ready";
+    private static final String KEY_SIREN_PATTERN = "siren_pattern";
+    private static final String KEY_WEBHOOK_URL = "webhook_url";
+    private static final String KEY_CONTACTS = "contacts";
+    private static final String KEY_SMS_SENDER_BURST = "sms_sender_burst";
+    private static final String KEY_SMS_SENDER_PER_MINUTE = "sms_sender_per_minute";
+    private static final String KEY_SMS_GLOBAL_BURST = "sms_global_burst";
+    private static final String KEY_SMS_GLOBAL_PER_MINUTE = "sms_global_per_minute";
+    
+    public static final String SIREN_POLICE = "police";
     
     private static AppStateManager instance;
-    private SharedPreferences prefs;
+    private volatile SharedPreferences prefs; // Replaced once a pending migration has run
+    private boolean migrationPending;
+    
+    // Open batch: setters on the owning thread stage into one editor and getters on that thread
+    // see the staged values until commitBatch(). Other threads keep reading and writing directly.
+    private volatile Thread batchOwner;
+    private SharedPreferences.Editor batchEditor;
+    private HashMap<String, Object> batchValues;
+    private boolean batchNeedsCommit = false;
     
     private AppStateManager(Context context) {
-        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        initializeDefaults();
+        openPrefs(context);
     }
     
     public static synchronized AppStateManager getInstance(Context context) {
         if (instance == null) {
             instance = new AppStateManager(context);
+        } else if (instance.migrationPending) {
+            instance.openPrefs(context);
         }
         return instance;
     }
     
+    // Readable before the first unlock after boot. Until the old prefs have been moved over the
+    // getters fall back to their defaults and nothing is seeded, so the move cannot be clobbered.
+    // The move evicts the framework's cached instance, so the one held here is replaced too.
+    private void openPrefs(Context context) {
+        if (batchOwner != null) {
+            return; // Swap once the open batch has been committed
+        }
+        prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        migrationPending = DeviceStorage.isMigrationPending(context, PREFS_NAME);
+        if (migrationPending) {
+            Log.d(TAG, "Prefs migration pending - defaults not seeded yet");
+            return;
+        }
+        initializeDefaults();
+    }
+    
     private void initializeDefaults() {
         if (!prefs.contains(KEY_STATUS)) {
             setStatus("locked");
@@ -52,22 +90,28 @@ public class AppStateManager {
     }
     
     public String getStatus() {
-        return prefs.getString(KEY_STATUS, "locked");
+        return getString(KEY_STATUS, "locked");
     }
     
     public void setStatus(String status) {
-        prefs.edit().putString(KEY_STATUS, status).apply();
+        save(KEY_STATUS, status, false);
         Log.d(TAG, "Status changed to: " + status);
     }
     
     public String getAdminNumber() {
-        return prefs.getString(KEY_ADMIN_NUMBER, "01743395086");
+        return getString(KEY_ADMIN_NUMBER, "01743395086");
+    }
+    
+    // Tolerates formatting differences such as a country code or spaces in either number
+    public boolean isAdminNumber(String number) {
+        String admin = getAdminNumber();
+        return number != null && admin != null && !admin.isEmpty() && PhoneNumberUtils.compare(number, admin);
     }
     
     public void setAdminNumber(String number) {
-        String oldNumber = prefs.getString(KEY_ADMIN_NUMBER, "01743395086");
-        boolean success = prefs.edit().putString(KEY_ADMIN_NUMBER, number).commit();
-        String verifyNumber = prefs.getString(KEY_ADMIN_NUMBER, "01743395086");
+        String oldNumber = getAdminNumber();
+        boolean success = save(KEY_ADMIN_NUMBER, number, true);
+        String verifyNumber = getAdminNumber();
         
         Log.w(TAG, "🔄 ADMIN NUMBER UPDATE:");
         Log.w(TAG, "  📞 Old number: " + oldNumber);
@@ -77,63 +121,161 @@ public class AppStateManager {
     }
     
     public boolean getCall() {
-        return prefs.getBoolean(KEY_CALL, true);
+        return getBoolean(KEY_CALL, true);
     }
     
     public void setCall(boolean call) {
-        prefs.edit().putBoolean(KEY_CALL, call).apply();
+        save(KEY_CALL, call, false);
         Log.d(TAG, "Call status changed to: " + call);
     }
     
     public boolean getAlarm() {
-        return prefs.getBoolean(KEY_ALARM, true);
+        return getBoolean(KEY_ALARM, true);
     }
     
     public void setAlarm(boolean alarm) {
-        prefs.edit().putBoolean(KEY_ALARM, alarm).apply();
+        save(KEY_ALARM, alarm, false);
         Log.d(TAG, "Alarm status changed to: " + alarm);
     }
     
+    public String getSirenPattern() {
+        return getString(KEY_SIREN_PATTERN, SIREN_POLICE);
+    }
+    
+    public void setSirenPattern(String pattern) {
+        save(KEY_SIREN_PATTERN, pattern, false);
+        Log.d(TAG, "Siren pattern changed to: " + pattern);
+    }
+    
+    // Escalation order. The admin number is always the first contact.
+    public List<String> getContacts() {
+        List<String> contacts = new ArrayList<>();
+        String admin = getAdminNumber();
+        if (admin != null && !admin.isEmpty()) {
+            contacts.add(admin);
+        }
+        String extra = getString(KEY_CONTACTS, "");
+        if (!extra.isEmpty()) {
+            for (String contact : extra.split(",")) {
+                String trimmed = contact.trim();
+                if (!trimmed.isEmpty() && !contacts.contains(trimmed)) {
+                    contacts.add(trimmed);
+                }
+            }
+        }
+        return contacts;
+    }
+    
+    // Backup contacts called after the admin number, in order
+    public void setContacts(List<String> contacts) {
+        StringBuilder joined = new StringBuilder();
+        for (String contact : contacts) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(contact.trim());
+        }
+        save(KEY_CONTACTS, joined.toString(), true);
+        Log.d(TAG, "Contacts changed to: " + joined);
+    }
+    
+    public String getWebhookUrl() {
+        return getString(KEY_WEBHOOK_URL, "");
+    }
+    
+    public void setWebhookUrl(String url) {
+        save(KEY_WEBHOOK_URL, url, false);
+        Log.d(TAG, "Webhook URL changed to: " + url);
+    }
+    
+    // Inbound command budget - see TokenBucketLimiter
+    public int getSmsSenderBurst() {
+        return (int) getLong(KEY_SMS_SENDER_BURST, TokenBucketLimiter.DEFAULT_SENDER_BURST);
+    }
+    
+    public int getSmsSenderPerMinute() {
+        return (int) getLong(KEY_SMS_SENDER_PER_MINUTE, TokenBucketLimiter.DEFAULT_SENDER_PER_MINUTE);
+    }
+    
+    public int getSmsGlobalBurst() {
+        return (int) getLong(KEY_SMS_GLOBAL_BURST, TokenBucketLimiter.DEFAULT_GLOBAL_BURST);
+    }
+    
+    public int getSmsGlobalPerMinute() {
+        return (int) getLong(KEY_SMS_GLOBAL_PER_MINUTE, TokenBucketLimiter.DEFAULT_GLOBAL_PER_MINUTE);
+    }
+    
+    public void setSmsRateLimits(int senderBurst, int senderPerMinute, int globalBurst, int globalPerMinute) {
+        save(KEY_SMS_SENDER_BURST, (long) senderBurst, false);
+        save(KEY_SMS_SENDER_PER_MINUTE, (long) senderPerMinute, false);
+        save(KEY_SMS_GLOBAL_BURST, (long) globalBurst, false);
+        save(KEY_SMS_GLOBAL_PER_MINUTE, (long) globalPerMinute, false);
+        Log.d(TAG, "SMS rate limits changed to: " + senderBurst + "/" + senderPerMinute + " per sender, " +
+            globalBurst + "/" + globalPerMinute + " global");
+    }
+    
     public boolean isLocked() {
         return "locked".equals(getStatus());
     }
     
     public long getLastCallTime() {
-        return prefs.getLong(KEY_LAST_CALL_TIME, 0);
+        return getLong(KEY_LAST_CALL_TIME, 0);
     }
     
     public void setLastCallTime(long time) {
-        prefs.edit().putLong(KEY_LAST_CALL_TIME, time).apply();
+        save(KEY_LAST_CALL_TIME, time, false);
         Log.d(TAG, "Last call time updated: " + time);
     }
     
     public long getMotionStartTime() {
-        return prefs.getLong(KEY_MOTION_START_TIME, 0);
+        return getLong(KEY_MOTION_START_TIME, 0);
     }
     
     public void setMotionStartTime(long time) {
-        prefs.edit().putLong(KEY_MOTION_START_TIME, time).commit();
+        save(KEY_MOTION_START_TIME, time, true);
         Log.d(TAG, "Motion start time updated: " + time);
     }
     
     public boolean isCallDelayActive() {
-        return prefs.getBoolean(KEY_IS_CALL_DELAY_ACTIVE, false);
+        return getBoolean(KEY_IS_CALL_DELAY_ACTIVE, false);
     }
     
     public void setCallDelayActive(boolean active) {
-        prefs.edit().putBoolean(KEY_IS_CALL_DELAY_ACTIVE, active).commit();
+        save(KEY_IS_CALL_DELAY_ACTIVE, active, true);
         Log.d(TAG, "Call delay active status changed to: " + active);
     }
     
     public boolean isCallReady() {
-        return prefs.getBoolean(KEY_IS_CALL_READY, false);
+        return getBoolean(KEY_IS_CALL_READY, false);
     }
     
     public void setCallReady(boolean ready) {
-        prefs.edit().putBoolean(KEY_IS_CALL_READY, ready).commit();
+        save(KEY_IS_CALL_READY, ready, true);
         Log.d(TAG, "Call ready status changed to: " + ready);
     }
     
+    // Service start: one apply() instead of three synchronous commits. The in-memory values are
+    // visible right away, only the disk write is deferred.
+    public void resetForServiceStart() {
+        prefs.edit()
+            .putBoolean(KEY_IS_CALL_DELAY_ACTIVE, false)
+            .putLong(KEY_MOTION_START_TIME, 0)
+            .putBoolean(KEY_IS_CALL_READY, true)
+            .apply();
+        Log.d(TAG, "Timer state reset for service start");
+    }
+    
+    // Service restart in the middle of a cooldown - puts back what the incident journal recovered
+    public void restoreIncident(long motionStartTime, boolean callReady, long lastCallTime) {
+        prefs.edit()
+            .putBoolean(KEY_IS_CALL_DELAY_ACTIVE, true)
+            .putLong(KEY_MOTION_START_TIME, motionStartTime)
+            .putBoolean(KEY_IS_CALL_READY, callReady)
+            .putLong(KEY_LAST_CALL_TIME, Math.max(lastCallTime, getLastCallTime()))
+            .apply();
+        Log.d(TAG, "Timer state restored for service start: cooldown since " + motionStartTime);
+    }
+    
     public void resetCallTimer() {
         setCallDelayActive(false);
         setCallReady(false);
@@ -141,6 +283,100 @@ public class AppStateManager {
         Log.d(TAG, "Call timer reset to default state - all timers cleared");
     }
     
+    public synchronized void beginBatch() {
+        Thread current = Thread.currentThread();
+        if (batchOwner == current) {
+            return;
+        }
+        try {
+            while (batchOwner != null) {
+                wait(); // One batch at a time - they only last for the handling of one SMS
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        batchEditor = prefs.edit();
+        batchValues = new HashMap<>();
+        batchNeedsCommit = false;
+        batchOwner = current;
+    }
+    
+    private boolean inBatch() {
+        return batchOwner == Thread.currentThread();
+    }
+    
+    // Writes everything staged since beginBatch() with a single commit()/apply()
+    public synchronized boolean commitBatch() {
+        if (!inBatch()) {
+            return true;
+        }
+        SharedPreferences.Editor editor = batchEditor;
+        int changes = batchValues.size();
+        boolean sync = batchNeedsCommit;
+        batchEditor = null;
+        batchValues = null;
+        batchNeedsCommit = false;
+        batchOwner = null;
+        notifyAll();
+        
+        if (changes == 0) {
+            return true;
+        }
+        boolean success = true;
+        if (sync) {
+            success = editor.commit();
+        } else {
+            editor.apply();
+        }
+        Log.d(TAG, "Batch of " + changes + " changes saved, commit: " + sync + ", success: " + success);
+        return success;
+    }
+    
+    private boolean save(String key, Object value, boolean sync) {
+        boolean batched = inBatch();
+        SharedPreferences.Editor editor = batched ? batchEditor : prefs.edit();
+        if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        }
+        
+        if (batched) {
+            batchValues.put(key, value);
+            batchNeedsCommit |= sync;
+            return true;
+        }
+        if (sync) {
+            return editor.commit();
+        }
+        editor.apply();
+        return true;
+    }
+    
+    private String getString(String key, String defaultValue) {
+        if (inBatch() && batchValues.containsKey(key)) {
+            return (String) batchValues.get(key);
+        }
+        return prefs.getString(key, defaultValue);
+    }
+    
+    private boolean getBoolean(String key, boolean defaultValue) {
+        if (inBatch() && batchValues.containsKey(key)) {
+            return (Boolean) batchValues.get(key);
+        }
+        return prefs.getBoolean(key, defaultValue);
+    }
+    
+    private long getLong(String key, long defaultValue) {
+        if (inBatch() && batchValues.containsKey(key)) {
+            return (Long) batchValues.get(key);
+        }
+        return prefs.getLong(key, defaultValue);
+    }
+    
     public String getAllStatesString() {
         return String.format("Status: %s\nAdmin: %s\nCall: %s\nAlarm: %s",
             getStatus(), getAdminNumber(), getCall(), getAlarm());
@@ -0,0 +1,450 @@
+package com.example.mybike;
+
+import android.util.Log;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// Leveled logging facade for the hot paths. Messages use "{}" placeholders and are only
+// formatted when they actually go to logcat; every record is also kept in a preallocated ring of
+// primitive slots (time, level, tag/format references, raw argument bits) that can be dumped on
+// demand. Object arguments are stored as their String form, so the ring never pins a mutable
+// object or shows its later state. Release builds strip v() and d() calls entirely via R8 (see
+// proguard-rules.pro).
+public final class BikeLog {
+    private static final String TAG = "BikeLog";
+    
+    public static final int VERBOSE = Log.VERBOSE;
+    public static final int DEBUG = Log.DEBUG;
+    public static final int INFO = Log.INFO;
+    public static final int WARN = Log.WARN;
+    public static final int ERROR = Log.ERROR;
+    
+    public static final int RING_SIZE = 512; // Must be a power of two
+    private static final int RING_MASK = RING_SIZE - 1;
+    private static final int MAX_ARGS = 4;
+    
+    private static final int KIND_NONE = 0;
+    private static final int KIND_LONG = 1;
+    private static final int KIND_DOUBLE = 2;
+    private static final int KIND_OBJECT = 3;
+    
+    private static final int KINDS_L = KIND_LONG;
+    private static final int KINDS_LL = KIND_LONG | (KIND_LONG << 2);
+    private static final int KINDS_D = KIND_DOUBLE;
+    private static final int KINDS_DDDD = KIND_DOUBLE | (KIND_DOUBLE << 2) | (KIND_DOUBLE << 4) | (KIND_DOUBLE << 6);
+    private static final int KINDS_O = KIND_OBJECT;
+    private static final int KINDS_OO = KIND_OBJECT | (KIND_OBJECT << 2);
+    private static final int KINDS_OOO = KIND_OBJECT | (KIND_OBJECT << 2) | (KIND_OBJECT << 4);
+    
+    // Ring buffer of binary records - allocated once, written without allocation
+    private static final long[] times = new long[RING_SIZE];
+    private static final byte[] levels = new byte[RING_SIZE];
+    private static final byte[] kinds = new byte[RING_SIZE];
+    private static final String[] tags = new String[RING_SIZE];
+    private static final String[] formats = new String[RING_SIZE];
+    private static final long[] longArgs = new long[RING_SIZE * MAX_ARGS];
+    private static final String[] objectArgs = new String[RING_SIZE * MAX_ARGS];
+    private static final Throwable[] throwables = new Throwable[RING_SIZE];
+    private static long written = 0;
+    
+    private static volatile int logcatLevel = BuildConfig.DEBUG ? DEBUG : INFO;
+    private static volatile int ringLevel = DEBUG; // Per-sample verbose logs would flush the ring in seconds
+    
+    private BikeLog() {
+    }
+    
+    public static void setLogcatLevel(int level) {
+        logcatLevel = level;
+    }
+    
+    public static void setRingLevel(int level) {
+        ringLevel = level;
+    }
+    
+    public static boolean isEnabled(int level) {
+        return level >= ringLevel || level >= logcatLevel;
+    }
+    
+    // Guard for d() calls whose arguments cost something to compute - stripping only removes the
+    // call, so R8 is told this is always false in release builds and drops the whole block
+    public static boolean isDebugEnabled() {
+        return isEnabled(DEBUG);
+    }
+    
+    // ---- VERBOSE ----
+    
+    public static void v(String tag, String msg) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, long a) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_L, a, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, long a, long b) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_LL, a, b, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, double a) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_D, bits(a), 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, double a, double b, double c, double d) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_DDDD, bits(a), bits(b), bits(c), bits(d), null, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, Object a) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_O, 0, 0, 0, 0, a, null, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, Object a, Object b) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_OO, 0, 0, 0, 0, a, b, null, null);
+        }
+    }
+    
+    public static void v(String tag, String fmt, Object a, Object b, Object c) {
+        if (isEnabled(VERBOSE)) {
+            log(VERBOSE, tag, fmt, KINDS_OOO, 0, 0, 0, 0, a, b, c, null);
+        }
+    }
+    
+    // ---- DEBUG ----
+    
+    public static void d(String tag, String msg) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, long a) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_L, a, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, long a, long b) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_LL, a, b, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, double a) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_D, bits(a), 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, double a, double b, double c, double d) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_DDDD, bits(a), bits(b), bits(c), bits(d), null, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, Object a) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_O, 0, 0, 0, 0, a, null, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, Object a, Object b) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_OO, 0, 0, 0, 0, a, b, null, null);
+        }
+    }
+    
+    public static void d(String tag, String fmt, Object a, Object b, Object c) {
+        if (isEnabled(DEBUG)) {
+            log(DEBUG, tag, fmt, KINDS_OOO, 0, 0, 0, 0, a, b, c, null);
+        }
+    }
+    
+    // ---- INFO ----
+    
+    public static void i(String tag, String msg) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, long a) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_L, a, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, long a, long b) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_LL, a, b, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, double a) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_D, bits(a), 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, Object a) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_O, 0, 0, 0, 0, a, null, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, Object a, Object b) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_OO, 0, 0, 0, 0, a, b, null, null);
+        }
+    }
+    
+    public static void i(String tag, String fmt, Object a, Object b, Object c) {
+        if (isEnabled(INFO)) {
+            log(INFO, tag, fmt, KINDS_OOO, 0, 0, 0, 0, a, b, c, null);
+        }
+    }
+    
+    // ---- WARN ----
+    
+    public static void w(String tag, String msg) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, long a) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_L, a, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, long a, long b) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_LL, a, b, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, double a) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_D, bits(a), 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, Object a) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_O, 0, 0, 0, 0, a, null, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, Object a, Object b) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_OO, 0, 0, 0, 0, a, b, null, null);
+        }
+    }
+    
+    public static void w(String tag, String fmt, Object a, Object b, Object c) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, fmt, KINDS_OOO, 0, 0, 0, 0, a, b, c, null);
+        }
+    }
+    
+    public static void w(String tag, String msg, Throwable t) {
+        if (isEnabled(WARN)) {
+            log(WARN, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, t);
+        }
+    }
+    
+    // ---- ERROR ----
+    
+    public static void e(String tag, String msg) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void e(String tag, String fmt, long a) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, fmt, KINDS_L, a, 0, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void e(String tag, String fmt, long a, long b) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, fmt, KINDS_LL, a, b, 0, 0, null, null, null, null);
+        }
+    }
+    
+    public static void e(String tag, String fmt, Object a) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, fmt, KINDS_O, 0, 0, 0, 0, a, null, null, null);
+        }
+    }
+    
+    public static void e(String tag, String fmt, Object a, Object b) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, fmt, KINDS_OO, 0, 0, 0, 0, a, b, null, null);
+        }
+    }
+    
+    public static void e(String tag, String msg, Throwable t) {
+        if (isEnabled(ERROR)) {
+            log(ERROR, tag, msg, KIND_NONE, 0, 0, 0, 0, null, null, null, t);
+        }
+    }
+    
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+    
+    private static void log(int level, String tag, String fmt, int argKinds, long a, long b, long c, long d,
+                            Object oa, Object ob, Object oc, Throwable t) {
+        if (level >= ringLevel) {
+            synchronized (times) {
+                int slot = (int) (written & RING_MASK);
+                int argBase = slot * MAX_ARGS;
+                times[slot] = System.currentTimeMillis();
+                levels[slot] = (byte) level;
+                kinds[slot] = (byte) argKinds;
+                tags[slot] = tag;
+                formats[slot] = fmt;
+                longArgs[argBase] = a;
+                longArgs[argBase + 1] = b;
+                longArgs[argBase + 2] = c;
+                longArgs[argBase + 3] = d;
+                objectArgs[argBase] = toRingString(oa);
+                objectArgs[argBase + 1] = toRingString(ob);
+                objectArgs[argBase + 2] = toRingString(oc);
+                objectArgs[argBase + 3] = null;
+                throwables[slot] = t;
+                written++;
+            }
+        }
+        
+        if (level >= logcatLevel) {
+            // Formatting only happens here, for records that actually reach logcat
+            StringBuilder message = new StringBuilder(fmt.length() + 32);
+            format(message, fmt, argKinds, a, b, c, d, oa, ob, oc);
+            if (t != null) {
+                message.append('\n').append(Log.getStackTraceString(t));
+            }
+            Log.println(level, tag, message.toString());
+        }
+    }
+    
+    // Strings pass through as-is; anything else is rendered now, while it still has the logged value
+    private static String toRingString(Object value) {
+        return value == null || value instanceof String ? (String) value : String.valueOf(value);
+    }
+    
+    private static void format(StringBuilder out, String fmt, int argKinds, long a, long b, long c, long d,
+                               Object oa, Object ob, Object oc) {
+        int arg = 0;
+        int start = 0;
+        int index;
+        while ((index = fmt.indexOf("{}", start)) >= 0 && arg < MAX_ARGS) {
+            out.append(fmt, start, index);
+            int kind = (argKinds >> (arg * 2)) & 3;
+            long bits = arg == 0 ? a : arg == 1 ? b : arg == 2 ? c : d;
+            Object ref = arg == 0 ? oa : arg == 1 ? ob : arg == 2 ? oc : null;
+            switch (kind) {
+                case KIND_LONG:
+                    out.append(bits);
+                    break;
+                case KIND_DOUBLE:
+                    appendDouble(out, Double.longBitsToDouble(bits));
+                    break;
+                case KIND_OBJECT:
+                    out.append(ref);
+                    break;
+                default:
+                    out.append("{}");
+                    break;
+            }
+            arg++;
+            start = index + 2;
+        }
+        out.append(fmt, start, fmt.length());
+    }
+    
+    private static void appendDouble(StringBuilder out, double value) {
+        // Two decimals is all the sensor logs need and avoids String.format
+        long scaled = Math.round(value * 100);
+        if (scaled < 0) {
+            out.append('-');
+            scaled = -scaled;
+        }
+        out.append(scaled / 100).append('.');
+        long fraction = scaled % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+    
+    public static long getWrittenCount() {
+        synchronized (times) {
+            return written;
+        }
+    }
+    
+    // Writes the ring, oldest record first - used by the service dump() and the dumplog SMS command
+    public static void dump(PrintWriter writer) {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        synchronized (times) {
+            long first = Math.max(0, written - RING_SIZE);
+            writer.println("Log ring: " + (written - first) + " of " + written + " records");
+            StringBuilder line = new StringBuilder(128);
+            for (long n = first; n < written; n++) {
+                int slot = (int) (n & RING_MASK);
+                int argBase = slot * MAX_ARGS;
+                line.setLength(0);
+                line.append(timeFormat.format(new Date(times[slot]))).append(' ')
+                        .append(levelChar(levels[slot])).append(' ')
+                        .append(tags[slot]).append(": ");
+                format(line, formats[slot], kinds[slot],
+                        longArgs[argBase], longArgs[argBase + 1], longArgs[argBase + 2], longArgs[argBase + 3],
+                        objectArgs[argBase], objectArgs[argBase + 1], objectArgs[argBase + 2]);
+                if (throwables[slot] != null) {
+                    line.append(" - ").append(throwables[slot]);
+                }
+                writer.println(line);
+            }
+        }
+        writer.flush();
+    }
+    
+    public static void dumpToLogcat() {
+        try {
+            java.io.StringWriter buffer = new java.io.StringWriter();
+            dump(new PrintWriter(buffer));
+            for (String line : buffer.toString().split("\n")) {
+                Log.i(TAG, line);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error dumping log ring", e);
+        }
+    }
+    
+    private static char levelChar(int level) {
+        switch (level) {
+            case VERBOSE: return 'V';
+            case DEBUG: return 'D';
+            case INFO: return 'I';
+            case WARN: return 'W';
+            default: return 'E';
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.mybike;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+// Re-arms monitoring after a reboot without waiting for anyone to open the app. Direct boot
+// aware, so LOCKED_BOOT_COMPLETED starts the service before the first unlock; the later
+// BOOT_COMPLETED only reaches the already running service.
+public class BootReceiver extends BroadcastReceiver {
+    private static final String TAG = "BootReceiver";
+    
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action) && !Intent.ACTION_BOOT_COMPLETED.equals(action)) {
+            return;
+        }
+        try {
+            Log.w(TAG, "🔁 " + action + " " + SystemClock.elapsedRealtime() + "ms after boot - starting monitoring");
+            Intent serviceIntent = new Intent(context, SimpleMotionDetectionService.class);
+            serviceIntent.putExtra(SimpleMotionDetectionService.EXTRA_FROM_BOOT, true);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(serviceIntent);
+            } else {
+                context.startService(serviceIntent);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting monitoring after boot", e);
+        }
+    }
+}
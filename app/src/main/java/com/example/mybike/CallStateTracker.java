@@ -0,0 +1,168 @@
+package com.example.mybike;
+
+import android.content.Context;
+import android.os.Build;
+import android.telephony.PhoneStateListener;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+import java.util.concurrent.Executor;
+
+// Keeps the current call state cached from telephony callbacks so checks on the motion path
+// are a field read instead of a binder call. Registered once through TelephonyCallback on
+// API 31+, PhoneStateListener below that. Listeners are notified on the main thread.
+public class CallStateTracker {
+    private static final String TAG = "CallStateTracker";
+    
+    public interface Listener {
+        void onCallStateChanged(int previousState, int state);
+    }
+    
+    private final Context context;
+    private final TelephonyManager telephonyManager;
+    private volatile Listener[] listeners = new Listener[0];
+    private volatile int state = TelephonyManager.CALL_STATE_IDLE;
+    private volatile boolean registered = false;
+    private long transitionCount = 0;
+    
+    private TelephonyCallback telephonyCallback;
+    private PhoneStateListener phoneStateListener;
+    
+    public CallStateTracker(Context context) {
+        this.context = context.getApplicationContext();
+        this.telephonyManager = (TelephonyManager) this.context.getSystemService(Context.TELEPHONY_SERVICE);
+    }
+    
+    // Call on the main thread; safe to call again, e.g. after READ_PHONE_STATE was granted
+    public void start() {
+        if (registered || telephonyManager == null) {
+            return;
+        }
+        try {
+            state = telephonyManager.getCallState(); // Seed once, the callbacks keep it current
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot read initial call state: " + e.getMessage());
+        }
+        
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                registerTelephonyCallback();
+            } else {
+                registerPhoneStateListener();
+            }
+            registered = true;
+            Log.d(TAG, "📞 Call state tracking started, state " + state);
+        } catch (SecurityException e) {
+            // Without READ_PHONE_STATE isCallActive() falls back to querying telephony directly
+            Log.w(TAG, "Call state callbacks unavailable: " + e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Error registering call state tracking", e);
+        }
+    }
+    
+    private void registerTelephonyCallback() {
+        final Executor executor = context.getMainExecutor();
+        telephonyCallback = new CallStateCallback();
+        telephonyManager.registerTelephonyCallback(executor, telephonyCallback);
+    }
+    
+    @SuppressWarnings("deprecation")
+    private void registerPhoneStateListener() {
+        phoneStateListener = new PhoneStateListener() {
+            @Override
+            public void onCallStateChanged(int newState, String phoneNumber) {
+                onStateChanged(newState);
+            }
+        };
+        telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_CALL_STATE);
+    }
+    
+    private class CallStateCallback extends TelephonyCallback implements TelephonyCallback.CallStateListener {
+        @Override
+        public void onCallStateChanged(int newState) {
+            onStateChanged(newState);
+        }
+    }
+    
+    private void onStateChanged(int newState) {
+        int previous = state;
+        if (previous == newState) {
+            return;
+        }
+        state = newState;
+        transitionCount++;
+        Log.d(TAG, "📞 Call state " + previous + " -> " + newState + " (IDLE=0, RINGING=1, OFFHOOK=2)");
+        for (Listener listener : listeners) {
+            try {
+                listener.onCallStateChanged(previous, newState);
+            } catch (Exception e) {
+                Log.e(TAG, "Error in call state listener", e);
+            }
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    public void stop() {
+        if (!registered) {
+            return;
+        }
+        try {
+            if (telephonyCallback != null) {
+                telephonyManager.unregisterTelephonyCallback(telephonyCallback);
+                telephonyCallback = null;
+            }
+            if (phoneStateListener != null) {
+                telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_NONE);
+                phoneStateListener = null;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error unregistering call state tracking", e);
+        }
+        registered = false;
+    }
+    
+    public synchronized void addListener(Listener listener) {
+        Listener[] current = listeners;
+        Listener[] updated = new Listener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+    
+    public synchronized void removeListener(Listener listener) {
+        Listener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                Listener[] updated = new Listener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+    
+    public int getState() {
+        if (!registered && telephonyManager != null) {
+            try {
+                return telephonyManager.getCallState();
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading call state", e);
+            }
+        }
+        return state;
+    }
+    
+    public boolean isIdle() {
+        return getState() == TelephonyManager.CALL_STATE_IDLE;
+    }
+    
+    public boolean isCallActive() {
+        int current = getState();
+        return current == TelephonyManager.CALL_STATE_RINGING || current == TelephonyManager.CALL_STATE_OFFHOOK;
+    }
+    
+    public String summary() {
+        return "Call state: " + state + (registered ? " (tracked" : " (polled") + ", " + transitionCount + " transitions)";
+    }
+}
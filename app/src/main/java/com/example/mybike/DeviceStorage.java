@@ -0,0 +1,71 @@
+package com.example.mybike;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.Log;
+import java.io.File;
+
+// Everything the monitor needs after a reboot lives in device-protected storage, which is
+// readable before the first unlock. Prefs written by older versions to credential-encrypted
+// storage are moved over the first time they are opened while the user is unlocked.
+public final class DeviceStorage {
+    private static final String TAG = "DeviceStorage";
+    private static final String MIGRATION_PREFS = "MyBikeStorage";
+    
+    private DeviceStorage() {
+    }
+    
+    public static Context context(Context context) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        return app.isDeviceProtectedStorage() ? app : app.createDeviceProtectedStorageContext();
+    }
+    
+    public static synchronized SharedPreferences prefs(Context context, String name) {
+        Context deviceContext = context(context);
+        migrate(context, deviceContext, name);
+        return deviceContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+    
+    // True while the prefs may still be sitting in sealed credential storage. Callers must not seed
+    // defaults until this clears, or the later move would be overwritten by them.
+    public static synchronized boolean isMigrationPending(Context context, String name) {
+        SharedPreferences migrations = context(context).getSharedPreferences(MIGRATION_PREFS, Context.MODE_PRIVATE);
+        return !migrations.getBoolean(name, false);
+    }
+    
+    // Removes a file an older version left in the credential-encrypted cache dir
+    public static void deleteLegacyCache(Context context, String fileName) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        if (app.isDeviceProtectedStorage() || !isUserUnlocked(app)) {
+            return;
+        }
+        File legacy = new File(app.getCacheDir(), fileName);
+        if (legacy.exists() && legacy.delete()) {
+            Log.d(TAG, "Deleted legacy " + fileName + " from credential storage");
+        }
+    }
+    
+    private static boolean isUserUnlocked(Context context) {
+        UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        return userManager == null || userManager.isUserUnlocked();
+    }
+    
+    private static void migrate(Context context, Context deviceContext, String name) {
+        SharedPreferences migrations = deviceContext.getSharedPreferences(MIGRATION_PREFS, Context.MODE_PRIVATE);
+        if (migrations.getBoolean(name, false)) {
+            return;
+        }
+        if (!isUserUnlocked(context)) {
+            return; // Credential storage is still sealed - try again on a later open
+        }
+        try {
+            if (deviceContext.moveSharedPreferencesFrom(context.getApplicationContext(), name)) {
+                Log.d(TAG, "Moved " + name + " to device-protected storage");
+            }
+            migrations.edit().putBoolean(name, true).commit();
+        } catch (Exception e) {
+            Log.e(TAG, "Error migrating " + name, e);
+        }
+    }
+}
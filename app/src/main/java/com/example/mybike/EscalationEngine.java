@@ -0,0 +1,344 @@
+package com.example.mybike;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CallLog;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Call tree for one motion incident: dials the contacts in order and moves on to the next one
+// when a call ends without being answered. Progress is driven by CallStateTracker transitions.
+// The incident is persisted after every step so a service restart picks up where it left off
+// instead of starting over or going silent.
+public class EscalationEngine {
+    private static final String TAG = "EscalationEngine";
+    private static final String PREFS_NAME = "MyBikeEscalation";
+    
+    private static final String KEY_STATE = "state";
+    private static final String KEY_INCIDENT_START = "incident_start";
+    private static final String KEY_CONTACTS = "contacts";
+    private static final String KEY_INDEX = "index";
+    private static final String KEY_DIALED_AT = "dialed_at";
+    private static final String KEY_OFFHOOK_AT = "offhook_at";
+    private static final String KEY_LAST_TIME_TO_ANSWER = "last_time_to_answer";
+    
+    public static final int STATE_IDLE = 0;
+    public static final int STATE_DIALING = 1;  // Dial requested, waiting for OFFHOOK
+    public static final int STATE_IN_CALL = 2;  // OFFHOOK seen, waiting for IDLE
+    
+    private static final long DIAL_TIMEOUT = 15000;           // No OFFHOOK by then - the dial failed
+    private static final long NEXT_CONTACT_DELAY = 2000;      // Let the telephony stack settle between calls
+    private static final long INCIDENT_TIMEOUT = 30 * 60 * 1000;
+    // Without call log access an answered call can't be told apart from one that rang out; calls
+    // that stayed up longer than a typical ring timeout are taken as answered.
+    private static final long ASSUME_ANSWERED_AFTER = 60000;
+    // The dialer writes the call log entry a moment after IDLE - look again before falling back
+    private static final long[] CALL_LOG_RETRY_DELAYS = {0, 500, 1000, 2000};
+    private static final int LOG_ANSWERED = 1;
+    private static final int LOG_NOT_ANSWERED = 0;
+    private static final int LOG_NOT_FOUND = -1;
+    private static final int LOG_UNAVAILABLE = -2;
+    
+    public interface Dialer {
+        // Starts an outgoing call to number; called on the main thread. Returning false ends the
+        // incident (e.g. the bike was unlocked in the meantime). The call may go out later, e.g.
+        // once a busy line is free - the dialer reports it through onDialPlaced().
+        boolean dial(String number);
+    }
+    
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Dialer dialer;
+    private final CallStateTracker callStateTracker;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LatencyRecorder timeToAnswer = new LatencyRecorder("Time to first answer", 32);
+    private final long dialTimeoutMs;
+    
+    private int state = STATE_IDLE;
+    private long incidentStart = 0;
+    private String[] contacts = new String[0];
+    private int index = 0;
+    private long dialedAt = 0;
+    private long offhookAt = 0;
+    private long callEndedAt = 0; // Set while the call log is being checked for the call that just ended
+    private int callLogAttempt = 0;
+    private long answeredCount = 0;
+    private long exhaustedCount = 0;
+    
+    private final Runnable dialTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (state == STATE_DIALING) {
+                Log.w(TAG, "❌ Call to " + contacts[index] + " never went off-hook - trying next contact");
+                moveToNext();
+            }
+        }
+    };
+    
+    private final CallStateTracker.Listener callStateListener = new CallStateTracker.Listener() {
+        @Override
+        public void onCallStateChanged(int previousState, int callState) {
+            onCallState(callState);
+        }
+    };
+    
+    private final Runnable dialNextRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dialCurrent();
+        }
+    };
+    
+    private final Runnable callLogCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            checkEndedCall();
+        }
+    };
+    
+    public EscalationEngine(Context context, CallStateTracker callStateTracker, Dialer dialer) {
+        this(context, callStateTracker, dialer, DIAL_TIMEOUT);
+    }
+    
+    EscalationEngine(Context context, CallStateTracker callStateTracker, Dialer dialer, long dialTimeoutMs) {
+        this.context = context.getApplicationContext();
+        this.prefs = DeviceStorage.prefs(this.context, PREFS_NAME);
+        this.callStateTracker = callStateTracker;
+        this.dialer = dialer;
+        this.dialTimeoutMs = dialTimeoutMs;
+        callStateTracker.addListener(callStateListener);
+    }
+    
+    // Resumes an incident interrupted by a service restart
+    public void restore() {
+        state = prefs.getInt(KEY_STATE, STATE_IDLE);
+        if (state == STATE_IDLE) {
+            return;
+        }
+        incidentStart = prefs.getLong(KEY_INCIDENT_START, 0);
+        String joined = prefs.getString(KEY_CONTACTS, "");
+        contacts = joined.isEmpty() ? new String[0] : joined.split(",");
+        index = prefs.getInt(KEY_INDEX, 0);
+        dialedAt = prefs.getLong(KEY_DIALED_AT, 0);
+        offhookAt = prefs.getLong(KEY_OFFHOOK_AT, 0);
+        
+        if (System.currentTimeMillis() - incidentStart > INCIDENT_TIMEOUT || index >= contacts.length) {
+            Log.w(TAG, "Dropping stale escalation from a previous run");
+            clear();
+            return;
+        }
+        Log.w(TAG, "📞 Resuming escalation at contact " + (index + 1) + "/" + contacts.length + ", state " + state);
+        if (state == STATE_DIALING && dialedAt == 0) {
+            handler.post(dialNextRunnable);
+            return;
+        }
+        // Transitions missed while we were gone are caught up from the current state
+        if (state == STATE_DIALING) {
+            long remaining = dialTimeoutMs - (System.currentTimeMillis() - dialedAt);
+            handler.postDelayed(dialTimeoutRunnable, Math.max(0, remaining));
+        }
+        onCallState(callStateTracker.getState());
+    }
+    
+    // Returns false when an incident is already escalating
+    public boolean start(List<String> contactList) {
+        if (state != STATE_IDLE) {
+            return false;
+        }
+        if (contactList.isEmpty()) {
+            Log.e(TAG, "❌ No contacts to escalate to");
+            return false;
+        }
+        contacts = contactList.toArray(new String[0]);
+        incidentStart = System.currentTimeMillis();
+        index = 0;
+        Log.w(TAG, "📞 ESCALATION STARTED - " + contacts.length + " contact(s): " + Arrays.toString(contacts));
+        dialCurrent();
+        return true;
+    }
+    
+    private void dialCurrent() {
+        if (index >= contacts.length) {
+            exhaustedCount++;
+            Log.w(TAG, "❌ ESCALATION EXHAUSTED - nobody answered");
+            clear();
+            return;
+        }
+        state = STATE_DIALING;
+        dialedAt = 0; // Set by onDialPlaced() - until then restore() redials
+        offhookAt = 0;
+        save();
+        Log.w(TAG, "📞 Calling contact " + (index + 1) + "/" + contacts.length + ": " + contacts[index]);
+        if (!dialer.dial(contacts[index])) {
+            Log.w(TAG, "Escalation stopped - calling no longer allowed");
+            clear();
+        }
+    }
+    
+    // The call intent for the current contact went out. The dial timeout starts here, so time
+    // spent waiting for a busy line to clear is not counted as a failed dial.
+    public void onDialPlaced() {
+        if (state != STATE_DIALING || dialedAt > 0) {
+            return;
+        }
+        dialedAt = System.currentTimeMillis();
+        save();
+        handler.removeCallbacks(dialTimeoutRunnable);
+        handler.postDelayed(dialTimeoutRunnable, dialTimeoutMs);
+    }
+    
+    private void onCallState(int callState) {
+        if (state == STATE_DIALING && dialedAt > 0 && callState == TelephonyManager.CALL_STATE_OFFHOOK) {
+            handler.removeCallbacks(dialTimeoutRunnable);
+            state = STATE_IN_CALL;
+            offhookAt = System.currentTimeMillis();
+            save();
+        } else if (state == STATE_IN_CALL && callState == TelephonyManager.CALL_STATE_IDLE && callEndedAt == 0) {
+            callEndedAt = System.currentTimeMillis();
+            callLogAttempt = 0;
+            handler.post(callLogCheckRunnable);
+        }
+    }
+    
+    private void checkEndedCall() {
+        if (state != STATE_IN_CALL || callEndedAt == 0) {
+            return;
+        }
+        String number = contacts[index];
+        int logged = readCallLog(number);
+        if (logged == LOG_NOT_FOUND && ++callLogAttempt < CALL_LOG_RETRY_DELAYS.length) {
+            handler.postDelayed(callLogCheckRunnable, CALL_LOG_RETRY_DELAYS[callLogAttempt]);
+            return;
+        }
+        long now = callEndedAt;
+        callEndedAt = 0;
+        boolean answered = logged >= 0
+            ? logged == LOG_ANSWERED
+            : offhookAt > 0 && now - offhookAt >= ASSUME_ANSWERED_AFTER;
+        if (answered) {
+            long elapsed = now - incidentStart;
+            timeToAnswer.record(elapsed);
+            answeredCount++;
+            prefs.edit().putLong(KEY_LAST_TIME_TO_ANSWER, elapsed).apply();
+            Log.w(TAG, "✅ ESCALATION ANSWERED by " + number + " after " + elapsed + "ms");
+            clear();
+        } else {
+            Log.w(TAG, "📞 " + number + " did not answer - trying next contact");
+            moveToNext();
+        }
+    }
+    
+    private void moveToNext() {
+        index++;
+        state = STATE_DIALING; // Stays non-idle so new motion doesn't restart the tree meanwhile
+        dialedAt = 0;          // Dial still pending - restore() redials instead of waiting for it
+        save();
+        handler.removeCallbacks(dialTimeoutRunnable);
+        handler.postDelayed(dialNextRunnable, NEXT_CONTACT_DELAY);
+    }
+    
+    // Looks up the outgoing call placed at dialedAt. Without call log access the caller falls back
+    // to how long the call stayed off-hook.
+    private int readCallLog(String number) {
+        if (context.checkSelfPermission(Manifest.permission.READ_CALL_LOG) != PackageManager.PERMISSION_GRANTED) {
+            return LOG_UNAVAILABLE;
+        }
+        // Outgoing call log entries carry the connected duration - 0 means it was never picked up
+        try (Cursor cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI,
+                new String[] {CallLog.Calls.NUMBER, CallLog.Calls.DURATION},
+                CallLog.Calls.TYPE + "=? AND " + CallLog.Calls.DATE + ">=?",
+                new String[] {String.valueOf(CallLog.Calls.OUTGOING_TYPE), String.valueOf(dialedAt - 5000)},
+                CallLog.Calls.DATE + " DESC")) {
+            if (cursor != null) {
+                String digits = digitsOf(number);
+                while (cursor.moveToNext()) {
+                    String logged = digitsOf(cursor.getString(0));
+                    if (logged.endsWith(lastDigits(digits)) || digits.endsWith(lastDigits(logged))) {
+                        return cursor.getLong(1) > 0 ? LOG_ANSWERED : LOG_NOT_ANSWERED;
+                    }
+                }
+            }
+            return LOG_NOT_FOUND;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading call log", e);
+            return LOG_UNAVAILABLE;
+        }
+    }
+    
+    private static String digitsOf(String number) {
+        return number == null ? "" : number.replaceAll("[^0-9]", "");
+    }
+    
+    private static String lastDigits(String digits) {
+        // Compare national parts only - "+8801743..." and "01743..." are the same number
+        return digits.length() > 9 ? digits.substring(digits.length() - 9) : digits;
+    }
+    
+    // Ends the incident without further calls - used when the bike is unlocked
+    public void cancel() {
+        if (state != STATE_IDLE) {
+            Log.w(TAG, "Escalation cancelled");
+            clear();
+        }
+    }
+    
+    // Stops the timers but keeps the persisted incident for restore()
+    public void shutdown() {
+        callStateTracker.removeListener(callStateListener);
+        handler.removeCallbacks(dialTimeoutRunnable);
+        handler.removeCallbacks(dialNextRunnable);
+        handler.removeCallbacks(callLogCheckRunnable);
+    }
+    
+    public boolean isActive() {
+        return state != STATE_IDLE;
+    }
+    
+    private void clear() {
+        handler.removeCallbacks(dialTimeoutRunnable);
+        handler.removeCallbacks(dialNextRunnable);
+        handler.removeCallbacks(callLogCheckRunnable);
+        callEndedAt = 0;
+        state = STATE_IDLE;
+        contacts = new String[0];
+        index = 0;
+        save();
+    }
+    
+    private void save() {
+        StringBuilder joined = new StringBuilder();
+        for (String contact : contacts) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(contact);
+        }
+        prefs.edit()
+            .putInt(KEY_STATE, state)
+            .putLong(KEY_INCIDENT_START, incidentStart)
+            .putString(KEY_CONTACTS, joined.toString())
+            .putInt(KEY_INDEX, index)
+            .putLong(KEY_DIALED_AT, dialedAt)
+            .putLong(KEY_OFFHOOK_AT, offhookAt)
+            .commit(); // Synchronous - the point is surviving a kill right after this step
+    }
+    
+    public long getLastTimeToAnswer() {
+        return prefs.getLong(KEY_LAST_TIME_TO_ANSWER, 0);
+    }
+    
+    public String summary() {
+        String current = state == STATE_IDLE ? "idle"
+            : "calling " + (index + 1) + "/" + contacts.length + (state == STATE_IN_CALL ? " (in call)" : " (dialing)");
+        return "Escalation: " + current + ", answered " + answeredCount + ", exhausted " + exhaustedCount +
+            ", last time to answer " + getLastTimeToAnswer() + "ms\n" + timeToAnswer.summary();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.mybike;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process replacement for the MOTION_DETECTED / STATE_CHANGED local broadcasts. Events are
+// an int topic plus primitive payload (flags and two longs), subscribers live in copy-on-write
+// arrays so post() never locks, and executor deliveries reuse pooled runnables.
+public final class EventBus {
+    
+    public static final int TOPIC_MOTION = 0;
+    public static final int TOPIC_STATE = 1;
+    private static final int TOPIC_COUNT = 2;
+    
+    // TOPIC_MOTION flags
+    public static final int FLAG_MOTION_DETECTED = 1;
+    
+    // TOPIC_STATE flags - without FLAG_TIMER_STATE the event only says "settings changed, re-read them"
+    public static final int FLAG_TIMER_STATE = 1;
+    public static final int FLAG_CALL_DELAY_ACTIVE = 1 << 1;
+    public static final int FLAG_CALL_READY = 1 << 2;
+    
+    private static final int POOL_SIZE = 16;
+    
+    public interface Subscriber {
+        // TOPIC_MOTION: value1/value2 unused. TOPIC_STATE: value1 = motion start time, value2 = last call time
+        void onEvent(int topic, int flags, long value1, long value2);
+    }
+    
+    private static final class Registration {
+        final Subscriber subscriber;
+        final Executor executor; // null = delivered synchronously on the posting thread
+        volatile boolean active = true;
+        
+        Registration(Subscriber subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+    }
+    
+    private final class Delivery implements Runnable {
+        Registration registration;
+        int topic;
+        int flags;
+        long value1;
+        long value2;
+        
+        @Override
+        public void run() {
+            Registration target = registration;
+            int t = topic;
+            int f = flags;
+            long v1 = value1;
+            long v2 = value2;
+            recycle(this);
+            // Unregistered while the delivery was queued - drop it
+            if (target.active) {
+                target.subscriber.onEvent(t, f, v1, v2);
+            }
+        }
+    }
+    
+    private static final Registration[] EMPTY = new Registration[0];
+    private static EventBus instance;
+    
+    private final Object lock = new Object();
+    // Replaced wholesale on every (un)registration - post() reads it without locking
+    private volatile Registration[][] subscribers = new Registration[TOPIC_COUNT][];
+    
+    private final Delivery[] pool = new Delivery[POOL_SIZE];
+    private int poolCount = 0;
+    
+    private final AtomicLong postedCount = new AtomicLong();
+    
+    public static synchronized EventBus getInstance() {
+        if (instance == null) {
+            instance = new EventBus();
+        }
+        return instance;
+    }
+    
+    EventBus() {
+        for (int i = 0; i < TOPIC_COUNT; i++) {
+            subscribers[i] = EMPTY;
+        }
+    }
+    
+    public void register(int topic, Subscriber subscriber) {
+        register(topic, subscriber, null);
+    }
+    
+    public void register(int topic, Subscriber subscriber, Executor executor) {
+        if (subscriber == null) {
+            return;
+        }
+        synchronized (lock) {
+            Registration[] current = subscribers[topic];
+            for (Registration registration : current) {
+                if (registration.subscriber == subscriber) {
+                    return;
+                }
+            }
+            Registration[] updated = new Registration[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = new Registration(subscriber, executor);
+            publish(topic, updated);
+        }
+    }
+    
+    public void unregister(int topic, Subscriber subscriber) {
+        synchronized (lock) {
+            Registration[] current = subscribers[topic];
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].subscriber == subscriber) {
+                    current[i].active = false;
+                    Registration[] updated = current.length == 1 ? EMPTY : new Registration[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    publish(topic, updated);
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void publish(int topic, Registration[] updated) {
+        Registration[][] copy = subscribers.clone();
+        copy[topic] = updated;
+        subscribers = copy;
+    }
+    
+    public void unregisterAll(Subscriber subscriber) {
+        for (int topic = 0; topic < TOPIC_COUNT; topic++) {
+            unregister(topic, subscriber);
+        }
+    }
+    
+    public void post(int topic, int flags, long value1, long value2) {
+        Registration[] current = subscribers[topic];
+        postedCount.incrementAndGet();
+        for (Registration registration : current) {
+            if (registration.executor == null) {
+                registration.subscriber.onEvent(topic, flags, value1, value2);
+            } else {
+                Delivery delivery = obtain();
+                delivery.registration = registration;
+                delivery.topic = topic;
+                delivery.flags = flags;
+                delivery.value1 = value1;
+                delivery.value2 = value2;
+                registration.executor.execute(delivery);
+            }
+        }
+    }
+    
+    public void postMotion(boolean detected) {
+        post(TOPIC_MOTION, detected ? FLAG_MOTION_DETECTED : 0, 0, 0);
+    }
+    
+    public void postStateChanged() {
+        post(TOPIC_STATE, 0, 0, 0);
+    }
+    
+    public void postTimerState(boolean callDelayActive, boolean callReady, long motionStartTime, long lastCallTime) {
+        int flags = FLAG_TIMER_STATE;
+        if (callDelayActive) {
+            flags |= FLAG_CALL_DELAY_ACTIVE;
+        }
+        if (callReady) {
+            flags |= FLAG_CALL_READY;
+        }
+        post(TOPIC_STATE, flags, motionStartTime, lastCallTime);
+    }
+    
+    public int getSubscriberCount(int topic) {
+        return subscribers[topic].length;
+    }
+    
+    public long getPostedCount() {
+        return postedCount.get();
+    }
+    
+    private Delivery obtain() {
+        synchronized (pool) {
+            if (poolCount > 0) {
+                Delivery delivery = pool[--poolCount];
+                pool[poolCount] = null;
+                return delivery;
+            }
+        }
+        return new Delivery();
+    }
+    
+    private void recycle(Delivery delivery) {
+        delivery.registration = null;
+        synchronized (pool) {
+            if (poolCount < POOL_SIZE) {
+                pool[poolCount++] = delivery;
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.mybike;
+
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps the last few minutes of raw gyro/accelerometer samples in a memory-mapped ring file and
+// freezes the window around each incident into a capture file for tuning the detector.
+//
+// The ring is a file header followed by fixed-size blocks. A block header carries its sequence
+// number and an absolute timestamp; samples inside it are deltas against the previous sample of
+// the same sensor, zigzag varint encoded. A sample never spans blocks, so every block decodes on
+// its own. Captures are copies of the blocks covering the window, readable with decodeBlock().
+// record() only writes into the mapping - no allocation, no syscalls.
+public class FlightRecorder {
+    private static final String TAG = "FlightRecorder";
+    
+    public static final long DEFAULT_BEFORE_NANOS = 10_000_000_000L; // Kept before the trigger
+    public static final long DEFAULT_AFTER_NANOS = 10_000_000_000L;  // Recorded after it
+    public static final int MAX_CAPTURES = 8;
+    
+    private static final int RING_MAGIC = 0x4d42464c;    // "MBFL"
+    private static final int CAPTURE_MAGIC = 0x4d424643; // "MBFC"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 64;
+    private static final int CAPTURE_HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8 + 8 + 4;
+    public static final int BLOCK_SIZE = 4096;
+    private static final int BLOCK_COUNT = 64; // 256 KiB - several minutes at full rate with fusion
+    public static final int BLOCK_HEADER_SIZE = 4 + 8 + 2 + 2; // sequence, base timestamp, count, used bytes
+    private static final int MAX_SAMPLE_SIZE = 1 + 5 * 4;   // sensor byte + 4 varints
+    private static final float SCALE = 1000f;               // milli rad/s and milli m/s^2
+    private static final String RING_NAME = "flight.ring";
+    private static final String CAPTURE_PREFIX = "capture-";
+    
+    public interface Visitor {
+        void onSample(int sensor, long timestampNanos, float x, float y, float z);
+    }
+    
+    private final File directory;
+    private final long beforeNanos;
+    private final long afterNanos;
+    private MappedByteBuffer ring;
+    private ExecutorService captureExecutor;
+    
+    // Write cursor - all sensor-thread state, reset at each block
+    private int block = -1;
+    private int blockSequence = 0;
+    private int position;
+    private int blockEnd;
+    private int count;
+    private long lastTimestamp;
+    private final int[][] previous = new int[2][3];
+    
+    // Pending capture
+    private long captureFrom = 0;
+    private long captureUntil = 0;
+    private long captureTrigger = 0;
+    private long captureWallTime = 0;
+    
+    // Stats
+    private long samples = 0;
+    private long bytes = 0;
+    private volatile int captures = 0; // Written by the capture thread
+    private volatile String lastCapture = "none";
+    
+    public FlightRecorder(File directory) {
+        this(directory, DEFAULT_BEFORE_NANOS, DEFAULT_AFTER_NANOS);
+    }
+    
+    public FlightRecorder(File directory, long beforeNanos, long afterNanos) {
+        this.directory = directory;
+        this.beforeNanos = beforeNanos;
+        this.afterNanos = afterNanos;
+    }
+    
+    public boolean open() {
+        try {
+            directory.mkdirs();
+            long size = FILE_HEADER_SIZE + (long) BLOCK_SIZE * BLOCK_COUNT;
+            try (RandomAccessFile file = new RandomAccessFile(new File(directory, RING_NAME), "rw")) {
+                file.setLength(size);
+                ring = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } // The mapping stays valid after the channel is closed
+            ring.order(ByteOrder.LITTLE_ENDIAN);
+            if (ring.getInt(0) == RING_MAGIC && ring.getInt(4) == VERSION && ring.getInt(8) == BLOCK_SIZE
+                    && ring.getInt(12) == BLOCK_COUNT) {
+                // Continue after the previous run's last block - its samples stay readable
+                block = ring.getInt(16);
+                blockSequence = ring.getInt(20);
+            } else {
+                for (int i = 0; i < BLOCK_COUNT; i++) {
+                    ring.putInt(blockOffset(i), 0);
+                }
+                ring.putInt(0, RING_MAGIC).putInt(4, VERSION).putInt(8, BLOCK_SIZE).putInt(12, BLOCK_COUNT);
+                block = -1;
+                blockSequence = 0;
+            }
+            position = blockEnd = 0; // Forces a new block on the first sample
+            captureExecutor = Executors.newSingleThreadExecutor();
+            Log.d(TAG, "Flight recorder open, " + (size / 1024) + " KiB ring, resuming after block #" + blockSequence);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error opening flight recorder", e);
+            ring = null;
+            return false;
+        }
+    }
+    
+    public void record(int sensor, long timestampNanos, float x, float y, float z) {
+        MappedByteBuffer buffer = ring;
+        if (buffer == null) {
+            return;
+        }
+        if (position + MAX_SAMPLE_SIZE > blockEnd) {
+            startBlock(buffer, timestampNanos);
+        }
+        int[] last = previous[sensor];
+        int qx = Math.round(x * SCALE);
+        int qy = Math.round(y * SCALE);
+        int qz = Math.round(z * SCALE);
+        int start = position;
+        buffer.put(position++, (byte) sensor);
+        // Microseconds are plenty at these rates and keep the delta in one or two bytes
+        writeVarint(buffer, zigzag((int) ((timestampNanos - lastTimestamp) / 1000)));
+        writeVarint(buffer, zigzag(qx - last[0]));
+        writeVarint(buffer, zigzag(qy - last[1]));
+        writeVarint(buffer, zigzag(qz - last[2]));
+        last[0] = qx;
+        last[1] = qy;
+        last[2] = qz;
+        lastTimestamp += (timestampNanos - lastTimestamp) / 1000 * 1000; // Same rounding as the decoder
+        count++;
+        int base = blockOffset(block);
+        buffer.putShort(base + 12, (short) count);
+        buffer.putShort(base + 14, (short) (position - base));
+        samples++;
+        bytes += position - start;
+        
+        if (captureUntil != 0 && timestampNanos >= captureUntil) {
+            finishCapture();
+        }
+    }
+    
+    private void startBlock(MappedByteBuffer buffer, long timestampNanos) {
+        block = (block + 1) % BLOCK_COUNT;
+        blockSequence++;
+        int base = blockOffset(block);
+        buffer.putInt(base, blockSequence);
+        buffer.putLong(base + 4, timestampNanos);
+        buffer.putShort(base + 12, (short) 0);
+        buffer.putShort(base + 14, (short) BLOCK_HEADER_SIZE);
+        buffer.putInt(16, block).putInt(20, blockSequence);
+        position = base + BLOCK_HEADER_SIZE;
+        blockEnd = base + BLOCK_SIZE;
+        count = 0;
+        lastTimestamp = timestampNanos;
+        for (int[] last : previous) {
+            last[0] = 0;
+            last[1] = 0;
+            last[2] = 0;
+        }
+    }
+    
+    private void writeVarint(MappedByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put(position++, (byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+    }
+    
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static int blockOffset(int block) {
+        return FILE_HEADER_SIZE + block * BLOCK_SIZE;
+    }
+    
+    // Incident at triggerNanos (sensor timebase). A trigger while a capture is pending extends it.
+    public void freeze(long triggerNanos, long wallTime) {
+        if (ring == null) {
+            return;
+        }
+        if (captureUntil == 0) {
+            captureFrom = triggerNanos - beforeNanos;
+            captureTrigger = triggerNanos;
+            captureWallTime = wallTime;
+        }
+        captureUntil = triggerNanos + afterNanos;
+    }
+    
+    public boolean isCapturing() {
+        return captureUntil != 0;
+    }
+    
+    // Copies the blocks covering the window now and writes them out in the background
+    public void finishCapture() {
+        if (captureUntil == 0 || ring == null) {
+            return;
+        }
+        try {
+            long[] order = new long[BLOCK_COUNT]; // sequence << 32 | block, to sort blocks by age
+            int used = 0;
+            for (int i = 0; i < BLOCK_COUNT; i++) {
+                int sequence = ring.getInt(blockOffset(i));
+                if (sequence != 0) {
+                    order[used++] = ((long) sequence << 32) | i;
+                }
+            }
+            Arrays.sort(order, 0, used);
+            // First block is the newest one starting at or before the window, last the newest before its end
+            int first = 0;
+            int last = -1;
+            for (int i = 0; i < used; i++) {
+                long base = ring.getLong(blockOffset((int) order[i]) + 4);
+                if (base <= captureFrom) {
+                    first = i;
+                }
+                if (base <= captureUntil) {
+                    last = i;
+                }
+            }
+            int blocks = Math.max(0, last - first + 1);
+            ByteBuffer capture = ByteBuffer.allocate(CAPTURE_HEADER_SIZE + blocks * BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            capture.putInt(CAPTURE_MAGIC).putInt(VERSION).putInt(BLOCK_SIZE).putLong(captureTrigger)
+                .putLong(captureWallTime).putLong(captureFrom).putLong(captureUntil).putInt(blocks);
+            ByteBuffer source = ring.duplicate();
+            for (int i = first; i <= last; i++) {
+                int offset = blockOffset((int) order[i]);
+                source.limit(offset + BLOCK_SIZE).position(offset);
+                capture.put(source);
+            }
+            final byte[] data = capture.array();
+            final File file = new File(directory, CAPTURE_PREFIX + captureWallTime + ".bin");
+            captureExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writeCapture(file, data);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error freezing capture", e);
+        }
+        captureFrom = 0;
+        captureUntil = 0;
+        captureTrigger = 0;
+    }
+    
+    private void writeCapture(File file, byte[] data) {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+            out.getFD().sync();
+            captures++;
+            lastCapture = file.getName() + " (" + (data.length / 1024) + " KiB)";
+            Log.w(TAG, "🛩️ Flight capture written: " + lastCapture);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing flight capture", e);
+        }
+        File[] existing = directory.listFiles();
+        if (existing == null) {
+            return;
+        }
+        Arrays.sort(existing); // Names end in the wall time, so this is oldest first
+        int kept = 0;
+        for (File candidate : existing) {
+            if (candidate.getName().startsWith(CAPTURE_PREFIX)) {
+                kept++;
+            }
+        }
+        for (File candidate : existing) {
+            if (kept <= MAX_CAPTURES) {
+                break;
+            }
+            if (candidate.getName().startsWith(CAPTURE_PREFIX) && candidate.delete()) {
+                kept--;
+            }
+        }
+    }
+    
+    // Decodes one block at offset (ring or capture layout) and returns its sample count
+    public static int decodeBlock(ByteBuffer buffer, int offset, Visitor visitor) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.getInt(offset) == 0) {
+            return 0;
+        }
+        long timestamp = in.getLong(offset + 4);
+        int count = in.getShort(offset + 12) & 0xffff;
+        int end = offset + (in.getShort(offset + 14) & 0xffff);
+        int[][] last = new int[2][3];
+        in.position(offset + BLOCK_HEADER_SIZE);
+        int decoded = 0;
+        while (decoded < count && in.position() < end) {
+            int sensor = in.get();
+            timestamp += unzigzag(readVarint(in)) * 1000L;
+            int[] values = last[sensor];
+            values[0] += unzigzag(readVarint(in));
+            values[1] += unzigzag(readVarint(in));
+            values[2] += unzigzag(readVarint(in));
+            visitor.onSample(sensor, timestamp, values[0] / SCALE, values[1] / SCALE, values[2] / SCALE);
+            decoded++;
+        }
+        return decoded;
+    }
+    
+    // Streams every sample of a capture file's contents, oldest block first; returns the count
+    public static int decodeCapture(ByteBuffer capture, Visitor visitor) {
+        ByteBuffer in = capture.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.getInt(0) != CAPTURE_MAGIC || in.getInt(8) != BLOCK_SIZE) {
+            throw new IllegalArgumentException("Not a flight capture");
+        }
+        int blocks = in.getInt(CAPTURE_HEADER_SIZE - 4);
+        int total = 0;
+        for (int i = 0; i < blocks; i++) {
+            total += decodeBlock(in, CAPTURE_HEADER_SIZE + i * BLOCK_SIZE, visitor);
+        }
+        return total;
+    }
+    
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    
+    public void close() {
+        finishCapture(); // An incident still in its after-window keeps what it has
+        if (captureExecutor != null) {
+            captureExecutor.shutdown();
+        }
+        if (ring != null) {
+            ring.force();
+            ring = null;
+        }
+    }
+    
+    int getCaptureCount() {
+        return captures;
+    }
+    
+    public String summary() {
+        return "Flight recorder: " + samples + " samples, " + (samples > 0 ? String.format("%.1f", (double) bytes / samples) : "0") +
+            " bytes/sample, block #" + blockSequence + ", " + captures + " captures, last " + lastCapture +
+            (captureUntil != 0 ? ", capturing" : "");
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.mybike;
+
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only record of incident events, so a START_STICKY restart resumes the incident instead
+// of resetting it. Each record is written straight away - enough to survive process death - and
+// fsync'd in batches off the caller's thread for power loss. Records carry a CRC, a torn tail is
+// cut off on open. Every SNAPSHOT_EVERY records the state is written to a snapshot file and the
+// journal truncated, so recovery reads one snapshot and about SNAPSHOT_EVERY records.
+public class IncidentJournal {
+    private static final String TAG = "IncidentJournal";
+    
+    public static final int TRIGGER = 1;        // value: motion magnitude float bits
+    public static final int ALERT = 2;          // value: AlertDispatcher channel mask
+    public static final int CALL = 3;
+    public static final int COOLDOWN_START = 4;
+    public static final int COOLDOWN_END = 5;
+    public static final int RESET = 6;          // Unlock or timer reset ended the incident
+    
+    public static final long SYNC_DELAY_MS = 250; // Records written within this window share one fsync
+    private static final int SNAPSHOT_EVERY = 64;
+    private static final int RECORD_SIZE = 4 + 8 + 1 + 8 + 8;  // crc, sequence, type, time, value
+    private static final int SNAPSHOT_SIZE = 4 + 8 + State.SIZE; // crc, sequence, state
+    private static final String JOURNAL_NAME = "incident.journal";
+    private static final String SNAPSHOT_NAME = "incident.snapshot";
+    
+    public static class State {
+        static final int SIZE = 1 + 8 + 4 + 4 + 4 + 4 + 8 + 1 + 8 + 1;
+        
+        public boolean incidentActive;
+        public long incidentStart;
+        public int triggers;
+        public int alerts;
+        public int alertChannels;
+        public int calls;
+        public long lastCallTime;
+        public boolean cooldownActive;
+        public long cooldownStart;
+        public boolean callReady = true;
+        
+        void apply(int type, long time, long value) {
+            switch (type) {
+                case TRIGGER:
+                    if (!incidentActive) {
+                        incidentActive = true;
+                        incidentStart = time;
+                        triggers = 0;
+                        alerts = 0;
+                        alertChannels = 0;
+                        calls = 0;
+                    }
+                    triggers++;
+                    break;
+                case ALERT:
+                    alerts++;
+                    alertChannels |= (int) value;
+                    break;
+                case CALL:
+                    calls++;
+                    lastCallTime = time;
+                    callReady = false;
+                    break;
+                case COOLDOWN_START:
+                    cooldownActive = true;
+                    cooldownStart = time;
+                    break;
+                case COOLDOWN_END:
+                    cooldownActive = false;
+                    cooldownStart = 0;
+                    callReady = true;
+                    incidentActive = false;
+                    break;
+                case RESET:
+                    cooldownActive = false;
+                    cooldownStart = 0;
+                    incidentActive = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        void write(ByteBuffer out) {
+            out.put((byte) (incidentActive ? 1 : 0)).putLong(incidentStart).putInt(triggers).putInt(alerts)
+                .putInt(alertChannels).putInt(calls).putLong(lastCallTime)
+                .put((byte) (cooldownActive ? 1 : 0)).putLong(cooldownStart).put((byte) (callReady ? 1 : 0));
+        }
+        
+        void read(ByteBuffer in) {
+            incidentActive = in.get() != 0;
+            incidentStart = in.getLong();
+            triggers = in.getInt();
+            alerts = in.getInt();
+            alertChannels = in.getInt();
+            calls = in.getInt();
+            lastCallTime = in.getLong();
+            cooldownActive = in.get() != 0;
+            cooldownStart = in.getLong();
+            callReady = in.get() != 0;
+        }
+        
+        State copy() {
+            State copy = new State();
+            ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+            write(buffer);
+            buffer.flip();
+            copy.read(buffer);
+            return copy;
+        }
+        
+        @Override
+        public String toString() {
+            return "incident=" + incidentActive + " triggers=" + triggers + " alerts=" + alerts + " calls=" + calls
+                + " cooldown=" + cooldownActive + "@" + cooldownStart + " ready=" + callReady;
+        }
+    }
+    
+    private final File journalFile;
+    private final File snapshotFile;
+    private final File snapshotTemp;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final State state = new State();
+    private ScheduledExecutorService syncExecutor;
+    private FileChannel channel;
+    private long nextSequence = 1;
+    private int recordsSinceSnapshot = 0;
+    private boolean syncScheduled = false;
+    private boolean snapshotScheduled = false;
+    
+    // Stats
+    private long recoveredRecords = 0;
+    private long tornBytes = 0;
+    private long recoveryMs = 0;
+    private long syncCount = 0;
+    private long snapshotCount = 0;
+    
+    private final Runnable syncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sync();
+        }
+    };
+    
+    private final Runnable snapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            compact();
+        }
+    };
+    
+    public IncidentJournal(File directory) {
+        directory.mkdirs();
+        journalFile = new File(directory, JOURNAL_NAME);
+        snapshotFile = new File(directory, SNAPSHOT_NAME);
+        snapshotTemp = new File(directory, SNAPSHOT_NAME + ".tmp");
+    }
+    
+    // Replays snapshot and journal; returns a copy of the recovered state
+    public synchronized State open() {
+        long start = System.nanoTime();
+        long snapshotSequence = readSnapshot();
+        nextSequence = snapshotSequence + 1;
+        try {
+            channel = new RandomAccessFile(journalFile, "rw").getChannel();
+            long size = channel.size();
+            long validEnd = 0;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            channel.position(0);
+            while (validEnd + RECORD_SIZE <= size) {
+                record.clear();
+                while (record.hasRemaining() && channel.read(record) > 0) {
+                    // Fill the whole record
+                }
+                record.flip();
+                int storedCrc = record.getInt();
+                if (checksum(record, 4, RECORD_SIZE - 4) != storedCrc) {
+                    break;
+                }
+                long sequence = record.getLong();
+                int type = record.get();
+                long time = record.getLong();
+                long value = record.getLong();
+                if (sequence > snapshotSequence) {
+                    state.apply(type, time, value);
+                    recoveredRecords++;
+                    recordsSinceSnapshot++;
+                    nextSequence = sequence + 1;
+                }
+                validEnd += RECORD_SIZE;
+            }
+            if (validEnd < size) {
+                // Partial or corrupt tail from a crash mid-write - everything after it is unreachable
+                tornBytes = size - validEnd;
+                channel.truncate(validEnd);
+                Log.w(TAG, "Cut " + tornBytes + " torn bytes from the journal tail");
+            }
+            channel.position(validEnd);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening incident journal", e);
+        }
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IncidentJournal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (recordsSinceSnapshot >= SNAPSHOT_EVERY) {
+            scheduleSnapshot();
+        }
+        recoveryMs = (System.nanoTime() - start) / 1000000;
+        Log.d(TAG, "Recovered in " + recoveryMs + "ms: " + recoveredRecords + " records after snapshot #" +
+            snapshotSequence + " -> " + state);
+        return state.copy();
+    }
+    
+    public synchronized void append(int type, long time, long value) {
+        state.apply(type, time, value);
+        if (channel == null) {
+            return;
+        }
+        try {
+            recordBuffer.clear();
+            recordBuffer.putInt(0).putLong(nextSequence).put((byte) type).putLong(time).putLong(value);
+            recordBuffer.putInt(0, checksum(recordBuffer, 4, RECORD_SIZE - 4));
+            recordBuffer.flip();
+            while (recordBuffer.hasRemaining()) {
+                channel.write(recordBuffer);
+            }
+            nextSequence++;
+            recordsSinceSnapshot++;
+            if (recordsSinceSnapshot >= SNAPSHOT_EVERY) {
+                scheduleSnapshot();
+            } else if (!syncScheduled && syncExecutor != null) {
+                syncScheduled = true;
+                syncExecutor.schedule(syncRunnable, SYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error appending to incident journal", e);
+        }
+    }
+    
+    public synchronized State getState() {
+        return state.copy();
+    }
+    
+    private void scheduleSnapshot() {
+        if (!snapshotScheduled && syncExecutor != null) {
+            snapshotScheduled = true;
+            syncExecutor.execute(snapshotRunnable);
+        }
+    }
+    
+    // force() runs outside the lock - appends carry on while the disk catches up
+    private void sync() {
+        FileChannel current;
+        synchronized (this) {
+            syncScheduled = false;
+            current = channel;
+        }
+        try {
+            if (current != null) {
+                current.force(false);
+                synchronized (this) {
+                    syncCount++;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error syncing incident journal", e);
+        }
+    }
+    
+    // The snapshot is written and fsync'd outside the lock, so appends never wait on the disk.
+    // Under the lock the journal is only cut if nothing was appended meanwhile; otherwise it is
+    // left for the next compaction - replay skips whatever the snapshot already covers.
+    void compact() {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_SIZE);
+        long covered;
+        long coveredEnd;
+        synchronized (this) {
+            if (channel == null) {
+                snapshotScheduled = false;
+                return;
+            }
+            covered = nextSequence - 1;
+            try {
+                coveredEnd = channel.position();
+            } catch (IOException e) {
+                Log.e(TAG, "Error compacting incident journal", e);
+                snapshotScheduled = false;
+                return;
+            }
+            buffer.putInt(0).putLong(covered);
+            state.write(buffer);
+            buffer.putInt(0, checksum(buffer, 4, SNAPSHOT_SIZE - 4));
+            buffer.flip();
+        }
+        FileChannel truncated = null;
+        try {
+            try (FileOutputStream out = new FileOutputStream(snapshotTemp)) {
+                out.getChannel().write(buffer);
+                out.getFD().sync();
+            }
+            if (!snapshotTemp.renameTo(snapshotFile)) {
+                throw new IOException("Could not replace " + snapshotFile);
+            }
+            synchronized (this) {
+                snapshotCount++;
+                recordsSinceSnapshot = (int) (nextSequence - 1 - covered);
+                // Snapshot is durable - the records it covers can go. A crash before this only
+                // leaves records the snapshot's sequence number already skips.
+                if (channel != null && channel.position() == coveredEnd) {
+                    channel.truncate(0);
+                    channel.position(0);
+                    truncated = channel;
+                }
+            }
+            if (truncated != null) {
+                truncated.force(false);
+            }
+            Log.d(TAG, "Journal compacted into snapshot #" + covered + (truncated != null ? "" : ", tail kept"));
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting incident journal", e);
+        } finally {
+            synchronized (this) {
+                snapshotScheduled = false;
+            }
+        }
+    }
+    
+    // Returns the sequence number the snapshot covers, 0 without a valid one
+    private long readSnapshot() {
+        if (!snapshotFile.exists()) {
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r")) {
+            if (file.length() != SNAPSHOT_SIZE) {
+                Log.w(TAG, "Ignoring snapshot of unexpected size " + file.length());
+                return 0;
+            }
+            byte[] bytes = new byte[SNAPSHOT_SIZE];
+            file.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int storedCrc = buffer.getInt();
+            if (checksum(buffer, 4, SNAPSHOT_SIZE - 4) != storedCrc) {
+                Log.w(TAG, "Ignoring snapshot with bad checksum");
+                return 0;
+            }
+            long sequence = buffer.getLong();
+            state.read(buffer);
+            return sequence;
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading incident snapshot", e);
+            return 0;
+        }
+    }
+    
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + offset, length);
+        return (int) crc.getValue();
+    }
+    
+    public synchronized void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+            syncExecutor = null;
+        }
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing incident journal", e);
+        }
+    }
+    
+    public synchronized String summary() {
+        return "Incident journal: " + state + ", recovered " + recoveredRecords + " records in " + recoveryMs +
+            "ms (" + tornBytes + " torn bytes), " + recordsSinceSnapshot + " since snapshot, " + syncCount +
+            " syncs, " + snapshotCount + " snapshots";
+    }
+}
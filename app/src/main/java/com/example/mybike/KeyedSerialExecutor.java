@@ -0,0 +1,93 @@
+package com.example.mybike;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Runs tasks on a small shared pool while keeping tasks with the same key in submission order.
+// Each key has its own queue that is drained by at most one pool thread at a time; the total
+// number of queued tasks is capped and execute() refuses work beyond it.
+public class KeyedSerialExecutor {
+    private final ThreadPoolExecutor pool;
+    private final int maxPending;
+    private final HashMap<String, ArrayDeque<Runnable>> queues = new HashMap<>();
+    private int pending = 0;
+    private long rejectedCount = 0;
+    
+    public KeyedSerialExecutor(final String name, int threads, int maxPending) {
+        this.maxPending = maxPending;
+        pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private int index = 0;
+                    
+                    @Override
+                    public synchronized Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, name + "-" + (++index));
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+    }
+    
+    public boolean execute(final String key, Runnable task) {
+        synchronized (this) {
+            if (pending >= maxPending) {
+                rejectedCount++;
+                return false;
+            }
+            pending++;
+            ArrayDeque<Runnable> queue = queues.get(key);
+            if (queue != null) {
+                // A pool thread is already draining this key and will pick the task up
+                queue.add(task);
+                return true;
+            }
+            queue = new ArrayDeque<>();
+            queue.add(task);
+            queues.put(key, queue);
+        }
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                drain(key);
+            }
+        });
+        return true;
+    }
+    
+    private void drain(String key) {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                ArrayDeque<Runnable> queue = queues.get(key);
+                task = queue.poll();
+                if (task == null) {
+                    queues.remove(key);
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // One failing task must not stall the rest of the key's queue
+                BikeLog.e("KeyedSerialExecutor", "Task for " + key + " failed", e);
+            } finally {
+                synchronized (this) {
+                    pending--;
+                }
+            }
+        }
+    }
+    
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+    
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
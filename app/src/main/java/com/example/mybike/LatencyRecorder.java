@@ -0,0 +1,59 @@
+package com.example.mybike;
+
+import java.util.Arrays;
+
+// Keeps the most recent latency samples (in ms) in a fixed ring and reports percentiles over
+// them. Recording is a synchronized array store; sorting only happens when a summary is asked for.
+public class LatencyRecorder {
+    private final String name;
+    private final long[] samples;
+    private long count = 0;
+    private long max = 0;
+    
+    public LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.samples = new long[capacity];
+    }
+    
+    public synchronized void record(long millis) {
+        samples[(int) (count % samples.length)] = millis;
+        count++;
+        if (millis > max) {
+            max = millis;
+        }
+    }
+    
+    public synchronized long getCount() {
+        return count;
+    }
+    
+    // Max over the whole lifetime, not just the retained window
+    public synchronized long getMax() {
+        return max;
+    }
+    
+    public synchronized long percentile(double p) {
+        int size = (int) Math.min(count, samples.length);
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+    
+    public synchronized String summary() {
+        if (count == 0) {
+            return name + ": no samples";
+        }
+        return name + ": n=" + count + " p50=" + percentile(50) + "ms p90=" + percentile(90) +
+                "ms p99=" + percentile(99) + "ms max=" + max + "ms";
+    }
+    
+    public synchronized void reset() {
+        Arrays.fill(samples, 0);
+        count = 0;
+        max = 0;
+    }
+}
@@ -3,23 +3,20 @@ package com.example.mybike;
 import android.Manifest;
 import android.app.Activity;
 import android.app.KeyguardManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.PowerManager;
 import android.provider.Settings;
+import android.view.Choreographer;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -37,21 +34,29 @@ public class MainActivity extends Activity {
     private TextView lastCallTimeText;
     private TextView nextCallTimerText;
     
-    private BroadcastReceiver motionReceiver;
-    private BroadcastReceiver stateReceiver;
-    private AppStateManager stateManager;
+    private MonitorClient monitorClient;
     
-    private Handler timerHandler;
-    private Runnable timerRunnable;
     private static final long CALL_COOLDOWN = 60000;
     
+    // Timer state streamed by the service - the countdown renders from its deadline
+    private boolean isCallDelayActive = false;
+    private boolean isCallReady = false;
+    private long callDeadline = 0;
+    private long lastCallTime = 0;
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    
+    // One frame-aligned redraw per displayed second, only while a countdown is visible and resumed
+    private Choreographer.FrameCallback countdownFrameCallback;
+    private boolean isCountdownScheduled = false;
+    private boolean isActivityResumed = false;
+    
     // Track current motion status for calling logic
     private boolean isCurrentlyMotionDetected = false;
     
     // Screen wake-up components
     private PowerManager powerManager;
     private KeyguardManager keyguardManager;
-    private PowerManager.WakeLock screenWakeLock;
+    private WakeLockManager.Lease screenLease;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -76,17 +81,13 @@ public class MainActivity extends Activity {
                 return;
             }
             
-            // Initialize state manager
-            stateManager = AppStateManager.getInstance(this);
-            
             // Initialize screen wake-up components
             initializeScreenWakeup();
             
             setupReceivers();
             requestPermissions();
             requestBatteryOptimizationExemption();
-            updateStateDisplay();
-            setupTimer();
+            setupCountdown();
             
             // Delay service start to ensure everything is initialized
             motionStatusText.postDelayed(new Runnable() {
@@ -115,33 +116,20 @@ public class MainActivity extends Activity {
     }
     
     private void setupReceivers() {
-        // Motion receiver
-        motionReceiver = new BroadcastReceiver() {
+        // The service streams its state to us - local or in :monitor - and we only render it
+        monitorClient = new MonitorClient(this, new MonitorClient.Listener() {
             @Override
-            public void onReceive(Context context, Intent intent) {
+            public void onStateChanged(MonitorState state, int changedMask) {
                 try {
-                    if (intent != null) {
-                        boolean motionDetected = intent.getBooleanExtra("motion_detected", false);
-                        updateMotionStatus(motionDetected);
+                    if ((changedMask & (1 << MonitorState.MOTION)) != 0) {
+                        updateMotionStatus(state.is(MonitorState.MOTION));
                     }
-                } catch (Exception e) {
-                    android.util.Log.e("MainActivity", "Error in motion receiver", e);
-                }
-            }
-        };
-        
-        // State change receiver
-        stateReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                try {
-                    android.util.Log.d("MainActivity", "State changed, updating display");
                     updateStateDisplay();
                 } catch (Exception e) {
-                    android.util.Log.e("MainActivity", "Error in state receiver", e);
+                    android.util.Log.e("MainActivity", "Error applying monitor state", e);
                 }
             }
-        };
+        });
     }
     
     private void updateMotionStatus(boolean motionDetected) {
@@ -158,6 +146,7 @@ public class MainActivity extends Activity {
             
             // Note: Service now handles all call triggering logic
             // MainActivity just displays the UI status
+            renderCallTimeDisplay();
             
             if (motionStatusText != null) {
                 if (motionDetected) {
@@ -198,9 +187,13 @@ public class MainActivity extends Activity {
                 SMS_PERMISSION_REQUEST);
         }
         
-        // Phone call permission
-        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CALL_PHONE) != PackageManager.PERMISSION_GRANTED) {
-            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CALL_PHONE}, PHONE_PERMISSION_REQUEST);
+        // Phone call permissions - call state and call log tell the escalation whether a call was answered
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CALL_PHONE) != PackageManager.PERMISSION_GRANTED ||
+            ContextCompat.checkSelfPermission(this, Manifest.permission.READ_PHONE_STATE) != PackageManager.PERMISSION_GRANTED ||
+            ContextCompat.checkSelfPermission(this, Manifest.permission.READ_CALL_LOG) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                new String[]{Manifest.permission.CALL_PHONE, Manifest.permission.READ_PHONE_STATE, Manifest.permission.READ_CALL_LOG},
+                PHONE_PERMISSION_REQUEST);
         }
         
         // System alert window permission for waking screen
@@ -267,11 +260,12 @@ public class MainActivity extends Activity {
     
     private void updateStateDisplay() {
         try {
-            if (stateManager != null) {
+            if (monitorClient != null && monitorClient.isConnected()) {
+                MonitorState state = monitorClient.getState();
                 if (statusText != null) {
-                    String status = stateManager.getStatus();
-                    statusText.setText(status);
-                    if ("locked".equals(status)) {
+                    boolean locked = state.is(MonitorState.LOCKED);
+                    statusText.setText(locked ? "locked" : "unlocked");
+                    if (locked) {
                         statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
                     } else {
                         statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
@@ -279,13 +273,15 @@ public class MainActivity extends Activity {
                 }
                 
                 if (adminNumberText != null) {
-                    String currentAdminNumber = stateManager.getAdminNumber();
-                    adminNumberText.setText(currentAdminNumber);
-                    android.util.Log.w("MainActivity", "🔄 Admin number display updated to: " + currentAdminNumber);
+                    String currentAdminNumber = monitorClient.getAdminNumber();
+                    if (!currentAdminNumber.contentEquals(adminNumberText.getText())) {
+                        adminNumberText.setText(currentAdminNumber);
+                        android.util.Log.w("MainActivity", "🔄 Admin number display updated to: " + currentAdminNumber);
+                    }
                 }
                 
                 if (callText != null) {
-                    boolean call = stateManager.getCall();
+                    boolean call = state.is(MonitorState.CALL);
                     callText.setText(String.valueOf(call));
                     callText.setTextColor(call ? 
                         getResources().getColor(android.R.color.holo_green_dark) :
@@ -293,102 +289,114 @@ public class MainActivity extends Activity {
                 }
                 
                 if (alarmText != null) {
-                    boolean alarm = stateManager.getAlarm();
+                    boolean alarm = state.is(MonitorState.ALARM);
                     alarmText.setText(String.valueOf(alarm));
                     alarmText.setTextColor(alarm ? 
                         getResources().getColor(android.R.color.holo_green_dark) :
                         getResources().getColor(android.R.color.holo_red_dark));
                 }
                 
-                updateCallTimeDisplay();
+                isCallDelayActive = state.is(MonitorState.CALL_DELAY_ACTIVE);
+                isCallReady = state.is(MonitorState.CALL_READY);
+                callDeadline = state.get(MonitorState.CALL_DEADLINE);
+                lastCallTime = state.get(MonitorState.LAST_CALL_TIME);
+                renderCallTimeDisplay();
                 
-                android.util.Log.d("MainActivity", "State display updated: " + stateManager.getAllStatesString());
+                android.util.Log.d("MainActivity", "State display updated: " + state);
             }
         } catch (Exception e) {
             android.util.Log.e("MainActivity", "Error updating state display", e);
         }
     }
     
-    private void updateCallTimeDisplay() {
+    private void renderCallTimeDisplay() {
         try {
-            if (stateManager != null && lastCallTimeText != null && nextCallTimerText != null) {
-                long lastCallTime = stateManager.getLastCallTime();
-                
+            if (lastCallTimeText != null && nextCallTimerText != null) {
                 // Display last call time
                 if (lastCallTime == 0) {
                     lastCallTimeText.setText("Never");
                 } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-                    lastCallTimeText.setText(sdf.format(new Date(lastCallTime)));
+                    lastCallTimeText.setText(timeFormat.format(new Date(lastCallTime)));
                 }
                 
-                // Check timer states
-                boolean isDelayActive = stateManager.isCallDelayActive();
-                boolean isCallReady = stateManager.isCallReady();
-                long motionStartTime = stateManager.getMotionStartTime();
-                
                 if (isCallReady) {
                     // Show "Ready" when timer reached 30s but call hasn't been made yet
                     if (isCurrentlyMotionDetected) {
                         nextCallTimerText.setText("Ready + Motion = CALLING!");
                         nextCallTimerText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                        android.util.Log.d("MainActivity", "Showing Ready + Motion = CALLING!");
                     } else {
                         nextCallTimerText.setText("Ready (motion will call)");
                         nextCallTimerText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-                        android.util.Log.d("MainActivity", "Showing Ready - waiting for motion");
                     }
-                } else if (isDelayActive && motionStartTime > 0) {
+                } else if (isCallDelayActive && callDeadline > 0) {
                     // Show countdown for motion delay (30 seconds)
-                    long currentTime = System.currentTimeMillis();
-                    long elapsed = currentTime - motionStartTime;
-                    long remainingTime = 30000 - elapsed; // 30 seconds in milliseconds
-                    
-                    // Debug logging
-                    android.util.Log.d("MainActivity", "Timer calculation: elapsed=" + elapsed + "ms, remaining=" + remainingTime + "ms, motionStartTime=" + motionStartTime);
+                    long remainingTime = getCountdownRemaining();
                     
                     if (remainingTime > 1000) { // Show countdown if more than 1 second left
                         long seconds = Math.max(1, remainingTime / 1000); // Ensure minimum 1 second display
                         nextCallTimerText.setText("Calling in " + seconds + "s");
                         nextCallTimerText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                        android.util.Log.d("MainActivity", "Showing countdown: " + seconds + "s");
                     } else if (remainingTime > 0) {
                         // Less than 1 second remaining
                         nextCallTimerText.setText("Calling in 1s");
                         nextCallTimerText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                        android.util.Log.d("MainActivity", "Showing final countdown: 1s");
                     } else {
-                        // Timer expired - Service sets to Ready state
+                        // Timer expired - Service sets to Ready state and pushes it
                         nextCallTimerText.setText("Ready (waiting for motion)");
                         nextCallTimerText.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
-                        android.util.Log.w("MainActivity", "⏰ TIMER EXPIRED - Service should set to Ready state");
                     }
                 } else {
                     // No motion detected or delay not active
                     nextCallTimerText.setText("Never");
                     nextCallTimerText.setTextColor(getResources().getColor(android.R.color.darker_gray));
-                    android.util.Log.d("MainActivity", "No delay active, showing Never");
                 }
+                
+                scheduleCountdownFrame();
             }
         } catch (Exception e) {
             android.util.Log.e("MainActivity", "Error updating call time display", e);
         }
     }
     
-    private void setupTimer() {
-        try {
-            timerHandler = new Handler();
-            timerRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    updateCallTimeDisplay();
-                    timerHandler.postDelayed(this, 500); // Update every 500ms for smoother countdown
-                }
-            };
-            timerHandler.post(timerRunnable);
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error setting up timer", e);
+    private long getCountdownRemaining() {
+        return callDeadline - System.currentTimeMillis();
+    }
+    
+    private void setupCountdown() {
+        countdownFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                isCountdownScheduled = false;
+                renderCallTimeDisplay();
+            }
+        };
+    }
+    
+    private void scheduleCountdownFrame() {
+        if (!isActivityResumed || isCountdownScheduled || countdownFrameCallback == null) {
+            return;
+        }
+        if (isCallReady || !isCallDelayActive || callDeadline <= 0) {
+            return; // Nothing is counting down - stay idle until the service pushes new state
+        }
+        long remainingTime = getCountdownRemaining();
+        if (remainingTime <= 0) {
+            return;
+        }
+        // Wake on the first frame after the displayed second changes
+        long delay = remainingTime % 1000;
+        if (delay == 0) {
+            delay = 1000;
+        }
+        Choreographer.getInstance().postFrameCallbackDelayed(countdownFrameCallback, delay + 1);
+        isCountdownScheduled = true;
+    }
+    
+    private void cancelCountdownFrame() {
+        if (isCountdownScheduled && countdownFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(countdownFrameCallback);
         }
+        isCountdownScheduled = false;
     }
     
     private void startMotionDetectionService() {
@@ -409,21 +417,15 @@ public class MainActivity extends Activity {
     @Override
     protected void onResume() {
         super.onResume();
+        isActivityResumed = true;
         try {
-            LocalBroadcastManager lbm = LocalBroadcastManager.getInstance(this);
-            
-            if (motionReceiver != null) {
-                lbm.registerReceiver(motionReceiver, new IntentFilter("MOTION_DETECTED"));
-                android.util.Log.d("MainActivity", "Motion receiver registered");
-            }
-            
-            if (stateReceiver != null) {
-                lbm.registerReceiver(stateReceiver, new IntentFilter("STATE_CHANGED"));
-                android.util.Log.d("MainActivity", "State receiver registered");
+            // Full state arrives on connect, deltas after that
+            if (monitorClient != null) {
+                monitorClient.bind();
             }
             
-            // Refresh state display
-            updateStateDisplay();
+            // Countdown may have moved on while paused
+            renderCallTimeDisplay();
             
         } catch (Exception e) {
             android.util.Log.e("MainActivity", "Error registering receivers", e);
@@ -433,17 +435,11 @@ public class MainActivity extends Activity {
     @Override
     protected void onPause() {
         super.onPause();
+        isActivityResumed = false;
+        cancelCountdownFrame(); // No redraws at all while backgrounded
         try {
-            LocalBroadcastManager lbm = LocalBroadcastManager.getInstance(this);
-            
-            if (motionReceiver != null) {
-                lbm.unregisterReceiver(motionReceiver);
-                android.util.Log.d("MainActivity", "Motion receiver unregistered");
-            }
-            
-            if (stateReceiver != null) {
-                lbm.unregisterReceiver(stateReceiver);
-                android.util.Log.d("MainActivity", "State receiver unregistered");
+            if (monitorClient != null) {
+                monitorClient.unbind();
             }
             
         } catch (Exception e) {
@@ -455,10 +451,8 @@ public class MainActivity extends Activity {
     protected void onDestroy() {
         super.onDestroy();
         try {
-            // Clean up timer
-            if (timerHandler != null && timerRunnable != null) {
-                timerHandler.removeCallbacks(timerRunnable);
-            }
+            // Clean up countdown
+            cancelCountdownFrame();
             
             // Release screen wake lock
             releaseScreenWakeLock();
@@ -475,13 +469,10 @@ public class MainActivity extends Activity {
             
             if (powerManager != null) {
                 // Create a screen wake lock to turn on the screen
-                if (screenWakeLock == null || !screenWakeLock.isHeld()) {
-                    screenWakeLock = powerManager.newWakeLock(
-                        PowerManager.SCREEN_BRIGHT_WAKE_LOCK | 
-                        PowerManager.ACQUIRE_CAUSES_WAKEUP,
-                        "MyBike::ScreenWakeLock"
-                    );
-                    screenWakeLock.acquire(15000); // Keep screen on for 15 seconds during call
+                if (screenLease == null || !screenLease.isLive()) {
+                    screenLease = WakeLockManager.getInstance(this).acquire(WakeLockManager.REASON_ACTIVITY_SCREEN,
+                        PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP,
+                        15000); // Keep screen on for 15 seconds during call
                     android.util.Log.d("MainActivity", "Screen wake lock acquired");
                 }
                 
@@ -499,77 +490,11 @@ public class MainActivity extends Activity {
         }
     }
     
-    private void triggerPhoneCall() {
-        try {
-            if (stateManager != null) {
-                // Clear timer states and set ready
-                stateManager.setCallDelayActive(false);
-                stateManager.setCallReady(true);
-                stateManager.setMotionStartTime(0);
-                
-                String adminNumber = stateManager.getAdminNumber();
-                android.util.Log.w("MainActivity", "📞 TRIGGERING CALL to: " + adminNumber);
-                
-                if (adminNumber != null && !adminNumber.isEmpty()) {
-                    // Step 1: Wake up the screen first
-                    wakeUpScreen();
-                    
-                    // Step 2: Wait a moment for screen to wake up, then make the call
-                    Handler callHandler = new Handler();
-                    callHandler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                android.util.Log.w("MainActivity", "📞 Making call after screen wake-up");
-                                
-                                Intent callIntent = new Intent(Intent.ACTION_CALL);
-                                callIntent.setData(android.net.Uri.parse("tel:" + adminNumber));
-                                callIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
-                                                  Intent.FLAG_ACTIVITY_CLEAR_TOP);
-                                
-                                startActivity(callIntent);
-                                
-                                // Update last call time
-                                stateManager.setLastCallTime(System.currentTimeMillis());
-                                
-                                android.util.Log.w("MainActivity", "✅ CALL INITIATED to: " + adminNumber);
-                            } catch (Exception e) {
-                                android.util.Log.e("MainActivity", "❌ Error making call after screen wake-up", e);
-                            }
-                        }
-                    }, 2000); // 2-second delay to ensure screen is awake
-                    
-                    // Set to Never after a brief delay (to show "Ready" briefly)
-                    Handler callCompleteHandler = new Handler();
-                    callCompleteHandler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (stateManager != null) {
-                                stateManager.setCallReady(false);
-                                updateCallTimeDisplay(); // This will show "Never"
-                                android.util.Log.w("MainActivity", "Timer set to Never after call");
-                            }
-                        }
-                    }, 4000); // 4 second delay (2s for screen wake + 2s for call completion)
-                    
-                } else {
-                    android.util.Log.e("MainActivity", "❌ Cannot call - invalid admin number: " + adminNumber);
-                    // Set to never if can't call
-                    stateManager.setCallDelayActive(false);
-                    stateManager.setCallReady(false);
-                    stateManager.setMotionStartTime(0);
-                }
-            }
-        } catch (Exception e) {
-            android.util.Log.e("MainActivity", "Error triggering phone call", e);
-        }
-    }
-    
     private void releaseScreenWakeLock() {
         try {
-            if (screenWakeLock != null && screenWakeLock.isHeld()) {
-                screenWakeLock.release();
-                screenWakeLock = null;
+            if (screenLease != null) {
+                screenLease.release();
+                screenLease = null;
                 android.util.Log.d("MainActivity", "Screen wake lock released");
             }
         } catch (Exception e) {
@@ -0,0 +1,135 @@
+package com.example.mybike;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.RemoteException;
+import android.util.Log;
+
+// UI-side mirror of the monitoring service state. Binds to the service - in this process or in
+// :monitor - takes one full state on connect and then applies the deltas it streams. Everything
+// the activity renders comes from here; nothing is read from preferences.
+public class MonitorClient {
+    private static final String TAG = "MonitorClient";
+    
+    public interface Listener {
+        // Main thread - changedMask has a bit per MonitorState field, ALL after (re)connecting
+        void onStateChanged(MonitorState state, int changedMask);
+    }
+    
+    private final Context context;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MonitorState state = new MonitorState(); // Main thread only
+    private IMonitorService monitor;
+    private String adminNumber = "";
+    private boolean bound = false;
+    
+    private final IMonitorListener.Stub deltaListener = new IMonitorListener.Stub() {
+        @Override
+        public void onStateDelta(final long sequence, final int changedMask, final long[] values) {
+            // Binder thread, or the service's bridge thread in a single process
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    applyDelta(sequence, changedMask, values);
+                }
+            });
+        }
+    };
+    
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            try {
+                monitor = IMonitorService.Stub.asInterface(service);
+                // Register before the full read - deltas older than it are dropped by sequence
+                monitor.registerListener(deltaListener);
+                state.set(monitor.getState());
+                adminNumber = monitor.getAdminNumber();
+                Log.d(TAG, "Connected to monitor " + state); // Memory stats are in dumpsys, not measured here
+                listener.onStateChanged(state, MonitorState.ALL);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Error connecting to monitor", e);
+                monitor = null;
+            }
+        }
+        
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // Monitor process died - it restarts (START_STICKY) and we get onServiceConnected again
+            Log.w(TAG, "Monitor disconnected");
+            monitor = null;
+            state.clear(); // The restarted service counts its sequence from zero
+        }
+    };
+    
+    public MonitorClient(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+    
+    // No BIND_AUTO_CREATE - binding must not start monitoring by itself, it connects once the service runs
+    public void bind() {
+        if (bound) {
+            return;
+        }
+        try {
+            bound = context.bindService(new Intent(context, SimpleMotionDetectionService.class), connection, 0);
+        } catch (Exception e) {
+            Log.e(TAG, "Error binding to monitor", e);
+        }
+    }
+    
+    public void unbind() {
+        if (!bound) {
+            return;
+        }
+        try {
+            if (monitor != null) {
+                monitor.unregisterListener(deltaListener);
+            }
+        } catch (RemoteException e) {
+            Log.w(TAG, "Monitor gone while unregistering");
+        }
+        try {
+            context.unbindService(connection);
+        } catch (Exception e) {
+            Log.e(TAG, "Error unbinding from monitor", e);
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        monitor = null;
+        state.clear();
+        bound = false;
+    }
+    
+    private void applyDelta(long sequence, int changedMask, long[] values) {
+        if (monitor == null || !state.apply(sequence, changedMask, values)) {
+            return;
+        }
+        if ((changedMask & (1 << MonitorState.SETTINGS_VERSION)) != 0) {
+            try {
+                adminNumber = monitor.getAdminNumber();
+            } catch (RemoteException e) {
+                Log.w(TAG, "Monitor unreachable, keeping admin number");
+            }
+        }
+        listener.onStateChanged(state, changedMask);
+    }
+    
+    public boolean isConnected() {
+        return monitor != null;
+    }
+    
+    public MonitorState getState() {
+        return state;
+    }
+    
+    public String getAdminNumber() {
+        return adminNumber;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.mybike;
+
+import java.util.Arrays;
+
+// Fixed-layout copy of everything MainActivity renders. The service keeps one, diffs each new
+// state against it and sends only the changed fields as (sequence, mask, packed values); clients
+// apply those to their own copy. Countdowns travel as a deadline, so nothing ticks over binder.
+public class MonitorState {
+    public static final int LOCKED = 0;
+    public static final int CALL = 1;
+    public static final int ALARM = 2;
+    public static final int MOTION = 3;
+    public static final int CALL_DELAY_ACTIVE = 4;
+    public static final int CALL_READY = 5;
+    public static final int CALL_DEADLINE = 6;    // Wall clock ms when the delayed call is due, 0 if none
+    public static final int LAST_CALL_TIME = 7;
+    public static final int SETTINGS_VERSION = 8; // Bumped on SMS commands - admin number is fetched again
+    public static final int FIELD_COUNT = 9;
+    public static final int ALL = (1 << FIELD_COUNT) - 1;
+    
+    private final long[] values = new long[FIELD_COUNT];
+    private long sequence = 0;
+    
+    public long get(int field) {
+        return values[field];
+    }
+    
+    public boolean is(int field) {
+        return values[field] != 0;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public long getRemainingMs(long now) {
+        long deadline = values[CALL_DEADLINE];
+        return deadline > 0 ? deadline - now : 0;
+    }
+    
+    // Bit per field that differs from next
+    public int diff(long[] next) {
+        int mask = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (values[i] != next[i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+    
+    // Takes next as the current state and returns its sequence number
+    public long update(long[] next) {
+        System.arraycopy(next, 0, values, 0, FIELD_COUNT);
+        return ++sequence;
+    }
+    
+    // Values of the fields in mask, in field order
+    public static long[] pack(long[] source, int mask) {
+        long[] packed = new long[Integer.bitCount(mask)];
+        int n = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                packed[n++] = source[i];
+            }
+        }
+        return packed;
+    }
+    
+    // Returns false for a delta already covered by a newer full state
+    public boolean apply(long sequence, int mask, long[] packed) {
+        if (sequence <= this.sequence) {
+            return false;
+        }
+        int n = 0;
+        for (int i = 0; i < FIELD_COUNT && n < packed.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                values[i] = packed[n++];
+            }
+        }
+        this.sequence = sequence;
+        return true;
+    }
+    
+    // All fields followed by the sequence number
+    public long[] toArray() {
+        long[] full = new long[FIELD_COUNT + 1];
+        System.arraycopy(values, 0, full, 0, FIELD_COUNT);
+        full[FIELD_COUNT] = sequence;
+        return full;
+    }
+    
+    public void set(long[] full) {
+        if (full == null || full.length < FIELD_COUNT + 1) {
+            return;
+        }
+        System.arraycopy(full, 0, values, 0, FIELD_COUNT);
+        sequence = full[FIELD_COUNT];
+    }
+    
+    public void clear() {
+        Arrays.fill(values, 0);
+        sequence = 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "#" + sequence + " locked=" + is(LOCKED) + " call=" + is(CALL) + " alarm=" + is(ALARM)
+                + " motion=" + is(MOTION) + " delay=" + is(CALL_DELAY_ACTIVE) + " ready=" + is(CALL_READY)
+                + " deadline=" + get(CALL_DEADLINE) + " lastCall=" + get(LAST_CALL_TIME);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.mybike;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// Folds a stream of motion triggers into few SMS: the first trigger of an incident is alerted
+// immediately, later ones are counted into a digest sent every interval. The interval doubles
+// while the incident continues, and a digest period with no motion ends the incident.
+// Texts are plain ASCII and at most 160 chars so each alert is a single GSM-7 segment.
+public class MotionAlertAggregator {
+    
+    public static final int MAX_SEGMENT_LENGTH = 160;
+    public static final long DEFAULT_FIRST_INTERVAL = 60 * 1000;
+    public static final long DEFAULT_MAX_INTERVAL = 15 * 60 * 1000;
+    
+    private final long firstInterval;
+    private final long maxInterval;
+    private final TimeZone timeZone;
+    
+    private boolean incidentActive = false;
+    private long interval;
+    private long nextDigestTime = 0;
+    
+    // Triggers folded since the last message
+    private int pendingCount = 0;
+    private long pendingFirstTime = 0;
+    private long pendingLastTime = 0;
+    private float pendingPeak = 0;
+    
+    private int incidentTotal = 0;
+    private long alertsSent = 0;
+    private long triggersFolded = 0;
+    
+    public MotionAlertAggregator(long firstInterval, long maxInterval, TimeZone timeZone) {
+        this.firstInterval = firstInterval;
+        this.maxInterval = maxInterval;
+        this.timeZone = timeZone;
+    }
+    
+    // Returns the immediate alert text for the first trigger of an incident, null when folded
+    public synchronized String onTrigger(long now, float magnitude, String status) {
+        incidentTotal++;
+        if (!incidentActive) {
+            incidentActive = true;
+            interval = firstInterval;
+            nextDigestTime = now + interval;
+            alertsSent++;
+            return fit("MOTION ALERT: Your bike has been moved! Status: " + status + ", Time: " + formatTime(now) +
+                    ", force " + formatMagnitude(magnitude) + " rad/s");
+        }
+        if (pendingCount == 0) {
+            pendingFirstTime = now;
+            pendingPeak = 0;
+        }
+        pendingCount++;
+        pendingLastTime = now;
+        pendingPeak = Math.max(pendingPeak, magnitude);
+        triggersFolded++;
+        return null;
+    }
+    
+    // Called at getNextDigestTime(). Returns the digest text, or null when the period was quiet
+    // (which ends the incident - the next trigger alerts immediately again).
+    public synchronized String onDigestDue(long now, String status) {
+        if (!incidentActive || now < nextDigestTime) {
+            return null;
+        }
+        if (pendingCount == 0) {
+            incidentActive = false;
+            incidentTotal = 0;
+            nextDigestTime = 0;
+            return null;
+        }
+        interval = Math.min(interval * 2, maxInterval);
+        nextDigestTime = now + interval;
+        String text = "MyBike: " + pendingCount + " more motion event" + (pendingCount == 1 ? "" : "s") + " " +
+                formatTime(pendingFirstTime) + "-" + formatTime(pendingLastTime) + ", peak " +
+                formatMagnitude(pendingPeak) + " rad/s, " + incidentTotal + " total. Status: " + status +
+                ". Next update in " + (interval / 60000) + " min";
+        pendingCount = 0;
+        alertsSent++;
+        return fit(text);
+    }
+    
+    public synchronized boolean isIncidentActive() {
+        return incidentActive;
+    }
+    
+    public synchronized long getNextDigestTime() {
+        return nextDigestTime;
+    }
+    
+    public synchronized long getAlertsSent() {
+        return alertsSent;
+    }
+    
+    public synchronized long getTriggersFolded() {
+        return triggersFolded;
+    }
+    
+    public synchronized void reset() {
+        incidentActive = false;
+        incidentTotal = 0;
+        pendingCount = 0;
+        nextDigestTime = 0;
+    }
+    
+    // Keeps only GSM-7-safe ASCII and cuts to one segment
+    static String fit(String text) {
+        StringBuilder builder = new StringBuilder(Math.min(text.length(), MAX_SEGMENT_LENGTH));
+        for (int i = 0; i < text.length() && builder.length() < MAX_SEGMENT_LENGTH; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c < 0x7f && c != '[' && c != ']' && c != '{' && c != '}' &&
+                    c != '\\' && c != '^' && c != '~' && c != '|' && c != '`') {
+                builder.append(c); // The excluded ones are GSM-7 escapes and cost two septets
+            }
+        }
+        return builder.toString();
+    }
+    
+    private String formatTime(long millis) {
+        Calendar calendar = Calendar.getInstance(timeZone, Locale.US);
+        calendar.setTimeInMillis(millis);
+        return twoDigits(calendar.get(Calendar.HOUR_OF_DAY)) + ":" + twoDigits(calendar.get(Calendar.MINUTE)) +
+                ":" + twoDigits(calendar.get(Calendar.SECOND));
+    }
+    
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : Integer.toString(value);
+    }
+    
+    private static String formatMagnitude(float magnitude) {
+        int hundredths = Math.round(magnitude * 100);
+        return (hundredths / 100) + "." + twoDigits(hundredths % 100);
+    }
+}
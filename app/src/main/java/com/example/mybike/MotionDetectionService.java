@@ -18,7 +18,6 @@ import android.os.IBinder;
 import android.os.PowerManager;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 public class MotionDetectionService extends Service implements SensorEventListener {
     private static final String TAG = "MotionDetectionService";
@@ -27,7 +26,7 @@ public class MotionDetectionService extends Service implements SensorEventListen
     
     private SensorManager sensorManager;
     private Sensor gyroscope;
-    private PowerManager.WakeLock wakeLock;
+    private WakeLockManager.Lease wakeLease;
     private Handler motionHandler;
     private HandlerThread motionThread;
     
@@ -128,10 +127,9 @@ public class MotionDetectionService extends Service implements SensorEventListen
     
     private void acquireWakeLock() {
         try {
-            PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
-            if (powerManager != null) {
-                wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MyBike:MotionDetection");
-                wakeLock.acquire(10*60*1000L /*10 minutes*/);
+            wakeLease = WakeLockManager.getInstance(this).acquire(WakeLockManager.REASON_LEGACY_MONITORING,
+                PowerManager.PARTIAL_WAKE_LOCK, 10*60*1000L /*10 minutes*/);
+            if (wakeLease != null) {
                 Log.d(TAG, "Wake lock acquired");
             }
         } catch (Exception e) {
@@ -189,10 +187,8 @@ public class MotionDetectionService extends Service implements SensorEventListen
                         }
                     }
                     
-                    // Reduce logging frequency to avoid spam
-                    if (System.currentTimeMillis() % 1000 < 100) {
-                        Log.d(TAG, String.format("Gyro: x=%.2f, y=%.2f, z=%.2f, magnitude=%.2f", x, y, z, magnitude));
-                    }
+                    // Verbose sample log - no formatting unless it reaches logcat, stripped from release builds
+                    BikeLog.v(TAG, "Gyro: x={}, y={}, z={}, magnitude={}", x, y, z, magnitude);
                 }
             }
         } catch (Exception e) {
@@ -210,9 +206,7 @@ public class MotionDetectionService extends Service implements SensorEventListen
             if (motionDetected != detected) {
                 motionDetected = detected;
                 
-                Intent intent = new Intent("MOTION_DETECTED");
-                intent.putExtra("motion_detected", detected);
-                LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
+                EventBus.getInstance().postMotion(detected);
                 
                 updateNotification();
                 
@@ -233,8 +227,9 @@ public class MotionDetectionService extends Service implements SensorEventListen
                 Log.d(TAG, "Sensor listener unregistered");
             }
             
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
+            if (wakeLease != null) {
+                wakeLease.release();
+                wakeLease = null;
                 Log.d(TAG, "Wake lock released");
             }
             
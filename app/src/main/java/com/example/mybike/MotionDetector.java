@@ -0,0 +1,21 @@
+package com.example.mybike;
+
+// Turns raw sensor samples into motion transitions. Takes primitives, so the same detector runs
+// on SensorEvents in the service and on recorded or synthetic traces in unit tests.
+public interface MotionDetector {
+    int SENSOR_GYRO = 0;  // Also the sensor byte in FlightRecorder blocks
+    int SENSOR_ACCEL = 1;
+    
+    // Returns true when the sample flipped isMotionDetected()
+    boolean onSample(int sensor, long timestampNanos, float x, float y, float z);
+    
+    boolean isMotionDetected();
+    
+    // Magnitude behind the latest decision, for logs and alerts
+    float getMagnitude();
+    
+    // Accelerometer samples only count with fusion on - turning it off forgets their state
+    void setSensorFusion(boolean enabled);
+    
+    void reset();
+}
@@ -0,0 +1,55 @@
+package com.example.mybike;
+
+// What a motion onset sets off while locked. Shared by the service and the replay tests, so both
+// decide the same way on the same timeline.
+public final class MotionResponse {
+    public static final long CALL_DELAY = 30000;    // Cooldown started by a call, no new call tree meanwhile
+    public static final long CALL_COOLDOWN = 30000; // Minimum gap between two dials
+    
+    public static final class Onset {
+        public final int channels;            // Handed to AlertDispatcher, 0 when unlocked
+        public final boolean startsCooldown;  // A call slot was taken - the cooldown starts even if nobody is dialed
+        public final boolean dials;           // Calls are on and the last dial is far enough back
+        
+        Onset(int channels, boolean startsCooldown, boolean dials) {
+            this.channels = channels;
+            this.startsCooldown = startsCooldown;
+            this.dials = dials;
+        }
+    }
+    
+    private MotionResponse() {
+    }
+    
+    public static Onset onset(boolean locked, boolean cooldownActive, boolean callInProgress, boolean callEnabled,
+                              long now, long lastCallTime) {
+        int channels = channelsFor(locked, cooldownActive, callInProgress);
+        boolean startsCooldown = (channels & AlertDispatcher.CHANNEL_CALL) != 0;
+        boolean dials = startsCooldown && callEnabled && callAllowed(now, lastCallTime);
+        if (startsCooldown && !dials) {
+            channels &= ~AlertDispatcher.CHANNEL_CALL;
+        }
+        return new Onset(channels, startsCooldown, dials);
+    }
+    
+    // Alert channels for a motion onset, 0 when unlocked. CHANNEL_CALL also starts the cooldown.
+    public static int channelsFor(boolean locked, boolean cooldownActive, boolean callInProgress) {
+        if (!locked) {
+            return 0;
+        }
+        // Every locked trigger goes to SMS (the aggregator decides between now and digest) and the webhook
+        int channels = AlertDispatcher.CHANNEL_SMS | AlertDispatcher.CHANNEL_WEBHOOK | AlertDispatcher.CHANNEL_SIREN;
+        if (!callInProgress && !cooldownActive) {
+            channels |= AlertDispatcher.CHANNEL_CALL;
+        }
+        return channels;
+    }
+    
+    public static boolean callAllowed(long now, long lastCallTime) {
+        return now - lastCallTime >= CALL_COOLDOWN;
+    }
+    
+    public static boolean cooldownExpired(long now, long cooldownStart) {
+        return now - cooldownStart >= CALL_DELAY;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.mybike;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+
+// Coalesces updates of the ongoing service notification. The builder and content intent are
+// created once, identical text is dropped and notify() is rate limited - the latest text is
+// always delivered once the interval allows it.
+public class NotificationPublisher {
+    private static final String TAG = "NotificationPublisher";
+    public static final long DEFAULT_MIN_INTERVAL = 1000; // At most one notify() per second
+    
+    private final NotificationManager notificationManager;
+    private final NotificationCompat.Builder builder;
+    private final int notificationId;
+    private final Handler handler;
+    private final long minIntervalMs;
+    
+    private String lastPublishedText;
+    private String pendingText;
+    private long lastPublishTime = 0;
+    private boolean flushScheduled = false;
+    
+    private long publishedCount = 0;
+    private long suppressedCount = 0;
+    
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            String text = pendingText;
+            pendingText = null;
+            if (text != null) {
+                if (text.equals(lastPublishedText)) {
+                    suppressedCount++;
+                } else {
+                    notifyNow(text);
+                }
+            }
+        }
+    };
+    
+    public NotificationPublisher(Context context, NotificationManager notificationManager, String channelId,
+                                 int notificationId, long minIntervalMs) {
+        this.notificationManager = notificationManager;
+        this.notificationId = notificationId;
+        this.minIntervalMs = minIntervalMs;
+        this.handler = new Handler(Looper.getMainLooper());
+        
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+            context, 0, notificationIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        
+        builder = new NotificationCompat.Builder(context, channelId)
+                .setContentTitle("MyBike Security Active")
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true);
+    }
+    
+    // Used for startForeground(), which needs the Notification object itself
+    public Notification build(String text) {
+        lastPublishedText = text;
+        lastPublishTime = SystemClock.elapsedRealtime();
+        return builder.setContentText(text).build();
+    }
+    
+    public void publish(String text) {
+        try {
+            if (text == null) {
+                return;
+            }
+            
+            if (pendingText != null) {
+                // A newer state replaces the one still waiting for its slot
+                suppressedCount++;
+                pendingText = text;
+                return;
+            }
+            
+            if (text.equals(lastPublishedText)) {
+                suppressedCount++;
+                return;
+            }
+            
+            long elapsed = SystemClock.elapsedRealtime() - lastPublishTime;
+            if (elapsed >= minIntervalMs) {
+                notifyNow(text);
+            } else {
+                pendingText = text;
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    handler.postDelayed(flushRunnable, minIntervalMs - elapsed);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error publishing notification", e);
+        }
+    }
+    
+    private void notifyNow(String text) {
+        if (notificationManager != null) {
+            notificationManager.notify(notificationId, builder.setContentText(text).build());
+        }
+        lastPublishedText = text;
+        lastPublishTime = SystemClock.elapsedRealtime();
+        publishedCount++;
+    }
+    
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+    
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+    
+    public void cancelPending() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        pendingText = null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.mybike;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+// Picks how hard the monitor works from battery level, charging state and thermal status, and
+// tells the service when that choice changes. An armed phone on a bike is only useful while it
+// has charge, so the lower tiers trade detection latency for hours of standby.
+public class PowerPolicyEngine {
+    private static final String TAG = "PowerPolicyEngine";
+    
+    public enum Policy {
+        // samplingPeriodUs, maxReportLatencyUs, sirenDurationMs, sensorFusion
+        FULL(20000, 0, 5000, false),           // Charging or plenty of charge - exactly as before
+        BALANCED(40000, 200000, 5000, false),
+        SAVER(100000, 1000000, 3000, false),
+        CRITICAL(200000, 2000000, 2000, false);
+        
+        public final int samplingPeriodUs;
+        public final int maxReportLatencyUs;  // Sensor batching - lets the SoC sleep between batches
+        public final long sirenDurationMs;
+        // Accelerometer alongside the gyroscope. Costs a second sensor and adds a second trigger, so no
+        // tier turns it on until a fusion trace backs it in the replay tests.
+        public final boolean sensorFusion;
+        
+        Policy(int samplingPeriodUs, int maxReportLatencyUs, long sirenDurationMs, boolean sensorFusion) {
+            this.samplingPeriodUs = samplingPeriodUs;
+            this.maxReportLatencyUs = maxReportLatencyUs;
+            this.sirenDurationMs = sirenDurationMs;
+            this.sensorFusion = sensorFusion;
+        }
+    }
+    
+    public interface Listener {
+        // Called on the main thread, only when the tier actually changes
+        void onPolicyChanged(Policy previous, Policy policy);
+    }
+    
+    private static final int BALANCED_BELOW = 50;
+    private static final int SAVER_BELOW = 20;
+    private static final int CRITICAL_BELOW = 10;
+    
+    // Read by the SMS status reply - no tier is claimed until start() has chosen one
+    private static volatile String statusLine = "Power: not started";
+    
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Listener listener;
+    private Policy policy = Policy.FULL;
+    private int batteryLevel = 100;
+    private boolean charging = true;
+    private int thermalStatus = PowerManager.THERMAL_STATUS_NONE;
+    private long transitionCount = 0;
+    private boolean started = false;
+    
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            readBattery(intent);
+            evaluate();
+        }
+    };
+    
+    private final PowerManager.OnThermalStatusChangedListener thermalListener = new PowerManager.OnThermalStatusChangedListener() {
+        @Override
+        public void onThermalStatusChanged(int status) {
+            thermalStatus = status;
+            evaluate();
+        }
+    };
+    
+    public PowerPolicyEngine(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+    
+    // Main thread. Returns the initial policy so the caller can configure itself before arming.
+    public Policy start() {
+        if (started) {
+            return policy;
+        }
+        try {
+            // ACTION_BATTERY_CHANGED is sticky - registering returns the current state right away
+            Intent battery = context.registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery != null) {
+                readBattery(battery);
+            }
+            if (powerManager != null) {
+                thermalStatus = powerManager.getCurrentThermalStatus();
+                powerManager.addThermalStatusListener(context.getMainExecutor(), thermalListener);
+            }
+            started = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting power policy", e);
+        }
+        policy = choose(batteryLevel, charging, thermalStatus);
+        updateStatusLine();
+        Log.d(TAG, "🔋 Initial power policy " + policy + " (" + batteryLevel + "%, charging=" + charging + ")");
+        return policy;
+    }
+    
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        try {
+            context.unregisterReceiver(batteryReceiver);
+            if (powerManager != null) {
+                powerManager.removeThermalStatusListener(thermalListener);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error stopping power policy", e);
+        }
+        started = false;
+        statusLine = "Power: stopped";
+    }
+    
+    private void readBattery(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        if (level >= 0 && scale > 0) {
+            batteryLevel = level * 100 / scale;
+        }
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN);
+        charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+    
+    private void evaluate() {
+        Policy next = choose(batteryLevel, charging, thermalStatus);
+        updateStatusLine();
+        if (next == policy) {
+            return;
+        }
+        Policy previous = policy;
+        policy = next;
+        transitionCount++;
+        Log.w(TAG, "🔋 Power policy " + previous + " -> " + next + " (" + batteryLevel + "%, charging=" + charging +
+            ", thermal=" + thermalStatus + ")");
+        try {
+            listener.onPolicyChanged(previous, next);
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying power policy", e);
+        }
+    }
+    
+    static Policy choose(int batteryLevel, boolean charging, int thermalStatus) {
+        // Overheating overrides everything, charging included - a hot phone in the sun must back off
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return Policy.CRITICAL;
+        }
+        Policy byBattery;
+        if (charging || batteryLevel >= BALANCED_BELOW) {
+            byBattery = Policy.FULL;
+        } else if (batteryLevel >= SAVER_BELOW) {
+            byBattery = Policy.BALANCED;
+        } else if (batteryLevel >= CRITICAL_BELOW) {
+            byBattery = Policy.SAVER;
+        } else {
+            byBattery = Policy.CRITICAL;
+        }
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE && byBattery.ordinal() < Policy.SAVER.ordinal()) {
+            return Policy.SAVER;
+        }
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_LIGHT && byBattery == Policy.FULL) {
+            return Policy.BALANCED;
+        }
+        return byBattery;
+    }
+    
+    private void updateStatusLine() {
+        statusLine = "Power: " + policy + " (" + batteryLevel + "%" + (charging ? ", charging" : "") +
+            (thermalStatus > PowerManager.THERMAL_STATUS_NONE ? ", thermal " + thermalStatus : "") + ")";
+    }
+    
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    public static String getStatusLine() {
+        return statusLine;
+    }
+    
+    public String summary() {
+        return statusLine + ", " + transitionCount + " transitions";
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.mybike;
+
+import android.app.Application;
+import android.os.Debug;
+import android.os.Process;
+
+// One-line memory footprint of the calling process, for comparing the UI and :monitor processes
+public final class ProcessMemory {
+    
+    private ProcessMemory() {
+    }
+    
+    public static String describe() {
+        Debug.MemoryInfo info = new Debug.MemoryInfo();
+        Debug.getMemoryInfo(info); // Walks smaps - tens of ms, diagnostics only
+        Runtime runtime = Runtime.getRuntime();
+        long javaUsedKb = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+        return Application.getProcessName() + " (pid " + Process.myPid() + "): PSS " + info.getTotalPss() +
+            " KB, Java heap " + javaUsedKb + "/" + (runtime.maxMemory() / 1024) +
+            " KB, native heap " + (Debug.getNativeHeapAllocatedSize() / 1024) + " KB";
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.mybike;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+// Runs an action as soon as the device is ready to show it - screen on and the alarm's audio
+// focus released - instead of after a fixed sleep. The keyguard is not waited for: the in-call
+// UI is shown over it. Readiness is rechecked on SCREEN_ON broadcasts and on recheck(); the
+// timeout runs the action anyway. One pending action at a time, main thread only.
+public class ReadinessGate {
+    private static final String TAG = "ReadinessGate";
+    public static final long DEFAULT_TIMEOUT = 3000;
+    
+    public interface Condition {
+        boolean isMet();
+    }
+    
+    private final Context context;
+    private final Condition screenOn;
+    private final Condition audioReleased;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LatencyRecorder waitLatency = new LatencyRecorder("Readiness wait", 64);
+    private final long timeoutMs;
+    
+    private Runnable pendingAction;
+    private long openedAt = 0;
+    private boolean receiverRegistered = false;
+    private long timeoutCount = 0;
+    
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            recheck();
+        }
+    };
+    
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (pendingAction != null) {
+                timeoutCount++;
+                Log.w(TAG, "⏱️ Not ready after " + timeoutMs + "ms (" + describe() + ") - proceeding anyway");
+                release();
+            }
+        }
+    };
+    
+    public ReadinessGate(Context context, Condition audioReleased, long timeoutMs) {
+        this(context, interactive(context), audioReleased, timeoutMs);
+    }
+    
+    ReadinessGate(Context context, Condition screenOn, Condition audioReleased, long timeoutMs) {
+        this.context = context.getApplicationContext();
+        this.screenOn = screenOn;
+        this.audioReleased = audioReleased;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    private static Condition interactive(Context context) {
+        final PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return new Condition() {
+            @Override
+            public boolean isMet() {
+                return powerManager == null || powerManager.isInteractive();
+            }
+        };
+    }
+    
+    // Replaces any action still waiting - only the latest dial matters
+    public void await(Runnable action) {
+        cancel();
+        pendingAction = action;
+        openedAt = SystemClock.elapsedRealtime();
+        if (isReady()) {
+            release();
+            return;
+        }
+        registerReceiver();
+        handler.postDelayed(timeoutRunnable, timeoutMs);
+        Log.d(TAG, "Waiting for readiness: " + describe());
+    }
+    
+    // Called when something the gate can't observe by broadcast changed, e.g. audio focus
+    public void recheck() {
+        if (pendingAction != null && isReady()) {
+            release();
+        }
+    }
+    
+    public void cancel() {
+        handler.removeCallbacks(timeoutRunnable);
+        unregisterReceiver();
+        pendingAction = null;
+    }
+    
+    private void release() {
+        Runnable action = pendingAction;
+        waitLatency.record(SystemClock.elapsedRealtime() - openedAt);
+        cancel();
+        if (action != null) {
+            action.run();
+        }
+    }
+    
+    public boolean isReady() {
+        return screenOn.isMet() && audioReleased.isMet();
+    }
+    
+    private String describe() {
+        return "screen=" + screenOn.isMet() + " audio=" + audioReleased.isMet();
+    }
+    
+    private void registerReceiver() {
+        if (receiverRegistered) {
+            return;
+        }
+        context.registerReceiver(screenReceiver, new IntentFilter(Intent.ACTION_SCREEN_ON));
+        receiverRegistered = true;
+    }
+    
+    private void unregisterReceiver() {
+        if (!receiverRegistered) {
+            return;
+        }
+        try {
+            context.unregisterReceiver(screenReceiver);
+        } catch (Exception e) {
+            Log.e(TAG, "Error unregistering screen receiver", e);
+        }
+        receiverRegistered = false;
+    }
+    
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+    
+    public String summary() {
+        return waitLatency.summary() + ", timeouts " + timeoutCount;
+    }
+}
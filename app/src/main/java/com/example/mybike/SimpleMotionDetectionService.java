@@ -3,7 +3,6 @@ package com.example.mybike;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -13,8 +12,6 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
-import android.media.ToneGenerator;
-import android.media.MediaPlayer;
 import android.media.AudioFocusRequest;
 import android.net.Uri;
 import android.os.Build;
@@ -22,38 +19,86 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.RemoteCallbackList;
+import android.os.RemoteException;
+import android.os.Process;
+import android.os.SystemClock;
 import android.app.KeyguardManager;
 import android.view.WindowManager;
-import android.telephony.SmsManager;
 import android.telephony.TelephonyManager;
 import android.util.Log;
-import androidx.core.app.NotificationCompat;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class SimpleMotionDetectionService extends Service implements SensorEventListener {
     private static final String TAG = "SimpleMotionService";
     private static final String CHANNEL_ID = "motion_channel";
     private static final int NOTIFICATION_ID = 1001;
     
+    
     private SensorManager sensorManager;
     private Sensor gyroscope;
+    private Sensor accelerometer;
+    private final MotionDetector motionDetector = new ThresholdMotionDetector();
+    private PowerPolicyEngine powerPolicyEngine;
+    private PowerPolicyEngine.Policy powerPolicy = PowerPolicyEngine.Policy.FULL;
     private NotificationManager notificationManager;
+    private NotificationPublisher notificationPublisher;
     private AppStateManager stateManager;
-    private boolean motionDetected = false;
-    private long lastMotionAlertTime = 0;
+    private volatile boolean motionDetected = false; // Also read by the live state publisher
+    private MotionAlertAggregator motionAlertAggregator;
+    private AlertDispatcher alertDispatcher;
+    private WebhookAlertChannel webhookChannel;
+    private EscalationEngine escalationEngine;
+    private CallStateTracker callStateTracker;
+    private String pendingDialNumber;     // Waiting for the line to go IDLE before dialing
+    private boolean awaitingOffhook = false;
+    private static final long OFFHOOK_TIMEOUT = 15000; // Release the screen if the dial never connects
+    private ReadinessGate readinessGate;
+    private long incidentTriggerNanos = 0;
+    private final LatencyRecorder motionToDialLatency = new LatencyRecorder("Motion to dial", 64);
+    private Handler mainHandler;
+    private final RemoteCallbackList<IMonitorListener> remoteListeners = new RemoteCallbackList<>();
+    private EventBus.Subscriber bridgeSubscriber;
+    private ExecutorService bridgeExecutor;
+    private final MonitorState liveState = new MonitorState();
+    private IncidentJournal incidentJournal;
+    private FlightRecorder flightRecorder;
+    private boolean incidentRestored = false;
+    private volatile long settingsVersion = 0;
+    
+    public static final String EXTRA_FROM_BOOT = "from_boot";
+    
+    // Staged startup
+    private static volatile long timeToArmedMs = -1;
+    private static volatile long bootToArmedMs = -1;
+    // Motion-to-first-audible-sample for both siren engines, readable from the status reply
+    private static final LatencyRecorder sirenStartLatency = new LatencyRecorder("Siren start", 32);
+    private long armedAt = 0;
+    private long createdAt = 0;
+    private long armedAfterCreateMs = -1;
+    private long startupCompleteMs = -1;
+    private boolean startupComplete = false;
+    private Handler alertDigestHandler;
     
     // Power management
-    private PowerManager.WakeLock wakeLock;
-    private PowerManager.WakeLock screenWakeLock;
+    private WakeLockManager.Lease monitoringLease;
+    private WakeLockManager.Lease screenLease;
     private PowerManager powerManager;
     private KeyguardManager keyguardManager;
     
     // Audio and call functionality
-    private MediaPlayer mediaPlayer;
-    private Handler beepHandler;
-    private Runnable beepRunnable;
+    private SirenPlayer sirenPlayer;
+    private SynthSirenPlayer synthSirenPlayer;
+    private Siren activeSiren;
     private boolean isBeeping = false;
-    private boolean isCurrentlyPlayingBeep = false;
+    private long lastMotionTransitionNanos = 0;
     private AudioManager audioManager;
     private AudioFocusRequest audioFocusRequest;
     
@@ -61,14 +106,13 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     private boolean isAlarmCycleActive = false;
     private Handler alarmCycleHandler;
     private Runnable alarmCycleRunnable;
-    private static final long ALARM_CYCLE_DURATION = 5000; // 5 seconds
+    private long alarmCycleDuration = 5000; // Set by the power policy
     
-    private static final float MOTION_THRESHOLD = 0.3f;
-    private static final long MOTION_ALERT_COOLDOWN = 30000; // 30 seconds between motion alerts
-    private static final long CALL_COOLDOWN = 30000; // 30 seconds between calls (same as CALL_DELAY)
+    private static final long CALL_COOLDOWN = MotionResponse.CALL_COOLDOWN; // 30 seconds between calls
     private static final int BEEP_INTERVAL = 800; // 800ms between beep starts (500ms beep + 300ms silence)
     private static final long SENSOR_REREGISTER_INTERVAL = 30000; // Re-register sensor every 30 seconds
-    private static final long CALL_DELAY = 30000; // 30 seconds delay before calling
+    private static final long MONITORING_LEASE_TIMEOUT = 3 * SENSOR_REREGISTER_INTERVAL; // Renewed by the health check
+    private static final long CALL_DELAY = MotionResponse.CALL_DELAY; // 30 seconds delay before calling
     
     // Sensor health monitoring
     private long lastSensorEventTime = 0;
@@ -89,24 +133,138 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "Service created");
+        createdAt = SystemClock.elapsedRealtime();
         
-        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
+        // Stage 1: arm - only what the detector needs runs before the sensor is registered
         stateManager = AppStateManager.getInstance(this);
-        createNotificationChannel();
-        
-        // Clear any leftover delay state on service start and ensure ready state
-        if (stateManager != null) {
-            stateManager.setCallDelayActive(false);
-            stateManager.setMotionStartTime(0);
-            stateManager.setCallReady(true); // Ensure service starts in ready state
-        }
         initPowerManager();
+        initPowerPolicy();
         initSensor();
+        restoreIncident(); // Before onCreate returns - no motion is handled until it has run
+        
+        // Stage 2: audio decodes on its own threads, in parallel with everything below
+        audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
         initBeepSystem();
+        
+        // Stage 3: notification, alerting and telephony once onCreate returns - or right away if
+        // motion or startForeground() needs them first
+        mainHandler = new Handler(Looper.getMainLooper());
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                completeStartup();
+            }
+        });
+    }
+    
+    private void completeStartup() {
+        if (startupComplete) {
+            return;
+        }
+        startupComplete = true;
+        ensureNotifications();
+        motionAlertAggregator = new MotionAlertAggregator(MotionAlertAggregator.DEFAULT_FIRST_INTERVAL,
+            MotionAlertAggregator.DEFAULT_MAX_INTERVAL, java.util.TimeZone.getDefault());
+        alertDigestHandler = new Handler(Looper.getMainLooper());
         initAlarmCycleSystem();
+        initAlertChannels();
+        initCallStateTracking();
+        initEscalation();
+        initMonitorBridge();
+        initFlightRecorder();
         setupSensorHealthMonitoring();
         setupUIUpdates();
+        if (incidentRestored) {
+            // Pick the cooldown up where the previous process left it
+            startUIUpdates();
+            scheduleCooldownExpiry(Math.max(0, CALL_DELAY - (System.currentTimeMillis() - motionStartTime)));
+            updateNotificationAndUI();
+        }
+        startupCompleteMs = SystemClock.elapsedRealtime() - createdAt;
+        Log.d(TAG, "⏱️ Startup complete " + startupCompleteMs + "ms after onCreate, armed after " + armedAfterCreateMs + "ms");
+    }
+    
+    // Replays the incident journal. A cooldown still running is restored, anything else starts
+    // from the ready state as before.
+    private void restoreIncident() {
+        try {
+            incidentJournal = new IncidentJournal(new File(DeviceStorage.context(this).getFilesDir(), "incidents"));
+            IncidentJournal.State recovered = incidentJournal.open();
+            long now = System.currentTimeMillis();
+            if (recovered.cooldownActive && stateManager.isLocked() && now - recovered.cooldownStart < CALL_DELAY) {
+                stateManager.restoreIncident(recovered.cooldownStart, recovered.callReady, recovered.lastCallTime);
+                isCallDelayActive = true;
+                motionStartTime = recovered.cooldownStart;
+                incidentRestored = true;
+                Log.w(TAG, "📒 Incident restored after restart: " + recovered);
+                return;
+            }
+            if (recovered.cooldownActive) {
+                // Ran out (or the bike was unlocked) while the process was gone
+                journal(IncidentJournal.COOLDOWN_END, now, 0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring incident", e);
+        }
+        stateManager.resetForServiceStart(); // Clear leftover delay state and ensure ready state
+    }
+    
+    private void initFlightRecorder() {
+        flightRecorder = new FlightRecorder(new File(DeviceStorage.context(this).getFilesDir(), "flight"));
+        if (!flightRecorder.open()) {
+            flightRecorder = null;
+        }
+    }
+    
+    // Closes a capture whose after-window ends while the sensors are quiet or batching
+    private final Runnable flightCaptureTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (flightRecorder != null) {
+                flightRecorder.finishCapture();
+            }
+        }
+    };
+    
+    private void journal(int type, long time, long value) {
+        if (incidentJournal != null) {
+            incidentJournal.append(type, time, value);
+        }
+    }
+    
+    private void ensureNotifications() {
+        if (notificationPublisher != null) {
+            return;
+        }
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        createNotificationChannel();
+        notificationPublisher = new NotificationPublisher(this, notificationManager, CHANNEL_ID,
+            NOTIFICATION_ID, NotificationPublisher.DEFAULT_MIN_INTERVAL);
+    }
+    
+    private void recordArmed() {
+        if (armedAfterCreateMs >= 0) {
+            return; // Re-registrations don't count
+        }
+        long now = SystemClock.elapsedRealtime();
+        armedAt = now;
+        armedAfterCreateMs = now - createdAt;
+        timeToArmedMs = now - Process.getStartElapsedRealtime();
+        Log.w(TAG, "⏱️ ARMED " + timeToArmedMs + "ms after process start (" + armedAfterCreateMs + "ms after onCreate)");
+    }
+    
+    public static LatencyRecorder getSirenStartLatency() {
+        return sirenStartLatency;
+    }
+    
+    // Time from process start to the motion sensor being registered, -1 until armed
+    public static long getTimeToArmedMs() {
+        return timeToArmedMs;
+    }
+    
+    // Time from kernel boot to armed when the service was started by BootReceiver, -1 otherwise
+    public static long getBootToArmedMs() {
+        return bootToArmedMs;
     }
     
     @Override
@@ -114,6 +272,12 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         Log.d(TAG, "Service starting");
         
         try {
+            if (intent != null && intent.getBooleanExtra(EXTRA_FROM_BOOT, false) && bootToArmedMs < 0 && armedAt > 0) {
+                // elapsedRealtime() counts from boot, so the arming timestamp is the reboot-to-armed time
+                bootToArmedMs = armedAt;
+                Log.w(TAG, "⏱️ Re-armed " + bootToArmedMs + "ms after boot, locked=" + stateManager.isLocked());
+            }
+            
             // Sync with state manager on startup to get correct timer state
             syncServiceStateWithManager();
             
@@ -129,7 +293,118 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return monitorBinder;
+    }
+    
+    // Reached directly in a single process, through binder when running as :monitor
+    private final IMonitorService.Stub monitorBinder = new IMonitorService.Stub() {
+        @Override
+        public long[] getState() {
+            synchronized (liveState) {
+                return liveState.toArray();
+            }
+        }
+        
+        @Override
+        public String getAdminNumber() {
+            return AppStateManager.getInstance(SimpleMotionDetectionService.this).getAdminNumber();
+        }
+        
+        @Override
+        public void registerListener(IMonitorListener listener) {
+            if (listener != null) {
+                remoteListeners.register(listener);
+            }
+        }
+        
+        @Override
+        public void unregisterListener(IMonitorListener listener) {
+            if (listener != null) {
+                remoteListeners.unregister(listener);
+            }
+        }
+        
+        @Override
+        public String getMemoryStats() {
+            return ProcessMemory.describe();
+        }
+    };
+    
+    // Turns this process's bus traffic into state deltas for bound clients. Diffing runs inline on
+    // the posting thread; the binder calls go out on a single thread so deltas keep their order.
+    private void initMonitorBridge() {
+        bridgeExecutor = Executors.newSingleThreadExecutor();
+        bridgeSubscriber = new EventBus.Subscriber() {
+            @Override
+            public void onEvent(int topic, int flags, long value1, long value2) {
+                if (topic == EventBus.TOPIC_STATE && (flags & EventBus.FLAG_TIMER_STATE) == 0) {
+                    settingsVersion++; // SMS command - the admin number may have changed
+                    mainHandler.post(disarmCheckRunnable); // ...or the bike was unlocked mid-escalation
+                }
+                publishLiveState();
+            }
+        };
+        EventBus bus = EventBus.getInstance();
+        bus.register(EventBus.TOPIC_MOTION, bridgeSubscriber, null);
+        bus.register(EventBus.TOPIC_STATE, bridgeSubscriber, null);
+        publishLiveState();
+    }
+    
+    private void publishLiveState() {
+        AppStateManager manager = stateManager;
+        if (manager == null) {
+            return;
+        }
+        try {
+            long[] next = new long[MonitorState.FIELD_COUNT];
+            boolean delayActive = manager.isCallDelayActive();
+            long start = manager.getMotionStartTime();
+            next[MonitorState.LOCKED] = manager.isLocked() ? 1 : 0;
+            next[MonitorState.CALL] = manager.getCall() ? 1 : 0;
+            next[MonitorState.ALARM] = manager.getAlarm() ? 1 : 0;
+            next[MonitorState.MOTION] = motionDetected ? 1 : 0;
+            next[MonitorState.CALL_DELAY_ACTIVE] = delayActive ? 1 : 0;
+            next[MonitorState.CALL_READY] = manager.isCallReady() ? 1 : 0;
+            next[MonitorState.CALL_DEADLINE] = delayActive && start > 0 ? start + CALL_DELAY : 0;
+            next[MonitorState.LAST_CALL_TIME] = manager.getLastCallTime();
+            next[MonitorState.SETTINGS_VERSION] = settingsVersion;
+            
+            synchronized (liveState) {
+                int mask = liveState.diff(next);
+                if (mask == 0) {
+                    return;
+                }
+                long sequence = liveState.update(next);
+                long[] packed = MonitorState.pack(next, mask);
+                if (bridgeExecutor != null && !bridgeExecutor.isShutdown()) {
+                    bridgeExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            broadcastDelta(sequence, mask, packed);
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error publishing live state", e);
+        }
+    }
+    
+    private void broadcastDelta(long sequence, int mask, long[] packed) {
+        synchronized (remoteListeners) { // beginBroadcast() is not reentrant
+            int count = remoteListeners.beginBroadcast();
+            try {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        remoteListeners.getBroadcastItem(i).onStateDelta(sequence, mask, packed);
+                    } catch (RemoteException e) {
+                        // Dead clients are dropped by RemoteCallbackList itself
+                    }
+                }
+            } finally {
+                remoteListeners.finishBroadcast();
+            }
+        }
     }
     
     private void createNotificationChannel() {
@@ -144,12 +419,17 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     }
     
     private Notification createNotification() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 0, notificationIntent, 
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        
+        ensureNotifications();
+        return notificationPublisher.build(renderNotificationText());
+    }
+    
+    private void publishNotification() {
+        if (notificationPublisher != null) {
+            notificationPublisher.publish(renderNotificationText());
+        }
+    }
+    
+    private String renderNotificationText() {
         String status = stateManager != null ? stateManager.getStatus() : "unknown";
         String text;
         
@@ -187,13 +467,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
             }
         }
         
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("MyBike Security Active")
-                .setContentText(text)
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .build();
+        return text;
     }
     
     private void initPowerManager() {
@@ -213,13 +487,12 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     
     private void acquireWakeLock() {
         try {
-            if (powerManager != null && (wakeLock == null || !wakeLock.isHeld())) {
-                wakeLock = powerManager.newWakeLock(
-                    PowerManager.PARTIAL_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP,
-                    "MyBike::MotionDetectionWakeLock"
-                );
-                wakeLock.acquire();
+            if (monitoringLease == null) {
+                monitoringLease = WakeLockManager.getInstance(this).acquire(WakeLockManager.REASON_MONITORING,
+                    PowerManager.PARTIAL_WAKE_LOCK, MONITORING_LEASE_TIMEOUT);
                 Log.d(TAG, "WakeLock acquired for motion detection");
+            } else {
+                monitoringLease.renew(MONITORING_LEASE_TIMEOUT);
             }
         } catch (Exception e) {
             Log.e(TAG, "Error acquiring wake lock", e);
@@ -228,9 +501,9 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     
     private void releaseWakeLock() {
         try {
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
-                wakeLock = null;
+            if (monitoringLease != null) {
+                monitoringLease.release();
+                monitoringLease = null;
                 Log.d(TAG, "WakeLock released");
             }
         } catch (Exception e) {
@@ -242,13 +515,10 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         try {
             if (powerManager != null) {
                 // Create a screen wake lock to turn on the screen
-                if (screenWakeLock == null || !screenWakeLock.isHeld()) {
-                    screenWakeLock = powerManager.newWakeLock(
-                        PowerManager.SCREEN_BRIGHT_WAKE_LOCK | 
-                        PowerManager.ACQUIRE_CAUSES_WAKEUP,
-                        "MyBike::ScreenWakeLock"
-                    );
-                    screenWakeLock.acquire(40000); // Keep screen on for 40 seconds (enough for 30s timer + call)
+                if (screenLease == null || !screenLease.isLive()) {
+                    screenLease = WakeLockManager.getInstance(this).acquire(WakeLockManager.REASON_CALL_SCREEN,
+                        PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP,
+                        40000); // Keep screen on for 40 seconds (enough for 30s timer + call)
                     Log.d(TAG, "Screen wake lock acquired");
                 }
                 
@@ -264,9 +534,9 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     
     private void releaseScreenWakeLock() {
         try {
-            if (screenWakeLock != null && screenWakeLock.isHeld()) {
-                screenWakeLock.release();
-                screenWakeLock = null;
+            if (screenLease != null) {
+                screenLease.release();
+                screenLease = null;
                 Log.d(TAG, "Screen wake lock released");
             }
         } catch (Exception e) {
@@ -279,11 +549,13 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
             sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
             if (sensorManager != null) {
                 gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+                accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
                 if (gyroscope != null) {
-                    // Use SENSOR_DELAY_GAME for better responsiveness during deep sleep
-                    boolean registered = sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+                    // Rate and batching come from the power policy - FULL is the old SENSOR_DELAY_GAME
+                    boolean registered = registerMotionSensors();
                     if (registered) {
-                        Log.d(TAG, "Gyroscope registered successfully with GAME delay");
+                        recordArmed();
+                        Log.d(TAG, "Gyroscope registered successfully with " + powerPolicy + " policy");
                     } else {
                         Log.e(TAG, "Failed to register gyroscope");
                     }
@@ -303,6 +575,8 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 @Override
                 public void run() {
                     checkSensorHealth();
+                    // Monitoring lease is timed - renewing it here proves the service is still alive
+                    acquireWakeLock();
                     // Also sync with state manager during health checks (catches SMS command changes)
                     syncServiceStateWithManager();
                     // Schedule next health check
@@ -329,9 +603,11 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 reregisterSensor();
             }
             
-            // Update notification with health status
-            if (notificationManager != null) {
-                notificationManager.notify(NOTIFICATION_ID, createNotification());
+            // Update notification with health status - unchanged text is dropped by the publisher
+            publishNotification();
+            if (notificationPublisher != null) {
+                Log.d(TAG, "Notification updates - published: " + notificationPublisher.getPublishedCount() +
+                     ", suppressed: " + notificationPublisher.getSuppressedCount());
             }
         } catch (Exception e) {
             Log.e(TAG, "Error checking sensor health", e);
@@ -347,13 +623,8 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 // Wait a bit
                 Thread.sleep(100);
                 
-                // Re-register with higher priority
-                boolean registered = sensorManager.registerListener(
-                    this, 
-                    gyroscope, 
-                    SensorManager.SENSOR_DELAY_GAME,
-                    sensorHealthHandler
-                );
+                // Re-register at the current policy's rate
+                boolean registered = registerMotionSensors();
                 
                 if (registered) {
                     Log.d(TAG, "Sensor re-registered successfully");
@@ -366,6 +637,50 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         }
     }
     
+    private boolean registerMotionSensors() {
+        boolean registered = sensorManager.registerListener(this, gyroscope,
+            powerPolicy.samplingPeriodUs, powerPolicy.maxReportLatencyUs);
+        boolean fusion = powerPolicy.sensorFusion && accelerometer != null;
+        if (fusion) {
+            sensorManager.registerListener(this, accelerometer,
+                powerPolicy.samplingPeriodUs, powerPolicy.maxReportLatencyUs);
+        }
+        motionDetector.setSensorFusion(fusion);
+        return registered;
+    }
+    
+    private void initPowerPolicy() {
+        try {
+            powerPolicyEngine = new PowerPolicyEngine(this, new PowerPolicyEngine.Listener() {
+                @Override
+                public void onPolicyChanged(PowerPolicyEngine.Policy previous, PowerPolicyEngine.Policy policy) {
+                    applyPowerPolicy(policy);
+                }
+            });
+            powerPolicy = powerPolicyEngine.start();
+            alarmCycleDuration = powerPolicy.sirenDurationMs;
+        } catch (Exception e) {
+            Log.e(TAG, "Error initializing power policy", e);
+        }
+    }
+    
+    // Applied to the running service - sensors are re-registered, nothing else is rebuilt
+    private void applyPowerPolicy(PowerPolicyEngine.Policy policy) {
+        try {
+            powerPolicy = policy;
+            alarmCycleDuration = policy.sirenDurationMs; // Takes effect from the next alarm cycle
+            if (sensorManager != null && gyroscope != null) {
+                sensorManager.unregisterListener(this);
+                registerMotionSensors();
+            }
+            Log.w(TAG, "🔋 Power policy " + policy + " applied: " + policy.samplingPeriodUs + "us sampling, " +
+                policy.maxReportLatencyUs + "us batching, fusion=" + policy.sensorFusion);
+            publishNotification();
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying power policy", e);
+        }
+    }
+    
     private void setupUIUpdates() {
         try {
             // Simple UI update handler - just broadcasts state changes
@@ -406,6 +721,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                     isCallDelayActive = true;
                 }
                 
+                journal(IncidentJournal.COOLDOWN_START, motionStartTime, 0);
                 Log.w(TAG, "📞 COOLDOWN TIMER STARTED - 30 seconds until next call allowed");
                 
                 // Start UI updates and initial notification
@@ -413,7 +729,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 updateNotificationAndUI();
                 
                 // Schedule the cooldown expiry after 30 seconds
-                scheduleCooldownExpiry();
+                scheduleCooldownExpiry(CALL_DELAY);
             } else {
                 Log.d(TAG, "📞 COOLDOWN ALREADY ACTIVE - Timer already running");
             }
@@ -422,9 +738,9 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         }
     }
     
-    private void scheduleCooldownExpiry() {
+    private void scheduleCooldownExpiry(long delayMs) {
         try {
-            Log.w(TAG, "📞 SCHEDULING COOLDOWN EXPIRY - Will expire in 30 seconds");
+            Log.w(TAG, "📞 SCHEDULING COOLDOWN EXPIRY - Will expire in " + (delayMs / 1000) + " seconds");
             
             // Cancel any existing scheduled cooldown first
             cancelScheduledCall();
@@ -443,10 +759,11 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                             
                             Log.w(TAG, "📞 COOLDOWN CHECK: elapsed=" + elapsed + "ms, threshold=30000ms");
                             
-                            if (elapsed >= CALL_DELAY) {
+                            if (MotionResponse.cooldownExpired(currentTime, motionStartTime)) {
                                 Log.w(TAG, "✅ COOLDOWN EXPIRED - Setting to READY state");
                                 
                                 // Set to Ready state - next motion will trigger immediate call
+                                journal(IncidentJournal.COOLDOWN_END, System.currentTimeMillis(), 0);
                                 stateManager.setCallDelayActive(false);
                                 stateManager.setCallReady(true); // Set to READY state
                                 
@@ -464,6 +781,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                                 Log.w(TAG, "🟡 Service in READY state - next motion will trigger immediate call");
                             } else {
                                 Log.w(TAG, "⏰ Cooldown not yet expired, waiting...");
+                                callSchedulerHandler.postDelayed(this, CALL_DELAY - elapsed);
                             }
                         } else {
                             Log.w(TAG, "❌ Cooldown cancelled or timer reset");
@@ -474,7 +792,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 }
             };
             
-            callSchedulerHandler.postDelayed(scheduledCallRunnable, CALL_DELAY); // 30 seconds
+            callSchedulerHandler.postDelayed(scheduledCallRunnable, delayMs);
             Log.w(TAG, "✅ Cooldown expiry scheduled successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error scheduling cooldown expiry", e);
@@ -497,8 +815,10 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
             if (stateManager != null) {
                 // Check if device was unlocked - if so, stop all alarm activity
                 boolean isLocked = stateManager.isLocked();
+                mainHandler.post(disarmCheckRunnable); // Covers changes made outside this process
                 if (!isLocked && (isCallDelayActive || isBeeping || isAlarmCycleActive)) {
                     Log.w(TAG, "🔓 DEVICE UNLOCKED - stopping all alarm activity immediately");
+                    journal(IncidentJournal.RESET, System.currentTimeMillis(), 0);
                     isCallDelayActive = false;
                     motionStartTime = 0;
                     stopAlarmCycle(); // Stop alarm cycle system
@@ -521,6 +841,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                     if (!stateManagerActive) {
                         // Timer was reset (by SMS command or MainActivity) - clean up everything
                         Log.w(TAG, "🔄 Timer reset detected - stopping all alarm activity");
+                        journal(IncidentJournal.RESET, System.currentTimeMillis(), 0);
                         motionStartTime = 0;
                         stopAlarmCycle(); // Stop alarm cycle system
                         stopBeeping(); // Stop any active beeping
@@ -579,6 +900,7 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                     // Don't clear callReady state here - only clear after actual call
                 }
                 
+                journal(IncidentJournal.RESET, System.currentTimeMillis(), 0);
                 Log.w(TAG, "📞 CALL TIMER CANCELLED");
                 
                 // Stop UI updates
@@ -595,13 +917,13 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     private void updateNotificationAndUI() {
         try {
             // Update notification
-            if (notificationManager != null) {
-                notificationManager.notify(NOTIFICATION_ID, createNotification());
-            }
+            publishNotification();
             
-            // Send broadcast to update UI
-            Intent updateIntent = new Intent("STATE_CHANGED");
-            LocalBroadcastManager.getInstance(this).sendBroadcast(updateIntent);
+            // Push the timer state so MainActivity can schedule its own countdown
+            if (stateManager != null) {
+                EventBus.getInstance().postTimerState(isCallDelayActive, stateManager.isCallReady(),
+                    motionStartTime, stateManager.getLastCallTime());
+            }
             
         } catch (Exception e) {
             Log.e(TAG, "Error updating notification and UI", e);
@@ -610,68 +932,13 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     
     private void initBeepSystem() {
         try {
-            // Initialize MediaPlayer for police sound
-            mediaPlayer = new MediaPlayer();
-            android.content.res.AssetFileDescriptor afd = getAssets().openFd("police.mp3");
-            mediaPlayer.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
-            afd.close();
-            
-            mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-            mediaPlayer.setLooping(false); // Don't loop the audio file itself
-            mediaPlayer.prepare();
+            // Decode the police sound once in the background - playback then loops the PCM buffer gaplessly
+            sirenPlayer = new SirenPlayer(this, sirenStartLatency);
+            sirenPlayer.prepareAsync();
             
-            beepHandler = new Handler(Looper.getMainLooper());
-            
-            // Create beep runnable
-            beepRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    if (isBeeping && stateManager != null && stateManager.getAlarm()) {
-                        try {
-                            // Play police sound
-                            isCurrentlyPlayingBeep = true;
-                            
-                            if (mediaPlayer != null) {
-                                mediaPlayer.seekTo(0); // Reset to beginning
-                                mediaPlayer.start();
-                                
-                                // Get the duration of the audio file
-                                int duration = mediaPlayer.getDuration();
-                                Log.d(TAG, "🚨 Police sound started - duration: " + duration + "ms");
-                                
-                                // Schedule the NEXT sound only after this one finishes
-                                beepHandler.postDelayed(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        isCurrentlyPlayingBeep = false;
-                                        Log.d(TAG, "🚨 Police sound completed");
-                                        
-                                        // Only schedule next sound if still beeping
-                                        if (isBeeping && stateManager != null && stateManager.getAlarm()) {
-                                            Log.d(TAG, "🚨 Scheduling next police sound");
-                                            beepHandler.postDelayed(beepRunnable, 500); // 500ms gap between sounds
-                                        } else {
-                                            Log.d(TAG, "🔇 Police sound cycle ended");
-                                        }
-                                    }
-                                }, duration); // Wait for the full audio duration
-                            }
-                            
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error playing police sound", e);
-                            isCurrentlyPlayingBeep = false;
-                            // Try again after a delay if still beeping
-                            if (isBeeping) {
-                                beepHandler.postDelayed(this, 2000);
-                            }
-                        }
-                    } else {
-                        Log.d(TAG, "🔇 Police sound stopped - isBeeping:" + isBeeping + ", alarm:" + 
-                             (stateManager != null ? stateManager.getAlarm() : "null"));
-                        isCurrentlyPlayingBeep = false;
-                    }
-                }
-            };
+            // Synthesized patterns are prepared up front too, so alarm time never allocates or touches storage
+            synthSirenPlayer = new SynthSirenPlayer(sirenStartLatency);
+            synthSirenPlayer.prepareAsync();
             
             Log.d(TAG, "Police sound system initialized");
         } catch (Exception e) {
@@ -690,8 +957,8 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                         
                         // Check if motion is still detected after 5-second cycle
                         if (motionDetected) {
-                            Log.d(TAG, "🔔 Motion still active - starting new 5-second alarm cycle");
-                            startAlarmCycle(); // Start another 5-second cycle
+                            Log.d(TAG, "🔔 Motion still active - starting new alarm cycle");
+                            startAlarmCycle(); // Start another cycle
                         } else {
                             Log.d(TAG, "🔇 Motion stopped - ending alarm cycles");
                             stopAlarmCycle(); // Motion stopped, don't repeat
@@ -713,15 +980,15 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         try {
             if (!isAlarmCycleActive && stateManager != null && stateManager.isLocked() && stateManager.getAlarm()) {
                 isAlarmCycleActive = true;
-                Log.w(TAG, "🔔 STARTING 5-SECOND ALARM CYCLE");
+                Log.w(TAG, "🔔 STARTING " + (alarmCycleDuration / 1000) + "-SECOND ALARM CYCLE");
                 
                 // Start the beeping immediately
                 startBeeping();
                 
-                // Schedule the cycle completion check after 5 seconds
+                // Schedule the cycle completion check after the policy's siren duration
                 if (alarmCycleHandler != null && alarmCycleRunnable != null) {
-                    alarmCycleHandler.postDelayed(alarmCycleRunnable, ALARM_CYCLE_DURATION);
-                    Log.d(TAG, "🔔 Alarm cycle scheduled for " + (ALARM_CYCLE_DURATION / 1000) + " seconds");
+                    alarmCycleHandler.postDelayed(alarmCycleRunnable, alarmCycleDuration);
+                    Log.d(TAG, "🔔 Alarm cycle scheduled for " + (alarmCycleDuration / 1000) + " seconds");
                 }
             } else {
                 Log.d(TAG, "🔔 Alarm cycle not started - already active or conditions not met");
@@ -756,105 +1023,85 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         try {
             // Update last sensor event time for health monitoring
             lastSensorEventTime = System.currentTimeMillis();
+            completeStartup(); // No-op once stage 3 ran - motion before that brings it forward
             
             if (event != null && event.values != null && event.values.length >= 3) {
                 float x = event.values[0];
                 float y = event.values[1];
                 float z = event.values[2];
                 
-                float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
-                boolean detected = magnitude > MOTION_THRESHOLD;
+                int sensor = event.sensor.getType() == Sensor.TYPE_ACCELEROMETER
+                    ? MotionDetector.SENSOR_ACCEL : MotionDetector.SENSOR_GYRO;
+                if (flightRecorder != null) {
+                    flightRecorder.record(sensor, event.timestamp, x, y, z);
+                }
                 
-                if (detected != motionDetected) {
+                // Detection itself is plain Java - see ThresholdMotionDetector and the replay tests
+                if (motionDetector.onSample(sensor, event.timestamp, x, y, z)) {
+                    boolean detected = motionDetector.isMotionDetected();
+                    float magnitude = motionDetector.getMagnitude();
                     motionDetected = detected;
+                    if (detected) {
+                        // Reference point for the motion-to-siren latency measurement
+                        lastMotionTransitionNanos = System.nanoTime();
+                    }
                     
                     // Sync with state manager before processing motion changes
                     syncServiceStateWithManager();
                     
                     // Update notification
-                    if (notificationManager != null) {
-                        notificationManager.notify(NOTIFICATION_ID, createNotification());
-                    }
+                    publishNotification();
                     
-                    // Send broadcast
-                    Intent intent = new Intent("MOTION_DETECTED");
-                    intent.putExtra("motion_detected", detected);
-                    LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
+                    // Notify UI
+                    EventBus.getInstance().postMotion(detected);
                     
                     if (detected) {
                         // Motion detected - check if we should call immediately or start timer
-                        Log.w(TAG, "🚨 MOTION DETECTED! Checking device status and call state...");
+                        BikeLog.w(TAG, "🚨 MOTION DETECTED! magnitude={}", (double) magnitude);
                         
                         // First check if device is locked - ignore motion if unlocked
                         boolean isLocked = (stateManager != null) ? stateManager.isLocked() : false;
                         if (!isLocked) {
-                            Log.w(TAG, "🔓 MOTION IGNORED - Device is unlocked (status: " + 
-                                 (stateManager != null ? stateManager.getStatus() : "unknown") + ")");
+                            BikeLog.w(TAG, "🔓 MOTION IGNORED - Device is unlocked");
                             return; // Exit early, don't process motion when unlocked
                         }
                         
-                        // Add detailed state logging
-                        if (stateManager != null) {
-                            Log.w(TAG, "🔍 DETAILED STATE CHECK:");
-                            Log.w(TAG, "  🔒 Device locked: " + stateManager.isLocked());
-                            Log.w(TAG, "  📞 Call enabled: " + stateManager.getCall());
-                            Log.w(TAG, "  🚨 Alarm enabled: " + stateManager.getAlarm());
-                            Log.w(TAG, "  🟡 Call ready: " + stateManager.isCallReady());
-                            Log.w(TAG, "  ⏱️ Call delay active: " + stateManager.isCallDelayActive());
-                            Log.w(TAG, "  📱 Status: " + stateManager.getStatus());
-                            Log.w(TAG, "  📞 Admin number: " + stateManager.getAdminNumber());
-                        }
-                        
                         // Check if cooldown timer is active and if there's already a call in progress
                         boolean isTimerActive = (stateManager != null) ? stateManager.isCallDelayActive() : false;
                         boolean isCallActive = isCallInProgress();
                         
-                        Log.w(TAG, "🚨 DECISION FLOW: Locked=" + isLocked + ", TimerActive=" + isTimerActive + ", CallInProgress=" + isCallActive);
+                        // Detailed state is debug-only - the guard keeps release builds from reading prefs for it
+                        if (BikeLog.isDebugEnabled()) {
+                            BikeLog.d(TAG, "🔍 State: call={} alarm={} ready={}",
+                                 stateManager.getCall(), stateManager.getAlarm(), stateManager.isCallReady());
+                        }
+                        BikeLog.w(TAG, "🚨 DECISION FLOW: TimerActive={}, CallInProgress={}", isTimerActive, isCallActive);
                         
+                        // Same decision the replay tests record - see MotionResponse
+                        MotionResponse.Onset onset = MotionResponse.onset(true, isTimerActive, isCallActive,
+                            stateManager.getCall(), System.currentTimeMillis(), stateManager.getLastCallTime());
                         if (isCallActive) {
-                            Log.w(TAG, "🚨 MOTION IGNORED - Call already in progress, not making duplicate call");
                             // Still start alarm cycle to alert about motion, but don't call
-                            if (!isAlarmCycleActive) {
-                                Log.w(TAG, "🚨 Starting alarm cycle for motion during active call");
-                                startAlarmCycle();
-                            }
-                        } else if (!isTimerActive) {
+                            BikeLog.w(TAG, "🚨 MOTION IGNORED - Call already in progress, not making duplicate call");
+                        } else if (onset.startsCooldown) {
                             // No active cooldown - make call immediately and start new cooldown
-                            Log.w(TAG, "🚨 MOTION DETECTED - CALLING IMMEDIATELY!");
-                            Log.w(TAG, "🚨 Step 1: WAKING UP SCREEN immediately");
-                            wakeUpScreen();
-                            Log.w(TAG, "🚨 Step 2: Sending SMS alert");
-                            sendMotionAlert();
-                            Log.w(TAG, "🚨 Step 3: Starting 5-second alarm cycle");
-                            startAlarmCycle();
-                            Log.w(TAG, "🚨 Step 4: Making immediate call");
-                            Log.w(TAG, "🚨 CALLING makePhoneCall() now...");
-                            makePhoneCall();
-                            Log.w(TAG, "🚨 makePhoneCall() completed");
-                            Log.w(TAG, "🚨 Step 5: Starting 30-second cooldown timer");
+                            BikeLog.w(TAG, "🚨 MOTION DETECTED - alarm, call={}, cooldown", onset.dials);
                             startCallTimer();
-                            Log.w(TAG, "🚨 Call made immediately, starting cooldown");
                         } else {
                             // Timer already active - start new alarm cycle if not already running
-                            if (!isAlarmCycleActive) {
-                                Log.w(TAG, "🚨 Motion detected during active timer - starting new alarm cycle");
-                                startAlarmCycle();
-                            } else {
-                                Log.d(TAG, "🚨 Motion continues - alarm cycle already active");
-                            }
+                            BikeLog.w(TAG, "🚨 Motion detected during active timer - alarm only");
                         }
+                        dispatchAlert(magnitude, onset.channels);
                     } else {
                         // Motion stopped - DON'T stop alarm immediately, let 5-second cycle complete
-                        Log.d(TAG, "Motion stopped - alarm cycle will check and stop after current 5-second cycle completes");
                         // DON'T stop beeping here - let the alarm cycle system handle it
                         // DON'T cancel the delayed call - let it complete
+                        BikeLog.d(TAG, "Motion stopped - alarm cycle completes on its own");
                     }
-                    
-                    Log.d(TAG, "Motion: " + detected);
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error in sensor changed", e);
+            BikeLog.e(TAG, "Error in sensor changed", e);
         }
     }
     
@@ -873,22 +1120,35 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 return;
             }
             
-            if (!isBeeping && !isCurrentlyPlayingBeep) {
+            if (!isBeeping) {
                 // Request audio focus for alarm playback
                 requestAudioFocusForAlarm();
                 
                 isBeeping = true;
-                isCurrentlyPlayingBeep = false; // Ensure clean start
-                beepHandler.post(beepRunnable);
-                Log.w(TAG, "🚨 Started police sound - one sound at a time");
+                activeSiren = selectSiren();
+                if (activeSiren != null) {
+                    activeSiren.start(lastMotionTransitionNanos > 0 ? lastMotionTransitionNanos : System.nanoTime());
+                    lastMotionTransitionNanos = 0;
+                }
+                Log.w(TAG, "🚨 Started siren - pattern: " + stateManager.getSirenPattern());
             } else {
-                Log.d(TAG, "🔊 Beeping already active or playing - isBeeping:" + isBeeping + ", playing:" + isCurrentlyPlayingBeep);
+                Log.d(TAG, "🔊 Beeping already active");
             }
         } catch (Exception e) {
             Log.e(TAG, "Error starting beeping", e);
         }
     }
     
+    private Siren selectSiren() {
+        SirenSynthesizer.Pattern pattern = SirenSynthesizer.Pattern.fromPrefValue(stateManager.getSirenPattern());
+        if (pattern != null && synthSirenPlayer != null && synthSirenPlayer.isReady()) {
+            synthSirenPlayer.setPattern(pattern);
+            return synthSirenPlayer;
+        }
+        // Police recording is the default and the fallback while the synth is not ready
+        return sirenPlayer;
+    }
+    
     private void requestAudioFocusForAlarm() {
         try {
             if (audioManager != null) {
@@ -921,22 +1181,17 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         try {
             if (isBeeping) {
                 isBeeping = false;
-                isCurrentlyPlayingBeep = false;
                 
-                // Remove ALL pending beep-related callbacks
-                beepHandler.removeCallbacks(beepRunnable);
-                beepHandler.removeCallbacksAndMessages(null); // Remove any nested callbacks too
-                
-                // Stop any currently playing audio immediately
-                if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                    mediaPlayer.pause();
-                    mediaPlayer.seekTo(0); // Reset to beginning for next time
+                // Stop the looping siren immediately
+                if (activeSiren != null) {
+                    activeSiren.stop();
+                    activeSiren = null;
                 }
                 
                 // Release audio focus to allow normal call ringtone
                 releaseAudioFocusForCall();
                 
-                Log.d(TAG, "🔇 Stopped police sound - removed all callbacks and stopped current audio");
+                Log.d(TAG, "🔇 Stopped police sound");
             }
         } catch (Exception e) {
             Log.e(TAG, "Error stopping beeping", e);
@@ -952,6 +1207,9 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                         audioManager.abandonAudioFocusRequest(audioFocusRequest);
                         audioFocusRequest = null;
                         Log.d(TAG, "🔊 Audio focus released (Android O+) - call ringtone should play normally");
+                        if (readinessGate != null) {
+                            readinessGate.recheck();
+                        }
                     }
                 } else {
                     // For older versions
@@ -965,141 +1223,341 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
     }
     
     private boolean isCallInProgress() {
-        try {
-            TelephonyManager telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
-            if (telephonyManager != null) {
-                int callState = telephonyManager.getCallState();
-                boolean callActive = (callState == TelephonyManager.CALL_STATE_RINGING || 
-                                    callState == TelephonyManager.CALL_STATE_OFFHOOK);
-                
-                Log.d(TAG, "📞 Call state check: " + callState + " (IDLE=0, RINGING=1, OFFHOOK=2), Call active: " + callActive);
-                return callActive;
-            }
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking call state", e);
-            return false; // Assume no call if error
-        }
+        // Cached from telephony callbacks - no binder call on the motion path
+        return callStateTracker != null && callStateTracker.isCallActive();
     }
     
-    private void makePhoneCall() {
+    private void makePhoneCall(long triggerNanos) {
         try {
-            Log.w(TAG, "📞 MAKE PHONE CALL - Starting call attempt");
-            
             if (stateManager == null) {
-                Log.e(TAG, "❌ StateManager is null - cannot make call");
+                BikeLog.e(TAG, "❌ StateManager is null - cannot make call");
                 return;
             }
             
-            // Check all conditions with detailed logging
+            // Check all conditions
             boolean isLocked = stateManager.isLocked();
             boolean callEnabled = stateManager.getCall();
             
-            Log.w(TAG, "📞 CALL CONDITIONS CHECK:");
-            Log.w(TAG, "  🔒 Device locked: " + isLocked + " (status: " + stateManager.getStatus() + ")");
-            Log.w(TAG, "  📲 Call enabled: " + callEnabled);
-            
             if (!isLocked || !callEnabled) {
-                Log.e(TAG, "❌ Phone call BLOCKED - conditions not met!");
+                BikeLog.w(TAG, "❌ Phone call BLOCKED - locked={} callEnabled={}", isLocked, callEnabled);
                 return;
             }
             
-            Log.w(TAG, "✅ All conditions met - proceeding with call");
-            
             // Check cooldown period using stored time from state manager
             long currentTime = System.currentTimeMillis();
-            long storedLastCallTime = stateManager.getLastCallTime();
-            long timeSinceLastCall = currentTime - storedLastCallTime;
-            
-            Log.w(TAG, "📞 COOLDOWN CHECK:");
-            Log.w(TAG, "  ⏰ Current time: " + currentTime);
-            Log.w(TAG, "  ⏰ Last call time: " + storedLastCallTime);
-            Log.w(TAG, "  ⏰ Time since last call: " + (timeSinceLastCall / 1000) + "s");
-            Log.w(TAG, "  ⏰ Cooldown period: " + (CALL_COOLDOWN / 1000) + "s");
+            long timeSinceLastCall = currentTime - stateManager.getLastCallTime();
             
-            if (timeSinceLastCall < CALL_COOLDOWN) {
-                Log.e(TAG, "❌ Phone call BLOCKED - cooldown active (" + 
-                      ((CALL_COOLDOWN - timeSinceLastCall) / 1000) + "s remaining)");
-                Log.e(TAG, "❌ COOLDOWN DETAILS: last call was " + (timeSinceLastCall/1000) + "s ago, need " + (CALL_COOLDOWN/1000) + "s");
+            if (!MotionResponse.callAllowed(currentTime, stateManager.getLastCallTime())) {
+                BikeLog.w(TAG, "❌ Phone call BLOCKED - last call {}ms ago, cooldown {}ms", timeSinceLastCall, CALL_COOLDOWN);
                 return;
             }
             
-            Log.w(TAG, "✅ Cooldown period passed");
-            
-            String adminNumber = stateManager.getAdminNumber();
-            Log.w(TAG, "📞 ADMIN NUMBER CHECK:");
-            Log.w(TAG, "  📞 Admin number: '" + adminNumber + "'");
-            
-            if (adminNumber == null || adminNumber.isEmpty()) {
-                Log.e(TAG, "❌ Phone call BLOCKED - invalid admin number: " + adminNumber);
+            // Calls the contacts in order until someone answers - only one call tree per incident
+            if (escalationEngine.isActive()) {
+                BikeLog.w(TAG, "📞 Escalation already running - not starting another");
                 return;
             }
+            // Set before start() - with the gate already open the first dial happens inside it
+            incidentTriggerNanos = triggerNanos; // First dial of the incident closes the latency measurement
+            if (!escalationEngine.start(stateManager.getContacts())) {
+                incidentTriggerNanos = 0;
+            }
+            
+        } catch (Exception e) {
+            BikeLog.e(TAG, "Error making phone call", e);
+        }
+    }
+    
+    private boolean dialNumber(final String number) {
+        try {
+            if (stateManager == null || !stateManager.isLocked() || !stateManager.getCall()) {
+                return false;
+            }
             
-            Log.w(TAG, "✅ Valid admin number found");
-            Log.w(TAG, "📞 ATTEMPTING TO CALL: " + adminNumber);
+            BikeLog.w(TAG, "📞 ATTEMPTING TO CALL: {}", number);
             
             // Step 1: Stop all audio and release audio focus BEFORE calling
-            Log.w(TAG, "🔊 PREPARING AUDIO for call - stopping beeping and releasing audio focus");
             stopBeeping(); // This will also release audio focus
             
             // Step 2: Wake up the screen
             wakeUpScreen();
             
-            // Step 3: Wait a moment for screen to wake up and audio to be released, then initiate call
-            Handler callHandler = new Handler(Looper.getMainLooper());
-            callHandler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Log.w(TAG, "🔊 Audio preparation complete - initiating phone call after screen wake-up");
-                        
-                        Intent callIntent = new Intent(Intent.ACTION_CALL);
-                        callIntent.setData(Uri.parse("tel:" + adminNumber));
-                        callIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
-                                          Intent.FLAG_ACTIVITY_CLEAR_TOP |
-                                          Intent.FLAG_ACTIVITY_SINGLE_TOP);
-                        
-                        // Add flags to bring the call to foreground
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                            callIntent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-                        }
-                        
-                        startActivity(callIntent);
-                        stateManager.setLastCallTime(System.currentTimeMillis());
-                        
-                        // Clear call ready state and set to never after calling
-                        stateManager.setCallReady(false);
-                        
-                        // Stop beeping after successful call
-                        stopBeeping();
-                        
-                        Log.w(TAG, "✅ Phone call initiated successfully to: " + adminNumber + " - Stopped beeping, Timer set to Never");
-                        
-                        // Update UI to show "Never" after call
-                        updateNotificationAndUI();
-                        
-                        // Release screen wake lock after a delay
-                        callHandler.postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                releaseScreenWakeLock();
-                            }
-                        }, 5000); // Release after 5 seconds
-                        
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error starting phone call to " + adminNumber, e);
-                        releaseScreenWakeLock();
-                    }
-                }
-            }, 1500); // Wait 1.5 seconds for screen wake-up and audio cleanup
+            // Step 3: Dial as soon as the line is free - a call still in progress defers it to IDLE
+            if (callStateTracker.isIdle()) {
+                placeCallWhenReady(number);
+            } else {
+                BikeLog.w(TAG, "📞 Line busy - call to {} waits for IDLE", number);
+                pendingDialNumber = number;
+            }
+            return true;
             
         } catch (Exception e) {
-            Log.e(TAG, "Error making phone call", e);
+            BikeLog.e(TAG, "Error dialing " + number, e);
             releaseScreenWakeLock();
+            return false;
         }
     }
     
-    private void sendMotionAlert() {
+    // Dials as soon as the screen is on and audio focus is released, bounded by the gate timeout
+    private void placeCallWhenReady(final String number) {
+        readinessGate.await(new Runnable() {
+            @Override
+            public void run() {
+                placeCall(number);
+            }
+        });
+    }
+    
+    private void placeCall(String number) {
+        try {
+            Intent callIntent = new Intent(Intent.ACTION_CALL);
+            callIntent.setData(Uri.parse("tel:" + number));
+            callIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
+                              Intent.FLAG_ACTIVITY_CLEAR_TOP |
+                              Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            
+            // Add flags to bring the call to foreground
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                callIntent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+            }
+            
+            startActivity(callIntent);
+            escalationEngine.onDialPlaced();
+            long callTime = System.currentTimeMillis();
+            stateManager.setLastCallTime(callTime);
+            journal(IncidentJournal.CALL, callTime, 0);
+            if (incidentTriggerNanos > 0) {
+                long latency = (System.nanoTime() - incidentTriggerNanos) / 1000000;
+                motionToDialLatency.record(latency);
+                incidentTriggerNanos = 0;
+                BikeLog.w(TAG, "⏱️ Motion to dial: {}ms", latency);
+            }
+            
+            // Clear call ready state and set to never after calling
+            stateManager.setCallReady(false);
+            
+            BikeLog.w(TAG, "✅ Phone call initiated successfully to: {}", number);
+            
+            // Update UI to show "Never" after call
+            updateNotificationAndUI();
+            
+            // Screen is released once the call goes off-hook, or after the timeout if it never does
+            awaitingOffhook = true;
+            mainHandler.removeCallbacks(offhookTimeoutRunnable);
+            mainHandler.postDelayed(offhookTimeoutRunnable, OFFHOOK_TIMEOUT);
+            
+        } catch (Exception e) {
+            BikeLog.e(TAG, "Error starting phone call", e);
+            releaseScreenWakeLock();
+        }
+    }
+    
+    private void initAlertChannels() {
+        alertDispatcher = new AlertDispatcher();
+        
+        // Siren runs inline on the sensor thread - starting a prepared AudioTrack is cheap and latency-critical
+        alertDispatcher.register(new AlertChannel() {
+            @Override
+            public int getId() {
+                return AlertDispatcher.CHANNEL_SIREN;
+            }
+            
+            @Override
+            public String getName() {
+                return "Siren";
+            }
+            
+            @Override
+            public long getTimeoutMs() {
+                return 1000;
+            }
+            
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+            
+            @Override
+            public boolean deliver(AlertEvent event) {
+                if (!isAlarmCycleActive) {
+                    startAlarmCycle();
+                }
+                return true;
+            }
+        }, true);
+        
+        alertDispatcher.register(new AlertChannel() {
+            @Override
+            public int getId() {
+                return AlertDispatcher.CHANNEL_SMS;
+            }
+            
+            @Override
+            public String getName() {
+                return "SMS";
+            }
+            
+            @Override
+            public long getTimeoutMs() {
+                return 5000;
+            }
+            
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+            
+            @Override
+            public boolean deliver(AlertEvent event) {
+                sendMotionAlert(event.magnitude);
+                return true;
+            }
+        }, false);
+        
+        // The call flow touches audio focus, wake locks and handlers owned by the main thread
+        alertDispatcher.register(new AlertChannel() {
+            @Override
+            public int getId() {
+                return AlertDispatcher.CHANNEL_CALL;
+            }
+            
+            @Override
+            public String getName() {
+                return "Phone call";
+            }
+            
+            @Override
+            public long getTimeoutMs() {
+                return 5000;
+            }
+            
+            @Override
+            public boolean isEnabled() {
+                return stateManager != null && stateManager.getCall();
+            }
+            
+            @Override
+            public boolean deliver(AlertEvent event) throws InterruptedException {
+                return runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        wakeUpScreen();
+                        makePhoneCall(event.triggerNanos);
+                    }
+                }, getTimeoutMs());
+            }
+        }, false);
+        
+        webhookChannel = new WebhookAlertChannel(stateManager != null ? stateManager.getWebhookUrl() : "");
+        alertDispatcher.register(webhookChannel, false);
+    }
+    
+    private final Runnable offhookTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (awaitingOffhook) {
+                BikeLog.w(TAG, "❌ Call never went off-hook - releasing screen");
+                awaitingOffhook = false;
+                releaseScreenWakeLock();
+            }
+        }
+    };
+    
+    private void initCallStateTracking() {
+        callStateTracker = new CallStateTracker(this);
+        callStateTracker.start();
+        readinessGate = new ReadinessGate(this, new ReadinessGate.Condition() {
+            @Override
+            public boolean isMet() {
+                return audioFocusRequest == null; // Alarm focus abandoned - the ringback won't be ducked
+            }
+        }, ReadinessGate.DEFAULT_TIMEOUT);
+        callStateTracker.addListener(new CallStateTracker.Listener() {
+            @Override
+            public void onCallStateChanged(int previousState, int state) {
+                handleCallStateChange(state);
+            }
+        });
+    }
+    
+    // Dial -> OFFHOOK -> IDLE replaces the old fixed 1.5s/5s sleeps around the call intent
+    private void handleCallStateChange(int state) {
+        if (state == TelephonyManager.CALL_STATE_IDLE) {
+            if (pendingDialNumber != null) {
+                String number = pendingDialNumber;
+                pendingDialNumber = null;
+                BikeLog.d(TAG, "📞 Line idle - placing deferred call");
+                placeCallWhenReady(number);
+            } else {
+                publishNotification(); // Call ended - drop the "call active" text
+            }
+        } else if (state == TelephonyManager.CALL_STATE_OFFHOOK && awaitingOffhook) {
+            // In-call UI is up and owns the screen now
+            awaitingOffhook = false;
+            mainHandler.removeCallbacks(offhookTimeoutRunnable);
+            releaseScreenWakeLock();
+            publishNotification();
+        }
+    }
+    
+    // Unlocking or turning calls off ends a running call tree. Posted to the main thread, which owns the engine.
+    private final Runnable disarmCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (escalationEngine != null && escalationEngine.isActive() && stateManager != null
+                    && (!stateManager.isLocked() || !stateManager.getCall())) {
+                BikeLog.w(TAG, "🔓 Disarmed during escalation - no further contacts will be called");
+                escalationEngine.cancel();
+            }
+        }
+    };
+    
+    private void initEscalation() {
+        escalationEngine = new EscalationEngine(this, callStateTracker, new EscalationEngine.Dialer() {
+            @Override
+            public boolean dial(String number) {
+                return dialNumber(number);
+            }
+        });
+        escalationEngine.restore(); // Picks up an incident interrupted by a restart
+    }
+    
+    private void dispatchAlert(float magnitude, int channels) {
+        long triggerNanos = lastMotionTransitionNanos > 0 ? lastMotionTransitionNanos : System.nanoTime();
+        long now = System.currentTimeMillis();
+        webhookChannel.setUrl(stateManager.getWebhookUrl());
+        alertDispatcher.dispatch(new AlertEvent(triggerNanos, now, magnitude, stateManager.getStatus()), channels);
+        // Journal writes stay behind the hand-off so the alert never waits on the disk
+        journal(IncidentJournal.TRIGGER, now, Float.floatToIntBits(magnitude));
+        journal(IncidentJournal.ALERT, now, channels);
+        if (flightRecorder != null) {
+            // Sensor timestamps share the elapsedRealtimeNanos() timebase
+            flightRecorder.freeze(SystemClock.elapsedRealtimeNanos(), now);
+            mainHandler.removeCallbacks(flightCaptureTimeoutRunnable);
+            mainHandler.postDelayed(flightCaptureTimeoutRunnable, FlightRecorder.DEFAULT_AFTER_NANOS / 1000000 + 2000);
+        }
+    }
+    
+    private boolean runOnMainThread(final Runnable action, long timeoutMs) throws InterruptedException {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+            return true;
+        }
+        final CountDownLatch done = new CountDownLatch(1);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    action.run();
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void sendMotionAlert(float magnitude) {
         try {
             if (stateManager == null) return;
             
@@ -1109,27 +1567,22 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
                 return;
             }
             
-            // Check cooldown period
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastMotionAlertTime < MOTION_ALERT_COOLDOWN) {
-                Log.d(TAG, "Motion alert skipped - cooldown period");
+            List<String> contacts = stateManager.getContacts();
+            if (contacts.isEmpty()) {
+                Log.e(TAG, "No admin number set for motion alerts");
                 return;
             }
             
-            String adminNumber = stateManager.getAdminNumber();
-            if (adminNumber != null && !adminNumber.isEmpty()) {
-                String alertMessage = "🚨 MOTION ALERT: Your bike has been moved! Status: " + 
-                    stateManager.getStatus() + ", Time: " + 
-                    new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
-                
-                SmsManager smsManager = SmsManager.getDefault();
-                smsManager.sendTextMessage(adminNumber, null, alertMessage, null, null);
-                
-                lastMotionAlertTime = currentTime;
-                
-                Log.d(TAG, "Motion alert sent to: " + adminNumber);
-            } else {
-                Log.e(TAG, "No admin number set for motion alerts");
+            // First trigger of an incident alerts now, the rest are folded into the digest
+            String alertMessage = motionAlertAggregator.onTrigger(System.currentTimeMillis(), magnitude, stateManager.getStatus());
+            if (alertMessage != null) {
+                // Every contact is texted at once - only the calls go one by one
+                SmsOutbox outbox = SmsOutbox.getInstance(this);
+                for (String contact : contacts) {
+                    outbox.enqueue(contact, alertMessage);
+                }
+                scheduleAlertDigest();
+                Log.d(TAG, "Motion alert queued for " + contacts.size() + " contact(s)");
             }
             
         } catch (Exception e) {
@@ -1137,11 +1590,97 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
         }
     }
     
+    private void scheduleAlertDigest() {
+        alertDigestHandler.removeCallbacks(alertDigestRunnable);
+        if (motionAlertAggregator.isIncidentActive()) {
+            long delay = Math.max(0, motionAlertAggregator.getNextDigestTime() - System.currentTimeMillis());
+            alertDigestHandler.postDelayed(alertDigestRunnable, delay);
+        }
+    }
+    
+    private final Runnable alertDigestRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                if (stateManager == null) return;
+                String digest = motionAlertAggregator.onDigestDue(System.currentTimeMillis(), stateManager.getStatus());
+                if (digest != null) {
+                    SmsOutbox outbox = SmsOutbox.getInstance(SimpleMotionDetectionService.this);
+                    for (String contact : stateManager.getContacts()) {
+                        outbox.enqueue(contact, digest);
+                    }
+                    Log.d(TAG, "Motion digest queued");
+                }
+                scheduleAlertDigest();
+            } catch (Exception e) {
+                Log.e(TAG, "Error sending motion digest", e);
+            }
+        }
+    };
+    
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        // adb shell dumpsys activity service com.example.mybike/.SimpleMotionDetectionService
+        try {
+            writer.println("MyBike monitoring diagnostics");
+            writer.println("Status: " + (stateManager != null ? stateManager.getStatus() : "unknown") +
+                ", motion: " + motionDetected + ", cooldown active: " + isCallDelayActive);
+            writer.println(sirenStartLatency.summary());
+            writer.println("Time to armed: " + timeToArmedMs + "ms from process start, " + armedAfterCreateMs +
+                "ms from onCreate; startup complete after " + startupCompleteMs + "ms");
+            writer.println("Boot to armed: " + (bootToArmedMs >= 0 ? bootToArmedMs + "ms" : "not started by boot"));
+            if (notificationPublisher != null) {
+                writer.println("Notifications published: " + notificationPublisher.getPublishedCount() +
+                    ", suppressed: " + notificationPublisher.getSuppressedCount());
+            }
+            writer.println(SmsReceiver.getLatencySummary());
+            writer.println(SmsOutbox.getInstance(this).summary());
+            if (alertDispatcher != null) {
+                writer.println(alertDispatcher.summary());
+            }
+            if (escalationEngine != null) {
+                writer.println(escalationEngine.summary());
+            }
+            if (callStateTracker != null) {
+                writer.println(callStateTracker.summary());
+            }
+            writer.println(motionToDialLatency.summary());
+            if (powerPolicyEngine != null) {
+                writer.println(powerPolicyEngine.summary());
+            }
+            writer.println(WakeLockManager.getInstance(this).summary());
+            writer.println("Memory: " + ProcessMemory.describe() + ", bound clients " +
+                remoteListeners.getRegisteredCallbackCount());
+            synchronized (liveState) {
+                writer.println("Live state: " + liveState);
+            }
+            if (readinessGate != null) {
+                writer.println(readinessGate.summary());
+            }
+            if (incidentJournal != null) {
+                writer.println(incidentJournal.summary());
+            }
+            if (flightRecorder != null) {
+                writer.println(flightRecorder.summary());
+            }
+            if (motionAlertAggregator != null) {
+                writer.println("Motion alerts sent: " + motionAlertAggregator.getAlertsSent() +
+                    ", triggers folded into digests: " + motionAlertAggregator.getTriggersFolded());
+            }
+            writer.println();
+            BikeLog.dump(writer);
+        } catch (Exception e) {
+            writer.println("Error writing diagnostics: " + e);
+        }
+    }
+    
     @Override
     public void onDestroy() {
         super.onDestroy();
         
         try {
+            startupComplete = true; // A stage 3 still queued must not bring anything up after this
+            
             if (sensorManager != null) {
                 sensorManager.unregisterListener(this);
             }
@@ -1155,24 +1694,60 @@ public class SimpleMotionDetectionService extends Service implements SensorEvent
             if (sensorHealthHandler != null && sensorHealthRunnable != null) {
                 sensorHealthHandler.removeCallbacks(sensorHealthRunnable);
             }
+            if (alertDigestHandler != null) {
+                alertDigestHandler.removeCallbacks(alertDigestRunnable);
+            }
+            if (alertDispatcher != null) {
+                alertDispatcher.shutdown();
+            }
+            if (escalationEngine != null) {
+                escalationEngine.shutdown(); // State stays persisted for the next start
+            }
+            if (callStateTracker != null) {
+                callStateTracker.stop();
+            }
+            if (powerPolicyEngine != null) {
+                powerPolicyEngine.stop();
+            }
+            if (bridgeSubscriber != null) {
+                EventBus.getInstance().unregisterAll(bridgeSubscriber);
+                bridgeExecutor.shutdown();
+            }
+            remoteListeners.kill();
+            if (incidentJournal != null) {
+                incidentJournal.close();
+            }
+            if (flightRecorder != null) {
+                mainHandler.removeCallbacks(flightCaptureTimeoutRunnable);
+                flightRecorder.close();
+            }
+            if (readinessGate != null) {
+                readinessGate.cancel();
+            }
+            if (mainHandler != null) {
+                mainHandler.removeCallbacks(offhookTimeoutRunnable);
+            }
             
             // Stop call timer and UI updates
             cancelCallTimer();
             cancelScheduledCall();
             stopUIUpdates();
+            if (notificationPublisher != null) {
+                notificationPublisher.cancelPending();
+            }
             
-            // Release media player
-            if (mediaPlayer != null) {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-                mediaPlayer = null;
+            // Release siren player
+            if (sirenPlayer != null) {
+                sirenPlayer.release();
+                sirenPlayer = null;
+            }
+            if (synthSirenPlayer != null) {
+                synthSirenPlayer.release();
+                synthSirenPlayer = null;
             }
             
             // Reset beep states
             isBeeping = false;
-            isCurrentlyPlayingBeep = false;
             
             // Release wake locks
             releaseWakeLock();
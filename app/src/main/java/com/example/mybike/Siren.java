@@ -0,0 +1,16 @@
+package com.example.mybike;
+
+// Common contract for the alarm sound engines used by the alarm cycle
+public interface Siren {
+    void prepareAsync();
+    
+    void start(long triggerNanos);
+    
+    void stop();
+    
+    boolean isReady();
+    
+    boolean isPlaying();
+    
+    void release();
+}
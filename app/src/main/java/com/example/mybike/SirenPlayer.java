@@ -0,0 +1,416 @@
+package com.example.mybike;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+public class SirenPlayer implements Siren {
+    private static final String TAG = "SirenPlayer";
+    private static final String ASSET_NAME = "police.mp3";
+    private static final String CACHE_NAME = "police.pcm";
+    private static final int CACHE_MAGIC = 0x50434d31; // "PCM1"
+    private static final int CACHE_VERSION = 2; // Bump whenever decoding or downmixing changes the PCM
+    private static final int CACHE_HEADER_BYTES = 5 * 4; // magic, version, asset length, sample rate, frames
+    private static final int MAX_CACHE_FRAMES = 48000 * 60; // A minute of mono audio - anything larger is corrupt
+    private static final long CODEC_TIMEOUT_US = 10000;
+
+    private final Context context;
+    private final LatencyRecorder startLatency; // Motion-to-first-audible-sample, owned by the caller
+    private HandlerThread audioThread;
+    private Handler audioHandler;
+
+    private AudioTrack audioTrack;
+    private int sampleRate;
+    private int frameCount;
+    private volatile boolean ready = false;
+    private volatile boolean playing = false;
+    private volatile boolean startPending = false;
+    private long pendingTriggerNanos = 0;
+    private long startFramePosition = 0; // Frames the track had played before the current start
+    private long decodeTimeMs = 0;
+
+    public SirenPlayer(Context context, LatencyRecorder startLatency) {
+        this.context = context.getApplicationContext();
+        this.startLatency = startLatency;
+    }
+
+    @Override
+    public void prepareAsync() {
+        try {
+            audioThread = new HandlerThread("SirenPlayer");
+            audioThread.start();
+            audioHandler = new Handler(audioThread.getLooper());
+            audioHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    prepare();
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting siren preparation", e);
+        }
+    }
+
+    private void prepare() {
+        try {
+            long startTime = System.nanoTime();
+            short[] pcm = loadCachedPcm();
+            if (pcm == null) {
+                pcm = decodeAsset();
+                if (pcm != null) {
+                    saveCachedPcm(pcm);
+                }
+            }
+            if (pcm == null || pcm.length == 0) {
+                Log.e(TAG, "No PCM data available for siren");
+                return;
+            }
+            decodeTimeMs = (System.nanoTime() - startTime) / 1000000;
+            frameCount = pcm.length;
+
+            audioTrack = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(sampleRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STATIC)
+                    .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                    .setBufferSizeInBytes(pcm.length * 2)
+                    .build();
+            audioTrack.write(pcm, 0, pcm.length);
+            // Loop the whole buffer forever - no decoder restart and no gap between repetitions
+            audioTrack.setLoopPoints(0, frameCount, -1);
+            audioTrack.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+                @Override
+                public void onMarkerReached(AudioTrack track) {
+                    measureStartLatency();
+                }
+
+                @Override
+                public void onPeriodicNotification(AudioTrack track) {
+                }
+            }, audioHandler);
+
+            ready = true;
+            Log.d(TAG, "Siren ready - " + frameCount + " frames @ " + sampleRate + "Hz, prepared in " + decodeTimeMs + "ms");
+
+            if (startPending) {
+                startPending = false;
+                startOnAudioThread(pendingTriggerNanos);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error preparing siren", e);
+        }
+    }
+
+    private short[] decodeAsset() {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            AssetFileDescriptor afd = context.getAssets().openFd(ASSET_NAME);
+            extractor.setDataSource(afd);
+            afd.close();
+
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                Log.e(TAG, "No audio track in " + ASSET_NAME);
+                return null;
+            }
+
+            sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            ShortBuffer out = ShortBuffer.allocate(sampleRate * 10);
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+
+            while (!outputDone) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer inBuffer = codec.getInputBuffer(inIndex);
+                        int size = extractor.readSampleData(inBuffer, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (outIndex >= 0) {
+                    ByteBuffer outBuffer = codec.getOutputBuffer(outIndex);
+                    if (outBuffer != null && info.size > 0) {
+                        outBuffer.position(info.offset);
+                        outBuffer.limit(info.offset + info.size);
+                        ShortBuffer samples = outBuffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                        out = appendDownmixed(out, samples, channels);
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        outputDone = true;
+                    }
+                }
+            }
+
+            short[] pcm = new short[out.position()];
+            out.flip();
+            out.get(pcm);
+            Log.d(TAG, "Decoded " + ASSET_NAME + " into " + pcm.length + " mono frames");
+            return pcm;
+        } catch (Exception e) {
+            Log.e(TAG, "Error decoding " + ASSET_NAME, e);
+            return null;
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (Exception ignored) {
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    // Mono keeps the static buffer small enough for every device's shared memory limit
+    private ShortBuffer appendDownmixed(ShortBuffer out, ShortBuffer samples, int channels) {
+        int frames = samples.remaining() / Math.max(1, channels);
+        if (out.remaining() < frames) {
+            ShortBuffer bigger = ShortBuffer.allocate(Math.max(out.capacity() * 2, out.position() + frames));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += samples.get();
+            }
+            out.put((short) (sum / Math.max(1, channels)));
+        }
+        return out;
+    }
+
+    // Keys the cache to the asset, so a replaced recording is decoded again
+    private long getAssetLength() {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(ASSET_NAME)) {
+            return afd.getLength();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not stat " + ASSET_NAME, e);
+            return -1;
+        }
+    }
+
+    private short[] loadCachedPcm() {
+        DeviceStorage.deleteLegacyCache(context, CACHE_NAME);
+        File cacheFile = new File(DeviceStorage.context(context).getCacheDir(), CACHE_NAME);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readInt() != (int) getAssetLength()) {
+                Log.d(TAG, "Cached siren PCM is stale, decoding again");
+                cacheFile.delete();
+                return null;
+            }
+            int rate = in.readInt();
+            int length = in.readInt();
+            if (rate <= 0 || length <= 0 || length > MAX_CACHE_FRAMES
+                    || cacheFile.length() != CACHE_HEADER_BYTES + (long) length * 2) {
+                throw new IOException("Bad cache header: " + length + " frames @ " + rate + "Hz in "
+                    + cacheFile.length() + " bytes");
+            }
+            sampleRate = rate;
+            short[] pcm = new short[length];
+            for (int i = 0; i < length; i++) {
+                pcm[i] = in.readShort();
+            }
+            Log.d(TAG, "Loaded cached siren PCM (" + length + " frames)");
+            return pcm;
+        } catch (Exception e) {
+            Log.w(TAG, "Cached siren PCM unreadable, decoding again", e);
+            cacheFile.delete();
+            return null;
+        }
+    }
+
+    private void saveCachedPcm(short[] pcm) {
+        File cacheFile = new File(DeviceStorage.context(context).getCacheDir(), CACHE_NAME);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            out.writeInt((int) getAssetLength());
+            out.writeInt(sampleRate);
+            out.writeInt(pcm.length);
+            for (short sample : pcm) {
+                out.writeShort(sample);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not cache siren PCM", e);
+            cacheFile.delete();
+        }
+    }
+
+    @Override
+    public void start(final long triggerNanos) {
+        if (audioHandler == null) {
+            return;
+        }
+        audioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!ready) {
+                    // Still decoding - play as soon as the buffer is ready
+                    pendingTriggerNanos = triggerNanos;
+                    startPending = true;
+                    return;
+                }
+                startOnAudioThread(triggerNanos);
+            }
+        });
+    }
+
+    private void startOnAudioThread(long triggerNanos) {
+        try {
+            if (playing || audioTrack == null) {
+                return;
+            }
+            pendingTriggerNanos = triggerNanos;
+            // Timestamps count every frame since the track was created - remember where this run starts
+            AudioTimestamp timestamp = new AudioTimestamp();
+            startFramePosition = audioTrack.getTimestamp(timestamp) ? timestamp.framePosition : 0;
+            audioTrack.setPlaybackHeadPosition(0);
+            audioTrack.setNotificationMarkerPosition(1);
+            audioTrack.play();
+            playing = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting siren", e);
+        }
+    }
+
+    private void measureStartLatency() {
+        try {
+            if (pendingTriggerNanos <= 0) {
+                return;
+            }
+            long firstSampleNanos = System.nanoTime();
+            AudioTimestamp timestamp = new AudioTimestamp();
+            if (audioTrack.getTimestamp(timestamp) && timestamp.framePosition >= 0) {
+                // Extrapolate back to the moment frame 0 of this run left the speaker
+                long framesPlayed = Math.max(0, timestamp.framePosition - startFramePosition);
+                firstSampleNanos = timestamp.nanoTime - (framesPlayed * 1000000000L / sampleRate);
+            }
+            long latencyMs = Math.max(0, (firstSampleNanos - pendingTriggerNanos) / 1000000);
+            startLatency.record(latencyMs);
+            Log.d(TAG, "🚨 Motion-to-siren latency: " + latencyMs + "ms");
+            pendingTriggerNanos = 0;
+        } catch (Exception e) {
+            Log.e(TAG, "Error measuring siren latency", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (audioHandler == null) {
+            return;
+        }
+        startPending = false;
+        audioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (playing && audioTrack != null) {
+                        // Pause rather than stop so the static buffer stays loaded for the next cycle
+                        audioTrack.pause();
+                        playing = false;
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error stopping siren", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getDecodeTimeMs() {
+        return decodeTimeMs;
+    }
+
+    @Override
+    public void release() {
+        if (audioHandler == null) {
+            return;
+        }
+        audioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (audioTrack != null) {
+                        audioTrack.release();
+                        audioTrack = null;
+                    }
+                    ready = false;
+                    playing = false;
+                } catch (Exception e) {
+                    Log.e(TAG, "Error releasing siren", e);
+                }
+                audioThread.quitSafely();
+            }
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mybike;
+
+// Procedural siren generator - all tables are built in the constructor so render() only
+// does integer table lookups into the caller's buffer.
+public class SirenSynthesizer {
+    
+    public enum Pattern {
+        WAIL("wail"),
+        YELP("yelp"),
+        HI_LO("hilo");
+        
+        private final String prefValue;
+        
+        Pattern(String prefValue) {
+            this.prefValue = prefValue;
+        }
+        
+        public String getPrefValue() {
+            return prefValue;
+        }
+        
+        public static Pattern fromPrefValue(String value) {
+            for (Pattern pattern : values()) {
+                if (pattern.prefValue.equals(value)) {
+                    return pattern;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private static final int WAVE_BITS = 11;
+    private static final int WAVE_SIZE = 1 << WAVE_BITS; // 2048-entry single-cycle wavetable
+    private static final int SWEEP_BITS = 10;
+    private static final int SWEEP_SIZE = 1 << SWEEP_BITS; // 1024 frequency steps per sweep period
+    private static final float AMPLITUDE = 0.8f;
+    
+    private static final float LOW_FREQUENCY = 650f;
+    private static final float HIGH_FREQUENCY = 1450f;
+    private static final float WAIL_PERIOD_SECONDS = 4.0f;
+    private static final float YELP_PERIOD_SECONDS = 0.32f;
+    private static final float HI_LO_PERIOD_SECONDS = 1.0f;
+    private static final float HI_LO_HIGH = 960f;
+    private static final float HI_LO_LOW = 770f;
+    
+    private final int sampleRate;
+    private final short[] waveTable = new short[WAVE_SIZE];
+    private final int[][] phaseIncrements = new int[Pattern.values().length][SWEEP_SIZE];
+    private final int[] sweepIncrements = new int[Pattern.values().length];
+    
+    private Pattern pattern = Pattern.WAIL;
+    private int phase = 0;      // 32-bit phase accumulator for the tone, wraps naturally
+    private int sweepPhase = 0; // 32-bit phase accumulator for the frequency sweep
+    
+    public SirenSynthesizer(int sampleRate) {
+        this.sampleRate = sampleRate;
+        buildWaveTable();
+        buildSweep(Pattern.WAIL, WAIL_PERIOD_SECONDS);
+        buildSweep(Pattern.YELP, YELP_PERIOD_SECONDS);
+        buildSweep(Pattern.HI_LO, HI_LO_PERIOD_SECONDS);
+    }
+    
+    private void buildWaveTable() {
+        // Fundamental plus odd harmonics gives the hard edge of an electronic siren
+        double[] harmonics = {1.0, 0.0, 0.33, 0.0, 0.2, 0.0, 0.14};
+        double peak = 0;
+        double[] raw = new double[WAVE_SIZE];
+        for (int i = 0; i < WAVE_SIZE; i++) {
+            double angle = 2 * Math.PI * i / WAVE_SIZE;
+            double value = 0;
+            for (int h = 0; h < harmonics.length; h++) {
+                value += harmonics[h] * Math.sin((h + 1) * angle);
+            }
+            raw[i] = value;
+            peak = Math.max(peak, Math.abs(value));
+        }
+        for (int i = 0; i < WAVE_SIZE; i++) {
+            waveTable[i] = (short) Math.round(raw[i] / peak * AMPLITUDE * Short.MAX_VALUE);
+        }
+    }
+    
+    private void buildSweep(Pattern target, float periodSeconds) {
+        int[] increments = phaseIncrements[target.ordinal()];
+        for (int i = 0; i < SWEEP_SIZE; i++) {
+            double position = (double) i / SWEEP_SIZE;
+            double frequency;
+            switch (target) {
+                case WAIL:
+                    // Slow rise, slightly faster fall
+                    frequency = position < 0.6
+                            ? LOW_FREQUENCY + (HIGH_FREQUENCY - LOW_FREQUENCY) * Math.sin(position / 0.6 * Math.PI / 2)
+                            : HIGH_FREQUENCY - (HIGH_FREQUENCY - LOW_FREQUENCY) * (position - 0.6) / 0.4;
+                    break;
+                case YELP:
+                    // Rapid triangle sweep across the same range
+                    double triangle = position < 0.5 ? position * 2 : (1 - position) * 2;
+                    frequency = LOW_FREQUENCY + (HIGH_FREQUENCY - LOW_FREQUENCY) * triangle;
+                    break;
+                default:
+                    frequency = position < 0.5 ? HI_LO_HIGH : HI_LO_LOW;
+                    break;
+            }
+            increments[i] = toPhaseIncrement(frequency);
+        }
+        sweepIncrements[target.ordinal()] = toPhaseIncrement(1.0 / periodSeconds);
+    }
+    
+    private int toPhaseIncrement(double frequency) {
+        return (int) Math.round(frequency / sampleRate * 4294967296.0);
+    }
+    
+    public void setPattern(Pattern pattern) {
+        if (pattern != null) {
+            this.pattern = pattern;
+        }
+    }
+    
+    public Pattern getPattern() {
+        return pattern;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public void reset() {
+        phase = 0;
+        sweepPhase = 0;
+    }
+    
+    public void render(short[] buffer, int offset, int length) {
+        int[] increments = phaseIncrements[pattern.ordinal()];
+        int sweepIncrement = sweepIncrements[pattern.ordinal()];
+        int localPhase = phase;
+        int localSweep = sweepPhase;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            buffer[i] = waveTable[localPhase >>> (32 - WAVE_BITS)];
+            localPhase += increments[localSweep >>> (32 - SWEEP_BITS)];
+            localSweep += sweepIncrement;
+        }
+        phase = localPhase;
+        sweepPhase = localSweep;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.mybike;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+// Splits an SMS into commands (separated by ';' or newlines) and resolves each one against a
+// table of names and aliases built once up front. Scanning is a single pass over the chars -
+// no regex, no lowercasing of the whole message. Not thread-safe: parse() reuses a scratch array.
+public final class SmsCommandParser {
+    
+    public static final int CMD_LOCK = 1;
+    public static final int CMD_UNLOCK = 2;
+    public static final int CMD_CALL = 3;
+    public static final int CMD_ALARM = 4;
+    public static final int CMD_SIREN = 5;
+    public static final int CMD_SET_ADMIN_NUMBER = 6;
+    public static final int CMD_STATUS = 7;
+    public static final int CMD_DUMP_LOG = 8;
+    public static final int CMD_TEST_CALL = 9;
+    public static final int CMD_TEST_DELAY = 10;
+    public static final int CMD_TEST_TIMER = 11;
+    public static final int CMD_TEST_MOTION = 12;
+    public static final int CMD_TEST_READY = 13;
+    public static final int CMD_STOP_TEST = 14;
+    public static final int CMD_WEBHOOK = 15;
+    public static final int CMD_CONTACTS = 16;
+    public static final int CMD_RATE_LIMIT = 17;
+    
+    public static final int MAX_COMMANDS = 8; // Anything after this in one SMS is ignored
+    private static final int MAX_ARGS = 4;
+    
+    private static final String[] NO_ARGS = new String[0];
+    
+    private static final class Spec {
+        final int id;
+        final String name;
+        final int minArgs;
+        final int maxArgs;
+        final boolean rawArgument; // Everything after the name is one argument, spaces included
+        
+        Spec(int id, String name, int minArgs, int maxArgs, boolean rawArgument) {
+            this.id = id;
+            this.name = name;
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+            this.rawArgument = rawArgument;
+        }
+    }
+    
+    public static final class Invocation {
+        public final int id;          // 0 when the command is unknown
+        public final String name;     // canonical name, or the word as typed when unknown
+        public final String[] args;   // original case - phone numbers are passed through untouched
+        public final String error;    // usage message when the argument count is wrong
+        
+        Invocation(int id, String name, String[] args, String error) {
+            this.id = id;
+            this.name = name;
+            this.args = args;
+            this.error = error;
+        }
+        
+        public boolean isValid() {
+            return id != 0 && error == null;
+        }
+    }
+    
+    private final HashMap<String, Spec> table = new HashMap<>();
+    private final String[] argScratch = new String[MAX_ARGS + 1];
+    
+    public static SmsCommandParser createDefault() {
+        SmsCommandParser parser = new SmsCommandParser();
+        parser.register(CMD_LOCK, "lock", 0, 0);
+        parser.register(CMD_UNLOCK, "unlock", 0, 0);
+        parser.register(CMD_CALL, "call", 1, 1);
+        parser.register(CMD_ALARM, "alarm", 1, 1);
+        parser.alias("alerm", "alarm"); // Original spelling, still used by existing users
+        parser.register(CMD_SIREN, "siren", 1, 1);
+        parser.registerRaw(CMD_SET_ADMIN_NUMBER, "setadminnumber"); // "+880 1743 395086" stays one number
+        parser.register(CMD_STATUS, "status", 0, 0);
+        parser.register(CMD_DUMP_LOG, "dumplog", 0, 0);
+        parser.register(CMD_TEST_CALL, "testcall", 0, 0);
+        parser.register(CMD_TEST_DELAY, "testdelay", 0, 0);
+        parser.register(CMD_TEST_TIMER, "testtimer", 0, 0);
+        parser.register(CMD_TEST_MOTION, "testmotion", 0, 0);
+        parser.register(CMD_TEST_READY, "testready", 0, 0);
+        parser.register(CMD_STOP_TEST, "stoptest", 0, 0);
+        parser.registerRaw(CMD_WEBHOOK, "webhook");
+        parser.registerRaw(CMD_CONTACTS, "contacts"); // Comma separated, so numbers may contain spaces
+        parser.register(CMD_RATE_LIMIT, "ratelimit", 4, 4);
+        return parser;
+    }
+    
+    public void register(int id, String name, int minArgs, int maxArgs) {
+        table.put(name, new Spec(id, name, minArgs, Math.min(maxArgs, MAX_ARGS), false));
+    }
+    
+    public void registerRaw(int id, String name) {
+        table.put(name, new Spec(id, name, 1, 1, true));
+    }
+    
+    public void alias(String alias, String name) {
+        Spec spec = table.get(name);
+        if (spec == null) {
+            throw new IllegalArgumentException("Unknown command: " + name);
+        }
+        table.put(alias, spec);
+    }
+    
+    public List<Invocation> parse(String message) {
+        List<Invocation> result = new ArrayList<>(2);
+        parse(message, result);
+        return result;
+    }
+    
+    // Appends one Invocation per non-empty command; returns how many were added
+    public int parse(String message, List<Invocation> out) {
+        if (message == null) {
+            return 0;
+        }
+        int added = 0;
+        int length = message.length();
+        int start = 0;
+        while (start <= length && added < MAX_COMMANDS) {
+            int end = start;
+            while (end < length) {
+                char c = message.charAt(end);
+                if (c == ';' || c == '\n' || c == '\r') {
+                    break;
+                }
+                end++;
+            }
+            Invocation invocation = parseCommand(message, start, end);
+            if (invocation != null) {
+                out.add(invocation);
+                added++;
+            }
+            start = end + 1;
+        }
+        return added;
+    }
+    
+    private Invocation parseCommand(String message, int start, int end) {
+        int i = skipWhitespace(message, start, end);
+        if (i == end) {
+            return null;
+        }
+        int nameStart = i;
+        while (i < end && !Character.isWhitespace(message.charAt(i))) {
+            i++;
+        }
+        String name = lowerCase(message, nameStart, i);
+        Spec spec = table.get(name);
+        if (spec == null) {
+            return new Invocation(0, name, NO_ARGS, null);
+        }
+        
+        int argCount = 0;
+        if (spec.rawArgument) {
+            i = skipWhitespace(message, i, end);
+            int argEnd = end;
+            while (argEnd > i && Character.isWhitespace(message.charAt(argEnd - 1))) {
+                argEnd--;
+            }
+            if (argEnd > i) {
+                argScratch[argCount++] = message.substring(i, argEnd);
+            }
+        } else {
+            while (true) {
+                i = skipWhitespace(message, i, end);
+                if (i == end) {
+                    break;
+                }
+                int tokenStart = i;
+                while (i < end && !Character.isWhitespace(message.charAt(i))) {
+                    i++;
+                }
+                // One slot past the limit is enough to report "too many arguments"
+                if (argCount < argScratch.length) {
+                    argScratch[argCount] = message.substring(tokenStart, i);
+                }
+                argCount++;
+            }
+        }
+        
+        String[] args = NO_ARGS;
+        int kept = Math.min(argCount, MAX_ARGS);
+        if (kept > 0) {
+            args = new String[kept];
+            System.arraycopy(argScratch, 0, args, 0, kept);
+        }
+        for (int k = 0; k < argScratch.length; k++) {
+            argScratch[k] = null;
+        }
+        
+        String error = null;
+        if (argCount < spec.minArgs || argCount > spec.maxArgs) {
+            error = spec.maxArgs == 0
+                    ? spec.name + " takes no arguments"
+                    : "Invalid format. Use: " + spec.name + " <" + (spec.maxArgs == 1 ? "value" : "values") + ">";
+        }
+        return new Invocation(spec.id, spec.name, args, error);
+    }
+    
+    private static int skipWhitespace(String message, int i, int end) {
+        while (i < end && Character.isWhitespace(message.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static String lowerCase(String message, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = message.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return message.substring(start, end).toLowerCase(Locale.ROOT);
+            }
+        }
+        return message.substring(start, end);
+    }
+}
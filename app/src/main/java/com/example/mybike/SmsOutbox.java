@@ -0,0 +1,422 @@
+package com.example.mybike;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.telephony.SmsManager;
+import android.telephony.SmsMessage;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Single outbound path for every SMS the app sends. Messages are persisted before sending,
+// texts waiting for the same recipient are merged, long texts go out as multipart, and the
+// sent/delivered PendingIntents drive retries with backoff and the time-to-delivery metric.
+// All state lives on the outbox thread; summary() only reads a snapshot of the counts.
+public class SmsOutbox {
+    private static final String TAG = "SmsOutbox";
+    private static final String PREFS_NAME = "MyBikeOutbox";
+    private static final String KEY_QUEUE = "queue";
+    private static final String KEY_NEXT_ID = "next_id";
+    
+    public static final String ACTION_SENT = "com.example.mybike.SMS_SENT";
+    public static final String ACTION_DELIVERED = "com.example.mybike.SMS_DELIVERED";
+    public static final String EXTRA_MESSAGE_ID = "message_id";
+    public static final String EXTRA_PART = "part";
+    public static final String EXTRA_ATTEMPT = "attempt";
+    
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF = 15000;      // 15s, 30s, 60s, 120s between attempts
+    private static final long SENT_TIMEOUT = 60000;      // Treat a missing sent callback as a failure
+    private static final long DELIVERY_TRACKING_WINDOW = 24 * 60 * 60 * 1000L;
+    
+    private static final int DELIVERY_OK = 0;
+    private static final int DELIVERY_PENDING = 1;
+    private static final int DELIVERY_FAILED = 2;
+    
+    private static final class Entry {
+        long id;
+        String recipient;
+        String text;
+        long createdAt;   // Wall clock - survives restarts
+        int attempts = 0;
+        long notBefore = 0;
+        
+        // In flight only, never persisted
+        int partsPending = 0;
+        boolean partFailed = false;
+        
+        // A timed-out attempt whose sent results may still arrive while the retry waits
+        int timedOutAttempt = 0;
+        int timedOutPartsPending = 0;
+    }
+    
+    private static SmsOutbox instance;
+    
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler;
+    private final ArrayList<Entry> queue = new ArrayList<>();
+    private final HashMap<Long, Long> awaitingDelivery = new HashMap<>(); // id -> createdAt
+    private Entry inFlight;
+    private long nextId;
+    
+    private final LatencyRecorder sentLatency = new LatencyRecorder("SMS time to sent", 64);
+    private final LatencyRecorder deliveryLatency = new LatencyRecorder("SMS time to delivery", 64);
+    private long sentCount = 0;
+    private long failedCount = 0;
+    private long retryCount = 0;
+    private long coalescedCount = 0;
+    private long lateSentCount = 0;
+    private long deliveryFailedCount = 0;
+    private volatile String countsSnapshot = "SMS outbox: restoring";
+    
+    private final Runnable pumpRunnable = new Runnable() {
+        @Override
+        public void run() {
+            pump();
+        }
+    };
+    
+    private final Runnable sentTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (inFlight != null) {
+                Log.w(TAG, "❌ No sent result for SMS " + inFlight.id + " - treating as failed");
+                if (!inFlight.partFailed) {
+                    // A late OK for every outstanding part still cancels the retry
+                    inFlight.timedOutAttempt = inFlight.attempts;
+                    inFlight.timedOutPartsPending = inFlight.partsPending;
+                }
+                finishInFlight(false);
+            }
+        }
+    };
+    
+    public static synchronized SmsOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new SmsOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    private SmsOutbox(Context context) {
+        this.context = context;
+        this.prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        HandlerThread thread = new HandlerThread("SmsOutbox");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                restore();
+                snapshotCounts();
+                pump();
+            }
+        });
+    }
+    
+    public void enqueue(final String recipient, final String text) {
+        if (recipient == null || recipient.isEmpty() || text == null || text.isEmpty()) {
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Merge into a message still waiting for the same recipient instead of sending another SMS
+                for (Entry entry : queue) {
+                    if (entry != inFlight && entry.timedOutAttempt == 0 && entry.recipient.equals(recipient) &&
+                            fitsOneSms(entry.text + "\n" + text)) {
+                        entry.text = entry.text + "\n" + text;
+                        coalescedCount++;
+                        persist();
+                        Log.d(TAG, "SMS to " + recipient + " merged into queued message " + entry.id);
+                        return;
+                    }
+                }
+                Entry entry = new Entry();
+                entry.id = nextId++;
+                entry.recipient = recipient;
+                entry.text = text;
+                entry.createdAt = System.currentTimeMillis();
+                queue.add(entry);
+                persist();
+                pump();
+            }
+        });
+    }
+    
+    // Merging only pays while the result is still a single part - 160 GSM-7 or 70 UCS-2 characters
+    private static boolean fitsOneSms(String text) {
+        return SmsMessage.calculateLength(text, false)[0] <= 1;
+    }
+    
+    private void pump() {
+        handler.removeCallbacks(pumpRunnable);
+        if (inFlight != null || queue.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry next = null;
+        long wait = Long.MAX_VALUE;
+        for (Entry entry : queue) {
+            if (entry.notBefore <= now) {
+                next = entry;
+                break;
+            }
+            wait = Math.min(wait, entry.notBefore - now);
+        }
+        if (next == null) {
+            handler.postDelayed(pumpRunnable, wait);
+            return;
+        }
+        send(next);
+    }
+    
+    private void send(Entry entry) {
+        inFlight = entry;
+        entry.attempts++;
+        entry.partFailed = false;
+        entry.timedOutAttempt = 0; // Results for the earlier attempt no longer decide anything
+        try {
+            SmsManager smsManager = SmsManager.getDefault();
+            ArrayList<String> parts = smsManager.divideMessage(entry.text);
+            ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+            ArrayList<PendingIntent> deliveryIntents = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                sentIntents.add(statusIntent(ACTION_SENT, entry.id, i, entry.attempts));
+                // One delivery report is enough - the last part completes the message
+                deliveryIntents.add(i == parts.size() - 1 ? statusIntent(ACTION_DELIVERED, entry.id, i, entry.attempts) : null);
+            }
+            entry.partsPending = parts.size();
+            persist();
+            
+            if (parts.size() == 1) {
+                smsManager.sendTextMessage(entry.recipient, null, entry.text, sentIntents.get(0), deliveryIntents.get(0));
+            } else {
+                smsManager.sendMultipartTextMessage(entry.recipient, null, parts, sentIntents, deliveryIntents);
+            }
+            handler.postDelayed(sentTimeoutRunnable, SENT_TIMEOUT);
+            Log.d(TAG, "SMS " + entry.id + " to " + entry.recipient + " sent in " + parts.size() +
+                " part(s), attempt " + entry.attempts);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending SMS " + entry.id, e);
+            finishInFlight(false);
+        }
+    }
+    
+    private PendingIntent statusIntent(String action, long id, int part, int attempt) {
+        Intent intent = new Intent(action);
+        intent.setClass(context, SmsStatusReceiver.class);
+        intent.putExtra(EXTRA_MESSAGE_ID, id);
+        intent.putExtra(EXTRA_PART, part);
+        intent.putExtra(EXTRA_ATTEMPT, attempt);
+        // Request code must differ per message, part and attempt, otherwise a retry would reuse the
+        // previous attempt's one-shot intent and its extras
+        int requestCode = (int) ((((id * 32 + part) * 8) + attempt) * 2 + (ACTION_SENT.equals(action) ? 0 : 1));
+        // Must be mutable: telephony adds the delivery report's "pdu" and "format" extras through the
+        // fill-in intent, and an immutable one drops them. Safe, as the intent names SmsStatusReceiver.
+        // Below S every PendingIntent without FLAG_IMMUTABLE is mutable already.
+        int mutable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0;
+        return PendingIntent.getBroadcast(context, requestCode, intent, PendingIntent.FLAG_ONE_SHOT | mutable);
+    }
+    
+    // Called by SmsStatusReceiver for every part's sent result
+    void onSent(final long id, final int attempt, final int resultCode) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (inFlight == null || inFlight.id != id) {
+                    onLateSent(id, attempt, resultCode);
+                    return;
+                }
+                if (attempt != inFlight.attempts) {
+                    Log.d(TAG, "Ignoring sent result of attempt " + attempt + " for SMS " + id);
+                    return;
+                }
+                if (resultCode != Activity.RESULT_OK) {
+                    Log.w(TAG, "❌ SMS " + id + " part failed with result " + resultCode);
+                    inFlight.partFailed = true;
+                }
+                if (--inFlight.partsPending <= 0) {
+                    finishInFlight(!inFlight.partFailed);
+                }
+            }
+        });
+    }
+    
+    // A sent result that arrived after SENT_TIMEOUT gave up on its attempt
+    private void onLateSent(long id, int attempt, int resultCode) {
+        Entry entry = null;
+        for (Entry candidate : queue) {
+            if (candidate.id == id) {
+                entry = candidate;
+                break;
+            }
+        }
+        if (entry == null || entry.timedOutAttempt == 0 || entry.timedOutAttempt != attempt) {
+            return; // Already finished, or a result for an attempt nobody is waiting on
+        }
+        if (resultCode != Activity.RESULT_OK) {
+            entry.timedOutAttempt = 0; // It really failed - the scheduled retry stands
+            return;
+        }
+        if (--entry.timedOutPartsPending > 0) {
+            return;
+        }
+        // The timed-out attempt went out after all - drop the retry instead of sending a duplicate
+        Log.w(TAG, "SMS " + id + " sent late on attempt " + attempt + " - retry cancelled");
+        queue.remove(entry);
+        lateSentCount++;
+        sentCount++;
+        sentLatency.record(System.currentTimeMillis() - entry.createdAt);
+        awaitingDelivery.put(entry.id, entry.createdAt);
+        persist();
+        pump();
+    }
+    
+    // Called by SmsStatusReceiver when the delivery report for the last part arrives
+    void onDelivered(final long id, final byte[] pdu, final String format) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                Long createdAt = awaitingDelivery.get(id);
+                if (createdAt == null) {
+                    return;
+                }
+                int status = 0;
+                if (pdu != null) {
+                    SmsMessage report = SmsMessage.createFromPdu(pdu, format);
+                    if (report != null) {
+                        status = report.getStatus();
+                    }
+                }
+                int outcome = deliveryOutcome(status, format);
+                if (outcome == DELIVERY_PENDING) {
+                    Log.d(TAG, "SMS " + id + " not delivered yet, status " + status);
+                    return; // The network is still trying - a final report follows
+                }
+                awaitingDelivery.remove(id);
+                long elapsed = System.currentTimeMillis() - createdAt;
+                if (outcome == DELIVERY_FAILED) {
+                    deliveryFailedCount++;
+                    Log.w(TAG, "❌ SMS " + id + " delivery failed after " + elapsed + "ms, status " + status);
+                } else {
+                    deliveryLatency.record(elapsed);
+                    Log.d(TAG, "✅ SMS " + id + " delivered after " + elapsed + "ms, status " + status);
+                }
+                snapshotCounts();
+            }
+        });
+    }
+    
+    // 3GPP TP-Status: 0x00-0x1F completed, 0x20-0x3F still trying, 0x40 and up failed.
+    // 3GPP2 reports its error class in bits 24-25: 0 none, 2 temporary, 3 permanent.
+    private static int deliveryOutcome(int status, String format) {
+        if ("3gpp2".equals(format)) {
+            int errorClass = (status >> 24) & 0x03;
+            return errorClass == 0 ? DELIVERY_OK : errorClass == 2 ? DELIVERY_PENDING : DELIVERY_FAILED;
+        }
+        return status < 0x20 ? DELIVERY_OK : status < 0x40 ? DELIVERY_PENDING : DELIVERY_FAILED;
+    }
+    
+    private void finishInFlight(boolean success) {
+        handler.removeCallbacks(sentTimeoutRunnable);
+        Entry entry = inFlight;
+        inFlight = null;
+        if (entry == null) {
+            return;
+        }
+        if (success) {
+            queue.remove(entry);
+            sentCount++;
+            sentLatency.record(System.currentTimeMillis() - entry.createdAt);
+            awaitingDelivery.put(entry.id, entry.createdAt);
+            pruneDeliveryTracking();
+        } else if (entry.attempts >= MAX_ATTEMPTS) {
+            queue.remove(entry);
+            failedCount++;
+            Log.e(TAG, "❌ SMS " + entry.id + " to " + entry.recipient + " dropped after " + entry.attempts + " attempts");
+        } else {
+            retryCount++;
+            entry.notBefore = System.currentTimeMillis() + (BASE_BACKOFF << (entry.attempts - 1));
+            Log.w(TAG, "SMS " + entry.id + " will be retried in " + (BASE_BACKOFF << (entry.attempts - 1)) + "ms");
+        }
+        persist();
+        pump();
+    }
+    
+    private void pruneDeliveryTracking() {
+        long cutoff = System.currentTimeMillis() - DELIVERY_TRACKING_WINDOW;
+        Iterator<Long> iterator = awaitingDelivery.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() < cutoff) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private void persist() {
+        try {
+            JSONArray array = new JSONArray();
+            for (Entry entry : queue) {
+                JSONObject object = new JSONObject();
+                object.put("id", entry.id);
+                object.put("to", entry.recipient);
+                object.put("text", entry.text);
+                object.put("created", entry.createdAt);
+                object.put("attempts", entry.attempts);
+                object.put("notBefore", entry.notBefore);
+                array.put(object);
+            }
+            prefs.edit().putString(KEY_QUEUE, array.toString()).putLong(KEY_NEXT_ID, nextId).apply();
+        } catch (Exception e) {
+            Log.e(TAG, "Error persisting SMS queue", e);
+        }
+        snapshotCounts();
+    }
+    
+    // Runs on the outbox thread after every change, so summary() never touches the queue itself
+    private void snapshotCounts() {
+        countsSnapshot = "SMS outbox: sent " + sentCount + " (" + lateSentCount + " late), failed " + failedCount +
+            ", retries " + retryCount + ", merged " + coalescedCount + ", queued " + queue.size() +
+            ", awaiting delivery " + awaitingDelivery.size() + ", delivery failed " + deliveryFailedCount;
+    }
+    
+    private void restore() {
+        try {
+            nextId = prefs.getLong(KEY_NEXT_ID, 1);
+            JSONArray array = new JSONArray(prefs.getString(KEY_QUEUE, "[]"));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                Entry entry = new Entry();
+                entry.id = object.getLong("id");
+                entry.recipient = object.getString("to");
+                entry.text = object.getString("text");
+                entry.createdAt = object.getLong("created");
+                entry.attempts = object.getInt("attempts");
+                entry.notBefore = object.optLong("notBefore", 0);
+                queue.add(entry);
+                nextId = Math.max(nextId, entry.id + 1);
+            }
+            if (!queue.isEmpty()) {
+                Log.w(TAG, "Restored " + queue.size() + " unsent SMS from the previous run");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring SMS queue", e);
+        }
+    }
+    
+    public String summary() {
+        return countsSnapshot + "\n" + sentLatency.summary() + "\n" + deliveryLatency.summary();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.mybike;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Turns incoming PDUs into logical messages. Fragments of a concatenated SMS are collected per
+// sender + concatenation reference until every part is present, and a bounded LRU of fragment
+// fingerprints drops operator retransmissions so each command runs exactly once.
+public class SmsReassembler {
+    
+    public static final int NO_REFERENCE = -1;
+    
+    private static final int MAX_FINGERPRINTS = 128;
+    private static final int MAX_PARTIALS = 16;
+    private static final long PARTIAL_TIMEOUT = 5 * 60 * 1000; // Give up on missing parts after 5 minutes
+    
+    private static final class Partial {
+        final String[] parts;
+        final long firstSeen;
+        int received = 0;
+        
+        Partial(int total, long firstSeen) {
+            this.parts = new String[total];
+            this.firstSeen = firstSeen;
+        }
+    }
+    
+    private final LinkedHashMap<Long, Boolean> fingerprints = new LinkedHashMap<Long, Boolean>(MAX_FINGERPRINTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_FINGERPRINTS;
+        }
+    };
+    private final HashMap<String, Partial> partials = new HashMap<>();
+    
+    private long messageCount = 0;
+    private long reassembledCount = 0;
+    private long duplicateCount = 0;
+    private long expiredCount = 0;
+    
+    // Returns the complete message once the last fragment arrives, null while parts are missing
+    // or when the fragment is a duplicate. Single-part messages use NO_REFERENCE.
+    public synchronized String accept(String sender, int reference, int sequence, int total,
+                                      String body, long timestamp, long now) {
+        if (body == null) {
+            body = "";
+        }
+        if (sender == null) {
+            sender = "";
+        }
+        long fingerprint = fingerprint(sender, reference, sequence, total, timestamp, body);
+        if (fingerprints.put(fingerprint, Boolean.TRUE) != null) {
+            duplicateCount++;
+            return null;
+        }
+        
+        if (reference == NO_REFERENCE || total <= 1) {
+            messageCount++;
+            return body;
+        }
+        
+        expirePartials(now);
+        
+        String key = sender + '#' + reference + '#' + total;
+        Partial partial = partials.get(key);
+        if (partial == null) {
+            if (partials.size() >= MAX_PARTIALS) {
+                evictOldestPartial();
+            }
+            partial = new Partial(total, now);
+            partials.put(key, partial);
+        }
+        int index = sequence - 1; // Sequence numbers in the header start at 1
+        if (index < 0 || index >= total) {
+            return null;
+        }
+        if (partial.parts[index] == null) {
+            partial.parts[index] = body;
+            partial.received++;
+        }
+        if (partial.received < total) {
+            return null;
+        }
+        
+        partials.remove(key);
+        StringBuilder message = new StringBuilder();
+        for (String part : partial.parts) {
+            message.append(part);
+        }
+        messageCount++;
+        reassembledCount++;
+        return message.toString();
+    }
+    
+    private void expirePartials(long now) {
+        Iterator<Partial> iterator = partials.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().firstSeen > PARTIAL_TIMEOUT) {
+                iterator.remove();
+                expiredCount++;
+            }
+        }
+    }
+    
+    private void evictOldestPartial() {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, Partial> entry : partials.entrySet()) {
+            if (entry.getValue().firstSeen < oldest) {
+                oldest = entry.getValue().firstSeen;
+                oldestKey = entry.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            partials.remove(oldestKey);
+            expiredCount++;
+        }
+    }
+    
+    // 64-bit FNV-1a over everything that identifies one transmitted fragment
+    private static long fingerprint(String sender, int reference, int sequence, int total, long timestamp, String body) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, sender);
+        hash = mix(hash, reference);
+        hash = mix(hash, sequence);
+        hash = mix(hash, total);
+        hash = mix(hash, timestamp);
+        return mix(hash, body);
+    }
+    
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xff) * 0x100000001b3L; // Field separator
+    }
+    
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+    
+    // Reads the concatenation info element from a 3GPP SMS-DELIVER PDU (with SMSC prefix, as
+    // delivered in the "pdus" extra). Returns {reference, total, sequence} or null when the PDU
+    // is not part of a concatenated message or is not in a format we can read.
+    public static int[] readConcatInfo(byte[] pdu) {
+        try {
+            int offset = (pdu[0] & 0xff) + 1; // Skip SMSC address
+            int firstOctet = pdu[offset++] & 0xff;
+            if ((firstOctet & 0x03) != 0 || (firstOctet & 0x40) == 0) {
+                return null; // Not SMS-DELIVER, or no user data header
+            }
+            int addressDigits = pdu[offset++] & 0xff;
+            offset += 1 + (addressDigits + 1) / 2; // Type of address + semi-octets
+            offset += 1 + 1 + 7 + 1;               // PID, DCS, service centre timestamp, UDL
+            int headerLength = pdu[offset++] & 0xff;
+            int end = offset + headerLength;
+            while (offset + 1 < end) {
+                int id = pdu[offset] & 0xff;
+                int length = pdu[offset + 1] & 0xff;
+                int data = offset + 2;
+                if (id == 0x00 && length == 3) {
+                    return new int[] {pdu[data] & 0xff, pdu[data + 1] & 0xff, pdu[data + 2] & 0xff};
+                }
+                if (id == 0x08 && length == 4) {
+                    int reference = ((pdu[data] & 0xff) << 8) | (pdu[data + 1] & 0xff);
+                    return new int[] {reference, pdu[data + 2] & 0xff, pdu[data + 3] & 0xff};
+                }
+                offset = data + length;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Truncated PDU - treat it as a single-part message
+        }
+        return null;
+    }
+    
+    public synchronized long getMessageCount() {
+        return messageCount;
+    }
+    
+    public synchronized long getReassembledCount() {
+        return reassembledCount;
+    }
+    
+    public synchronized long getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+    
+    public synchronized int getPartialCount() {
+        return partials.size();
+    }
+}
@@ -5,15 +5,39 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
-import android.telephony.SmsManager;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.telephony.SmsMessage;
 import android.util.Log;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SmsReceiver extends BroadcastReceiver {
     private static final String TAG = "SmsReceiver";
     private static final String SMS_RECEIVED = "android.provider.Telephony.SMS_RECEIVED";
     
+    private static final long PROCESSING_DEADLINE = 8000; // Below the 10s foreground broadcast timeout
+    
+    // Commands from one sender run in arrival order; different senders may run in parallel
+    private static final KeyedSerialExecutor WORKER = new KeyedSerialExecutor("SmsWorker", 2, 32);
+    private static final SmsReassembler REASSEMBLER = new SmsReassembler();
+    private static final TokenBucketLimiter LIMITER = new TokenBucketLimiter(
+            TokenBucketLimiter.DEFAULT_SENDER_BURST, TokenBucketLimiter.DEFAULT_SENDER_PER_MINUTE,
+            TokenBucketLimiter.DEFAULT_GLOBAL_BURST, TokenBucketLimiter.DEFAULT_GLOBAL_PER_MINUTE);
+    private static final LatencyRecorder QUEUE_LATENCY = new LatencyRecorder("SMS queue", 128);
+    private static final LatencyRecorder PROCESS_LATENCY = new LatencyRecorder("SMS processing", 128);
+    
+    // The parser reuses a scratch array, so each worker thread gets its own
+    private static final ThreadLocal<SmsCommandParser> PARSER = new ThreadLocal<SmsCommandParser>() {
+        @Override
+        protected SmsCommandParser initialValue() {
+            return SmsCommandParser.createDefault();
+        }
+    };
+    
     @Override
     public void onReceive(Context context, Intent intent) {
         try {
@@ -24,17 +48,28 @@ public class SmsReceiver extends BroadcastReceiver {
                     String format = bundle.getString("format");
                     
                     if (pdus != null) {
+                        // Only the PDU decode and reassembly happen here - prefs writes and replies run on the worker
+                        List<String[]> messages = new ArrayList<>(1);
+                        long now = SystemClock.elapsedRealtime();
                         for (Object pdu : pdus) {
                             SmsMessage smsMessage = SmsMessage.createFromPdu((byte[]) pdu, format);
                             if (smsMessage != null) {
                                 String sender = smsMessage.getDisplayOriginatingAddress();
-                                String messageBody = smsMessage.getDisplayMessageBody();
-                                
-                                Log.w(TAG, "🔔 SMS RECEIVED from: " + sender + ", Message: '" + messageBody + "'");
-                                
-                                processCommand(context, sender, messageBody);
+                                int[] concat = "3gpp2".equals(format) ? null : SmsReassembler.readConcatInfo((byte[]) pdu);
+                                String body = concat == null
+                                        ? REASSEMBLER.accept(sender, SmsReassembler.NO_REFERENCE, 1, 1,
+                                                smsMessage.getDisplayMessageBody(), smsMessage.getTimestampMillis(), now)
+                                        : REASSEMBLER.accept(sender, concat[0], concat[2], concat[1],
+                                                smsMessage.getDisplayMessageBody(), smsMessage.getTimestampMillis(), now);
+                                if (body == null) {
+                                    continue;
+                                }
+                                messages.add(new String[] {sender, body});
                             }
                         }
+                        if (!messages.isEmpty()) {
+                            dispatch(context.getApplicationContext(), messages);
+                        }
                     }
                 }
             }
@@ -43,146 +78,134 @@ public class SmsReceiver extends BroadcastReceiver {
         }
     }
     
+    private void dispatch(final Context context, List<String[]> messages) {
+        final PendingResult pendingResult = goAsync();
+        final AtomicInteger remaining = new AtomicInteger(messages.size());
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        
+        final Runnable finish = new Runnable() {
+            @Override
+            public void run() {
+                if (finished.compareAndSet(false, true)) {
+                    mainHandler.removeCallbacksAndMessages(finished); // Cancels the deadline
+                    pendingResult.finish();
+                }
+            }
+        };
+        // Hard deadline: release the broadcast before the system timeout even if a worker is stuck.
+        // Work still queued keeps running in the (foreground service) process.
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (!finished.get()) {
+                    Log.w(TAG, "⏱️ SMS processing deadline hit - " + remaining.get() + " message(s) still pending");
+                    finish.run();
+                }
+            }
+        }, finished, PROCESSING_DEADLINE);
+        
+        for (String[] message : messages) {
+            final String sender = message[0];
+            final String messageBody = message[1];
+            final long enqueuedAt = SystemClock.elapsedRealtime();
+            
+            Log.w(TAG, "🔔 SMS RECEIVED from: " + sender + ", Message: '" + messageBody + "'");
+            
+            boolean accepted = WORKER.execute(sender != null ? sender : "", new Runnable() {
+                @Override
+                public void run() {
+                    long startedAt = SystemClock.elapsedRealtime();
+                    QUEUE_LATENCY.record(startedAt - enqueuedAt);
+                    try {
+                        processCommand(context, sender, messageBody);
+                    } finally {
+                        PROCESS_LATENCY.record(SystemClock.elapsedRealtime() - startedAt);
+                        if (remaining.decrementAndGet() == 0) {
+                            finish.run();
+                        }
+                    }
+                }
+            });
+            if (!accepted) {
+                Log.w(TAG, "❌ SMS worker queue full - dropping message from " + sender);
+                if (remaining.decrementAndGet() == 0) {
+                    finish.run();
+                }
+            }
+        }
+    }
+    
+    public static String getLatencySummary() {
+        return QUEUE_LATENCY.summary() + "\n" + PROCESS_LATENCY.summary() +
+                "\nSMS pending: " + WORKER.getPendingCount() + ", rejected: " + WORKER.getRejectedCount() +
+                "\nSMS messages: " + REASSEMBLER.getMessageCount() + ", reassembled: " + REASSEMBLER.getReassembledCount() +
+                ", duplicates dropped: " + REASSEMBLER.getDuplicateCount() + ", incomplete expired: " + REASSEMBLER.getExpiredCount() +
+                "\n" + LIMITER.summary();
+    }
+    
     private void processCommand(Context context, String sender, String message) {
         try {
             AppStateManager stateManager = AppStateManager.getInstance(context);
             
             // Process commands from any phone number
             Log.w(TAG, "🔍 PROCESSING SMS COMMAND from: " + sender);
-            Log.w(TAG, "📝 Original message: '" + message + "'");
             
-            String message_lower = message.trim().toLowerCase();
-            Log.w(TAG, "📝 Lowercase message: '" + message_lower + "'");
-            String response = null;
+            List<SmsCommandParser.Invocation> invocations = PARSER.get().parse(message);
+            int recognized = 0;
+            for (SmsCommandParser.Invocation invocation : invocations) {
+                if (invocation.id != 0) {
+                    recognized++;
+                }
+            }
+            if (recognized == 0) {
+                // No response for unrecognized commands
+                Log.d(TAG, "Unrecognized command: " + message);
+                return;
+            }
             
-            // Check for setadminnumber command (needs special handling for number parameter)
-            if (message_lower.startsWith("setadminnumber")) {
-                Log.d(TAG, "Processing setadminnumber command");
-                String[] parts = message.trim().split("\\s+", 2);
-                Log.d(TAG, "Command parts: " + java.util.Arrays.toString(parts));
-                
-                if (parts.length == 2) {
-                    String newAdminNumber = parts[1].trim();
-                    Log.d(TAG, "New admin number candidate: '" + newAdminNumber + "'");
-                    
-                    if (isValidPhoneNumber(newAdminNumber)) {
-                        String oldNumber = stateManager.getAdminNumber();
-                        stateManager.setAdminNumber(newAdminNumber);
-                        String updatedNumber = stateManager.getAdminNumber();
-                        
-                        response = "Admin number changed from " + oldNumber + " to " + updatedNumber;
-                        Log.w(TAG, "✅ ADMIN NUMBER UPDATED: " + oldNumber + " → " + updatedNumber);
+            // Flood protection - only recognized commands spend budget, over-budget ones are dropped without a reply
+            LIMITER.configure(stateManager.getSmsSenderBurst(), stateManager.getSmsSenderPerMinute(),
+                    stateManager.getSmsGlobalBurst(), stateManager.getSmsGlobalPerMinute());
+            if (!LIMITER.tryAcquire(sender, SystemClock.elapsedRealtime())) {
+                BikeLog.w(TAG, "🚫 SMS from {} dropped - rate limit exceeded", sender);
+                return;
+            }
+            boolean fromAdmin = stateManager.isAdminNumber(sender);
+            
+            // All commands in one SMS are applied as one state change with one combined reply
+            StringBuilder response = new StringBuilder();
+            stateManager.beginBatch();
+            try {
+                for (SmsCommandParser.Invocation invocation : invocations) {
+                    String result;
+                    if (invocation.id == 0) {
+                        // Unknown verbs in an otherwise valid SMS are skipped silently
+                        result = null;
+                    } else if (invocation.error != null) {
+                        result = invocation.error;
                     } else {
-                        response = "Invalid phone number format. Please use: setadminnumber 01743395086";
-                        Log.w(TAG, "❌ Invalid phone number format: '" + newAdminNumber + "'");
+                        result = executeCommand(context, stateManager, invocation, fromAdmin);
+                    }
+                    if (result != null) {
+                        if (response.length() > 0) {
+                            response.append('\n');
+                        }
+                        response.append(result);
                     }
-                } else {
-                    response = "Invalid format. Use: setadminnumber 01743395086";
-                    Log.w(TAG, "❌ Invalid setadminnumber command format - expected 2 parts, got: " + parts.length);
-                }
-            } else {
-                // Handle other commands
-                switch (message_lower) {
-                    case "lock":
-                        stateManager.setStatus("locked");
-                        stateManager.resetCallTimer(); // Reset call timer to default state
-                        response = "Status changed to locked - timer reset";
-                        Log.w(TAG, "🔒 LOCK command: Status set to locked, call timer reset");
-                        break;
-                        
-                    case "unlock":
-                        stateManager.setStatus("unlocked");
-                        stateManager.resetCallTimer(); // Reset call timer to default state
-                        response = "Status changed to unlocked - timer reset";
-                        Log.w(TAG, "🔓 UNLOCK command: Status set to unlocked, call timer reset");
-                        break;
-                        
-                    case "call true":
-                        stateManager.setCall(true);
-                        response = "Call setting changed to true";
-                        break;
-                        
-                    case "call false":
-                        stateManager.setCall(false);
-                        response = "Call setting changed to false";
-                        break;
-                        
-                    case "alerm true":
-                        stateManager.setAlarm(true);
-                        response = "Alarm setting changed to true";
-                        break;
-                        
-                    case "alerm false":
-                        stateManager.setAlarm(false);
-                        response = "Alarm setting changed to false";
-                        break;
-                        
-                    case "testcall":
-                        // Test calling functionality
-                        Log.w(TAG, "📞 TEST CALL command received - triggering test call");
-                        testPhoneCall(context);
-                        response = "Test call initiated. Check logs for results.";
-                        break;
-                        
-                    case "testdelay":
-                        // Test delayed calling functionality
-                        Log.w(TAG, "📞 TEST DELAY CALL command received - triggering delayed call test");
-                        testDelayedCall(context);
-                        response = "Test delayed call started (30s delay). Check logs for results.";
-                        break;
-                        
-                    case "testtimer":
-                        // Test the timer display
-                        Log.w(TAG, "⏱️ TEST TIMER command received - starting timer test");
-                        testTimerDisplay(context);
-                        response = "Timer test started. Check app display for 30s countdown.";
-                        break;
-                        
-                    case "testmotion":
-                        // Test motion detection and timer
-                        Log.w(TAG, "🚨 TEST MOTION command received - simulating motion detection");
-                        testSingleTimer(context);
-                        response = "Single timer test started. Check app for 30s countdown and call.";
-                        break;
-                        
-                    case "testready":
-                        // Test ready state without motion (for testing dual condition)
-                        Log.w(TAG, "⏰ TEST READY command received - simulating timer ready without motion");
-                        testReadyWithoutMotion(context);
-                        response = "Timer set to Ready state. Send motion to trigger call.";
-                        break;
-                        
-                    case "stoptest":
-                        // Stop any active test timers
-                        Log.w(TAG, "🛑 STOP TEST command received - cancelling active tests");
-                        stopAllTests(context);
-                        response = "All tests stopped. Timer should show 'Never'.";
-                        break;
-                        
-                    case "status":
-                        // Get current status
-                        response = "Status: " + stateManager.getStatus() + 
-                                 "\nAdmin: " + stateManager.getAdminNumber() +
-                                 "\nCall: " + stateManager.getCall() +
-                                 "\nAlarm: " + stateManager.getAlarm();
-                        break;
-                        
-                    default:
-                        // No response for unrecognized commands
-                        Log.d(TAG, "Unrecognized command: " + message_lower);
-                        return;
                 }
+            } finally {
+                stateManager.commitBatch();
             }
             
             // Send reply if command was recognized
-            if (response != null) {
-                sendSmsReply(sender, response);
+            if (response.length() > 0) {
+                sendSmsReply(context, sender, response.toString());
                 
                 // Notify UI to update
-                Intent updateIntent = new Intent("STATE_CHANGED");
-                LocalBroadcastManager.getInstance(context).sendBroadcast(updateIntent);
+                EventBus.getInstance().postStateChanged();
                 
-                Log.d(TAG, "Command processed: " + message_lower + " -> " + response);
+                Log.d(TAG, "Commands processed: " + recognized + " -> " + response);
             }
             
         } catch (Exception e) {
@@ -190,6 +213,189 @@ public class SmsReceiver extends BroadcastReceiver {
         }
     }
     
+    private String executeCommand(Context context, AppStateManager stateManager, SmsCommandParser.Invocation invocation,
+                                  boolean fromAdmin) {
+        String[] args = invocation.args;
+        switch (invocation.id) {
+            case SmsCommandParser.CMD_SET_ADMIN_NUMBER: {
+                String newAdminNumber = args[0];
+                if (!isValidPhoneNumber(newAdminNumber)) {
+                    Log.w(TAG, "❌ Invalid phone number format: '" + newAdminNumber + "'");
+                    return "Invalid phone number format. Please use: setadminnumber 01743395086";
+                }
+                String oldNumber = stateManager.getAdminNumber();
+                stateManager.setAdminNumber(newAdminNumber);
+                Log.w(TAG, "✅ ADMIN NUMBER UPDATED: " + oldNumber + " → " + newAdminNumber);
+                return "Admin number changed from " + oldNumber + " to " + newAdminNumber;
+            }
+                
+            case SmsCommandParser.CMD_LOCK:
+                stateManager.setStatus("locked");
+                stateManager.resetCallTimer(); // Reset call timer to default state
+                Log.w(TAG, "🔒 LOCK command: Status set to locked, call timer reset");
+                return "Status changed to locked - timer reset";
+                
+            case SmsCommandParser.CMD_UNLOCK:
+                stateManager.setStatus("unlocked");
+                stateManager.resetCallTimer(); // Reset call timer to default state
+                Log.w(TAG, "🔓 UNLOCK command: Status set to unlocked, call timer reset");
+                return "Status changed to unlocked - timer reset";
+                
+            case SmsCommandParser.CMD_CALL: {
+                Boolean enabled = parseBoolean(args[0]);
+                if (enabled == null) {
+                    return "Invalid format. Use: call true|false";
+                }
+                stateManager.setCall(enabled);
+                return "Call setting changed to " + enabled;
+            }
+                
+            case SmsCommandParser.CMD_ALARM: {
+                Boolean enabled = parseBoolean(args[0]);
+                if (enabled == null) {
+                    return "Invalid format. Use: alarm true|false";
+                }
+                stateManager.setAlarm(enabled);
+                return "Alarm setting changed to " + enabled;
+            }
+                
+            case SmsCommandParser.CMD_SIREN: {
+                String pattern = args[0].toLowerCase(Locale.ROOT);
+                if (!AppStateManager.SIREN_POLICE.equals(pattern) && SirenSynthesizer.Pattern.fromPrefValue(pattern) == null) {
+                    return "Invalid siren. Use: siren police|wail|yelp|hilo";
+                }
+                stateManager.setSirenPattern(pattern);
+                return "Siren pattern changed to " + pattern;
+            }
+                
+            case SmsCommandParser.CMD_WEBHOOK: {
+                if (!fromAdmin) {
+                    return "Only the admin number can change the webhook";
+                }
+                String url = args[0];
+                if ("off".equalsIgnoreCase(url)) {
+                    stateManager.setWebhookUrl("");
+                    return "Webhook alerts disabled";
+                }
+                if (!url.startsWith("http://") && !url.startsWith("https://")) {
+                    return "Invalid format. Use: webhook http://host:port/path or webhook off";
+                }
+                stateManager.setWebhookUrl(url);
+                return "Webhook alerts will be posted to " + url;
+            }
+                
+            case SmsCommandParser.CMD_RATE_LIMIT: {
+                if (!fromAdmin) {
+                    return "Only the admin number can change rate limits";
+                }
+                int[] limits = new int[4];
+                for (int i = 0; i < limits.length; i++) {
+                    try {
+                        limits[i] = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        limits[i] = -1;
+                    }
+                    if (limits[i] < 1 || limits[i] > 1000) {
+                        return "Invalid format. Use: ratelimit <sender burst> <sender per min> <global burst> <global per min>";
+                    }
+                }
+                stateManager.setSmsRateLimits(limits[0], limits[1], limits[2], limits[3]);
+                LIMITER.configure(limits[0], limits[1], limits[2], limits[3]);
+                return "SMS rate limits: sender " + limits[0] + " burst/" + limits[1] + " per min, global " +
+                       limits[2] + " burst/" + limits[3] + " per min (accepted " + LIMITER.getAcceptedCount() +
+                       ", dropped " + LIMITER.getDroppedCount() + ")";
+            }
+                
+            case SmsCommandParser.CMD_CONTACTS: {
+                List<String> contacts = new ArrayList<>();
+                if (!"none".equalsIgnoreCase(args[0])) {
+                    for (String contact : args[0].split(",")) {
+                        String number = contact.trim();
+                        if (!isValidPhoneNumber(number)) {
+                            return "Invalid phone number: " + number + ". Use: contacts 01711111111,01822222222 or contacts none";
+                        }
+                        contacts.add(number);
+                    }
+                }
+                stateManager.setContacts(contacts);
+                return "Call order: " + stateManager.getContacts();
+            }
+                
+            case SmsCommandParser.CMD_TEST_CALL:
+                // Test calling functionality
+                Log.w(TAG, "📞 TEST CALL command received - triggering test call");
+                testPhoneCall(context);
+                return "Test call initiated. Check logs for results.";
+                
+            case SmsCommandParser.CMD_TEST_DELAY:
+                // Test delayed calling functionality
+                Log.w(TAG, "📞 TEST DELAY CALL command received - triggering delayed call test");
+                testDelayedCall(context);
+                return "Test delayed call started (30s delay). Check logs for results.";
+                
+            case SmsCommandParser.CMD_TEST_TIMER:
+                // Test the timer display
+                Log.w(TAG, "⏱️ TEST TIMER command received - starting timer test");
+                testTimerDisplay(context);
+                return "Timer test started. Check app display for 30s countdown.";
+                
+            case SmsCommandParser.CMD_TEST_MOTION:
+                // Test motion detection and timer
+                Log.w(TAG, "🚨 TEST MOTION command received - simulating motion detection");
+                testSingleTimer(context);
+                return "Single timer test started. Check app for 30s countdown and call.";
+                
+            case SmsCommandParser.CMD_TEST_READY:
+                // Test ready state without motion (for testing dual condition)
+                Log.w(TAG, "⏰ TEST READY command received - simulating timer ready without motion");
+                testReadyWithoutMotion(context);
+                return "Timer set to Ready state. Send motion to trigger call.";
+                
+            case SmsCommandParser.CMD_STOP_TEST:
+                // Stop any active test timers
+                Log.w(TAG, "🛑 STOP TEST command received - cancelling active tests");
+                stopAllTests(context);
+                return "All tests stopped. Timer should show 'Never'.";
+                
+            case SmsCommandParser.CMD_DUMP_LOG:
+                // Diagnostics - write the in-memory log ring to logcat
+                BikeLog.dumpToLogcat();
+                return "Dumped " + Math.min(BikeLog.RING_SIZE, BikeLog.getWrittenCount()) + " log records to logcat";
+                
+            case SmsCommandParser.CMD_STATUS:
+                // Get current status - reflects commands earlier in the same SMS
+                return "Status: " + stateManager.getStatus() + 
+                       "\nAdmin: " + stateManager.getAdminNumber() +
+                       "\nContacts: " + stateManager.getContacts().size() +
+                       "\nCall: " + stateManager.getCall() +
+                       "\nAlarm: " + stateManager.getAlarm() +
+                       "\nSiren: " + stateManager.getSirenPattern() +
+                       "\n" + SimpleMotionDetectionService.getSirenStartLatency().summary() +
+                       "\nArmed in: " + SimpleMotionDetectionService.getTimeToArmedMs() + "ms" +
+                       (SimpleMotionDetectionService.getBootToArmedMs() >= 0
+                           ? "\nBoot to armed: " + SimpleMotionDetectionService.getBootToArmedMs() + "ms" : "") +
+                       "\n" + PowerPolicyEngine.getStatusLine();
+                
+            default:
+                return null;
+        }
+    }
+    
+    private static Boolean parseBoolean(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "on":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "off":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+    
     private boolean isValidPhoneNumber(String phoneNumber) {
         try {
             Log.d(TAG, "Validating phone number: '" + phoneNumber + "'");
@@ -298,8 +504,7 @@ public class SmsReceiver extends BroadcastReceiver {
             stateManager.setMotionStartTime(currentTime);
             
             // Send broadcast to update UI
-            Intent updateIntent = new Intent("STATE_CHANGED");
-            LocalBroadcastManager.getInstance(context).sendBroadcast(updateIntent);
+            EventBus.getInstance().postStateChanged();
             
             Log.w(TAG, "⏱️ TEST TIMER - Timer state activated, UI should show countdown");
             
@@ -313,8 +518,7 @@ public class SmsReceiver extends BroadcastReceiver {
                     stateManager.setMotionStartTime(0);
                     
                     // Send broadcast to update UI
-                    Intent clearIntent = new Intent("STATE_CHANGED");
-                    LocalBroadcastManager.getInstance(context).sendBroadcast(clearIntent);
+                    EventBus.getInstance().postStateChanged();
                 }
             }, 35000); // 35 seconds
             
@@ -343,8 +547,7 @@ public class SmsReceiver extends BroadcastReceiver {
             stateManager.setCallReady(false);
             
             // Send broadcast to update UI - MainActivity timer will handle everything
-            Intent updateIntent = new Intent("STATE_CHANGED");
-            LocalBroadcastManager.getInstance(context).sendBroadcast(updateIntent);
+            EventBus.getInstance().postStateChanged();
             
             Log.w(TAG, "✅ SINGLE TIMER TEST - Timer started, MainActivity will handle countdown and calling");
             
@@ -372,8 +575,7 @@ public class SmsReceiver extends BroadcastReceiver {
             stateManager.setMotionStartTime(0);
             
             // Send broadcast to update UI
-            Intent updateIntent = new Intent("STATE_CHANGED");
-            LocalBroadcastManager.getInstance(context).sendBroadcast(updateIntent);
+            EventBus.getInstance().postStateChanged();
             
             Log.w(TAG, "✅ TEST READY - Timer set to Ready state, waiting for motion to trigger call");
             
@@ -393,8 +595,7 @@ public class SmsReceiver extends BroadcastReceiver {
             stateManager.setMotionStartTime(0);
             
             // Send broadcast to update UI
-            Intent updateIntent = new Intent("STATE_CHANGED");
-            LocalBroadcastManager.getInstance(context).sendBroadcast(updateIntent);
+            EventBus.getInstance().postStateChanged();
             
             Log.w(TAG, "✅ All tests stopped - UI should show 'Never'");
             
@@ -403,11 +604,11 @@ public class SmsReceiver extends BroadcastReceiver {
         }
     }
     
-    private void sendSmsReply(String recipient, String message) {
+    private void sendSmsReply(Context context, String recipient, String message) {
         try {
-            SmsManager smsManager = SmsManager.getDefault();
-            smsManager.sendTextMessage(recipient, null, message, null, null);
-            Log.d(TAG, "SMS reply sent to: " + recipient + ", Message: " + message);
+            // Queued - the outbox splits long replies such as status and retries failures
+            SmsOutbox.getInstance(context).enqueue(recipient, message);
+            Log.d(TAG, "SMS reply queued for: " + recipient + ", Message: " + message);
         } catch (Exception e) {
             Log.e(TAG, "Error sending SMS reply", e);
         }
@@ -0,0 +1,29 @@
+package com.example.mybike;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+// Receives the sent/delivered PendingIntents created by SmsOutbox
+public class SmsStatusReceiver extends BroadcastReceiver {
+    private static final String TAG = "SmsStatusReceiver";
+    
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        try {
+            long id = intent.getLongExtra(SmsOutbox.EXTRA_MESSAGE_ID, -1);
+            if (id < 0) {
+                return;
+            }
+            SmsOutbox outbox = SmsOutbox.getInstance(context);
+            if (SmsOutbox.ACTION_SENT.equals(intent.getAction())) {
+                outbox.onSent(id, intent.getIntExtra(SmsOutbox.EXTRA_ATTEMPT, 0), getResultCode());
+            } else if (SmsOutbox.ACTION_DELIVERED.equals(intent.getAction())) {
+                outbox.onDelivered(id, intent.getByteArrayExtra("pdu"), intent.getStringExtra("format"));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error handling SMS status", e);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.mybike;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.util.Log;
+
+// Streams SirenSynthesizer output through a low-latency AudioTrack. The track, the render
+// buffer and the writer thread are all created in prepareAsync(), so starting the alarm only
+// wakes the writer. Only the writer thread touches the synthesizer and the track while it
+// runs - start() and stop() just post the requested state.
+public class SynthSirenPlayer implements Siren {
+    private static final String TAG = "SynthSirenPlayer";
+    private static final int BUFFER_MILLIS = 20;
+    
+    private final Object lock = new Object();
+    private final LatencyRecorder startLatency;
+    private SirenSynthesizer synthesizer;
+    private AudioTrack audioTrack;
+    private short[] buffer;
+    private Thread writerThread;
+    
+    private volatile SirenSynthesizer.Pattern pattern = SirenSynthesizer.Pattern.WAIL;
+    private volatile boolean ready = false;
+    private volatile boolean playing = false;
+    private volatile boolean released = false;
+    private long triggerNanos = 0; // Guarded by lock
+    private int startGeneration = 0; // Guarded by lock, bumped by every start()
+    
+    public SynthSirenPlayer(LatencyRecorder startLatency) {
+        this.startLatency = startLatency;
+    }
+    
+    @Override
+    public void prepareAsync() {
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (prepare()) {
+                    writeLoop();
+                }
+            }
+        }, "SynthSirenPlayer");
+        writerThread.setPriority(Thread.MAX_PRIORITY);
+        writerThread.start();
+    }
+    
+    private boolean prepare() {
+        try {
+            int sampleRate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_ALARM);
+            synthesizer = new SirenSynthesizer(sampleRate);
+            synthesizer.setPattern(pattern);
+            
+            int minBufferBytes = AudioTrack.getMinBufferSize(sampleRate,
+                    AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+            buffer = new short[sampleRate * BUFFER_MILLIS / 1000];
+            
+            audioTrack = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(sampleRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                    .setBufferSizeInBytes(Math.max(minBufferBytes, buffer.length * 2 * 2))
+                    .build();
+            
+            ready = true;
+            Log.d(TAG, "Synth siren ready @ " + sampleRate + "Hz, " + buffer.length + " frames per write");
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error preparing synth siren", e);
+            return false;
+        }
+    }
+    
+    private void writeLoop() {
+        boolean trackPlaying = false;
+        int playedGeneration = 0;
+        long pendingTriggerNanos = 0;
+        try {
+            while (true) {
+                boolean shouldPlay;
+                int generation;
+                synchronized (lock) {
+                    while (!playing && !trackPlaying && !released) {
+                        lock.wait();
+                    }
+                    if (released) {
+                        break;
+                    }
+                    shouldPlay = playing;
+                    generation = startGeneration;
+                    if (shouldPlay && generation != playedGeneration) {
+                        pendingTriggerNanos = triggerNanos;
+                    }
+                }
+                
+                if (!shouldPlay) {
+                    // stop() was requested - pause and drop queued audio between writes, never during one
+                    audioTrack.pause();
+                    audioTrack.flush();
+                    trackPlaying = false;
+                    continue;
+                }
+                if (generation != playedGeneration) {
+                    // A new start() - restart the pattern from the top, dropping audio from a previous cycle
+                    if (trackPlaying) {
+                        audioTrack.pause();
+                        audioTrack.flush();
+                    }
+                    synthesizer.setPattern(pattern);
+                    synthesizer.reset();
+                    audioTrack.play();
+                    trackPlaying = true;
+                    playedGeneration = generation;
+                }
+                
+                synthesizer.render(buffer, 0, buffer.length);
+                audioTrack.write(buffer, 0, buffer.length);
+                
+                if (pendingTriggerNanos > 0) {
+                    // First buffer handed to the mixer - close enough to the first audible sample for a stream track
+                    startLatency.record((System.nanoTime() - pendingTriggerNanos) / 1000000);
+                    pendingTriggerNanos = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Synth siren writer interrupted");
+        } catch (Exception e) {
+            Log.e(TAG, "Error in synth siren writer", e);
+        }
+    }
+    
+    public void setPattern(SirenSynthesizer.Pattern pattern) {
+        if (pattern != null) {
+            this.pattern = pattern;
+        }
+    }
+    
+    @Override
+    public void start(long triggerNanos) {
+        if (!ready || playing) {
+            return;
+        }
+        synchronized (lock) {
+            this.triggerNanos = triggerNanos;
+            startGeneration++;
+            playing = true;
+            lock.notifyAll();
+        }
+    }
+    
+    @Override
+    public void stop() {
+        if (!playing) {
+            return;
+        }
+        synchronized (lock) {
+            playing = false;
+            lock.notifyAll();
+        }
+    }
+    
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+    
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+    
+    @Override
+    public void release() {
+        synchronized (lock) {
+            released = true;
+            playing = false;
+            lock.notifyAll();
+        }
+        try {
+            if (writerThread != null) {
+                writerThread.join(500);
+            }
+            if (audioTrack != null) {
+                audioTrack.release();
+                audioTrack = null;
+            }
+            ready = false;
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing synth siren", e);
+        }
+    }
+}
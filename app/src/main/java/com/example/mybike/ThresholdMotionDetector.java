@@ -0,0 +1,73 @@
+package com.example.mybike;
+
+// Gyro rotation above a threshold is motion. With sensor fusion, so is an accelerometer reading
+// that is far enough from gravity - a push or lift without rotation.
+public class ThresholdMotionDetector implements MotionDetector {
+    public static final float DEFAULT_GYRO_THRESHOLD = 0.3f;  // rad/s
+    public static final float DEFAULT_ACCEL_THRESHOLD = 1.5f; // m/s^2 away from gravity
+    public static final float STANDARD_GRAVITY = 9.80665f;    // SensorManager.GRAVITY_EARTH
+    
+    private final float gyroThreshold;
+    private final float accelThreshold;
+    private boolean sensorFusion = false;
+    private float gyroMagnitude = 0f;
+    private boolean accelMoving = false;
+    private boolean motionDetected = false;
+    private float magnitude = 0f;
+    
+    public ThresholdMotionDetector() {
+        this(DEFAULT_GYRO_THRESHOLD, DEFAULT_ACCEL_THRESHOLD);
+    }
+    
+    public ThresholdMotionDetector(float gyroThreshold, float accelThreshold) {
+        this.gyroThreshold = gyroThreshold;
+        this.accelThreshold = accelThreshold;
+    }
+    
+    @Override
+    public boolean onSample(int sensor, long timestampNanos, float x, float y, float z) {
+        float value = (float) Math.sqrt(x * x + y * y + z * z);
+        if (sensor == SENSOR_ACCEL) {
+            if (!sensorFusion) {
+                return false;
+            }
+            accelMoving = Math.abs(value - STANDARD_GRAVITY) > accelThreshold;
+            magnitude = gyroMagnitude; // Alerts keep reporting rotation
+        } else {
+            gyroMagnitude = value;
+            magnitude = value;
+        }
+        boolean detected = magnitude > gyroThreshold || (sensorFusion && accelMoving);
+        if (detected == motionDetected) {
+            return false;
+        }
+        motionDetected = detected;
+        return true;
+    }
+    
+    @Override
+    public boolean isMotionDetected() {
+        return motionDetected;
+    }
+    
+    @Override
+    public float getMagnitude() {
+        return magnitude;
+    }
+    
+    @Override
+    public void setSensorFusion(boolean enabled) {
+        sensorFusion = enabled;
+        if (!enabled) {
+            accelMoving = false;
+        }
+    }
+    
+    @Override
+    public void reset() {
+        gyroMagnitude = 0f;
+        accelMoving = false;
+        motionDetected = false;
+        magnitude = 0f;
+    }
+}
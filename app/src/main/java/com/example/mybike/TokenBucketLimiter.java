@@ -0,0 +1,122 @@
+package com.example.mybike;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per-sender and global token buckets in front of the SMS command dispatcher. Sender buckets
+// live in a bounded LRU, so a flood from many numbers cannot grow memory; an evicted sender
+// simply starts again with a full bucket, and the global bucket still caps the total.
+public class TokenBucketLimiter {
+    
+    public static final int DEFAULT_SENDER_BURST = 5;
+    public static final int DEFAULT_SENDER_PER_MINUTE = 6;
+    public static final int DEFAULT_GLOBAL_BURST = 20;
+    public static final int DEFAULT_GLOBAL_PER_MINUTE = 30;
+    private static final int MAX_SENDERS = 64;
+    
+    private static final class Bucket {
+        double tokens;
+        long lastRefill;
+        long accepted = 0;
+        long dropped = 0;
+        
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+        
+        boolean tryTake(int burst, int perMinute, long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(burst, tokens + elapsed * perMinute / 60000.0);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                accepted++;
+                return true;
+            }
+            dropped++;
+            return false;
+        }
+    }
+    
+    private final LinkedHashMap<String, Bucket> senders = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            if (size() > MAX_SENDERS) {
+                evictedSenders++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private Bucket global;
+    
+    private int senderBurst;
+    private int senderPerMinute;
+    private int globalBurst;
+    private int globalPerMinute;
+    private long evictedSenders = 0;
+    
+    public TokenBucketLimiter(int senderBurst, int senderPerMinute, int globalBurst, int globalPerMinute) {
+        configure(senderBurst, senderPerMinute, globalBurst, globalPerMinute);
+    }
+    
+    public synchronized void configure(int senderBurst, int senderPerMinute, int globalBurst, int globalPerMinute) {
+        this.senderBurst = Math.max(1, senderBurst);
+        this.senderPerMinute = Math.max(0, senderPerMinute);
+        this.globalBurst = Math.max(1, globalBurst);
+        this.globalPerMinute = Math.max(0, globalPerMinute);
+    }
+    
+    // A sender that is over its own budget does not spend global tokens
+    public synchronized boolean tryAcquire(String sender, long now) {
+        if (global == null) {
+            global = new Bucket(globalBurst, now);
+        }
+        String key = sender != null ? sender : "";
+        Bucket bucket = senders.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(senderBurst, now);
+            senders.put(key, bucket);
+        }
+        if (!bucket.tryTake(senderBurst, senderPerMinute, now)) {
+            return false;
+        }
+        if (!global.tryTake(globalBurst, globalPerMinute, now)) {
+            // Give the sender its token back - it was the global cap that said no
+            bucket.tokens += 1;
+            bucket.accepted--;
+            bucket.dropped++;
+            return false;
+        }
+        return true;
+    }
+    
+    public synchronized long getAcceptedCount() {
+        return global != null ? global.accepted : 0;
+    }
+    
+    public synchronized long getDroppedCount() {
+        long dropped = 0;
+        for (Bucket bucket : senders.values()) {
+            dropped += bucket.dropped;
+        }
+        return dropped;
+    }
+    
+    public synchronized String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SMS rate limit: sender ").append(senderBurst).append(" burst/")
+                .append(senderPerMinute).append(" per min, global ").append(globalBurst).append(" burst/")
+                .append(globalPerMinute).append(" per min, ").append(senders.size()).append(" senders tracked, ")
+                .append(evictedSenders).append(" evicted");
+        for (Map.Entry<String, Bucket> entry : senders.entrySet()) {
+            Bucket bucket = entry.getValue();
+            builder.append("\n  ").append(entry.getKey()).append(": accepted ").append(bucket.accepted)
+                    .append(", dropped ").append(bucket.dropped);
+        }
+        return builder.toString();
+    }
+}
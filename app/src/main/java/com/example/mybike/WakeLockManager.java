@@ -0,0 +1,253 @@
+package com.example.mybike;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Single owner of every wake lock in the app. Callers get timed leases tagged with a reason;
+// leases of the same reason share one PowerManager lock that is held while any of them is
+// live. A lease that is never released expires on its own and is counted as a leak, and held
+// time is kept per reason over a rolling hour so dumpsys shows what the battery went on.
+public class WakeLockManager {
+    private static final String TAG = "WakeLockManager";
+    
+    public static final String REASON_MONITORING = "monitoring";
+    public static final String REASON_CALL_SCREEN = "call_screen";
+    public static final String REASON_ACTIVITY_SCREEN = "activity_screen";
+    public static final String REASON_LEGACY_MONITORING = "legacy_monitoring";
+    
+    public static final long MAX_TIMEOUT = 10 * 60 * 1000; // No lease outlives this without renew()
+    private static final int MAX_LEASES_PER_REASON = 4;
+    private static final int WINDOW_BUCKETS = 60;
+    private static final long BUCKET_MILLIS = 60 * 1000; // 60 x 1 min = rolling hour
+    
+    private static WakeLockManager instance;
+    
+    private final PowerManager powerManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Reason> reasons = new LinkedHashMap<>();
+    
+    public static synchronized WakeLockManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new WakeLockManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
+    private WakeLockManager(Context context) {
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+    
+    // Returns null when the lock can't be taken or the reason already has too many live leases
+    public synchronized Lease acquire(String reason, int levelAndFlags, long timeoutMs) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("Wake lock leases must be timed: " + reason);
+        }
+        Reason entry = reasons.get(reason);
+        if (entry == null) {
+            entry = new Reason(reason, levelAndFlags);
+            reasons.put(reason, entry);
+        }
+        if (entry.liveLeases >= MAX_LEASES_PER_REASON) {
+            entry.refusedCount++;
+            Log.w(TAG, "⚠️ Refusing wake lock lease for " + reason + " - " + entry.liveLeases + " still live");
+            return null;
+        }
+        Lease lease = new Lease(entry);
+        if (!lease.start(Math.min(timeoutMs, MAX_TIMEOUT))) {
+            return null;
+        }
+        return lease;
+    }
+    
+    private synchronized boolean hold(Reason entry, long deadline) {
+        try {
+            if (entry.wakeLock == null) {
+                if (powerManager == null) {
+                    return false;
+                }
+                entry.wakeLock = powerManager.newWakeLock(entry.levelAndFlags, "MyBike::" + entry.name);
+                entry.wakeLock.setReferenceCounted(false); // Counting is done here, per lease
+            }
+            long now = SystemClock.elapsedRealtime();
+            if (entry.liveLeases == 0) {
+                entry.heldSince = now;
+            }
+            entry.liveLeases++;
+            entry.acquiredCount++;
+            if (deadline > entry.deadline) {
+                // The platform timeout backs up our own expiry in case the process stalls
+                entry.deadline = deadline;
+                entry.wakeLock.acquire(deadline - now);
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error acquiring wake lock " + entry.name, e);
+            return false;
+        }
+    }
+    
+    private synchronized void unhold(Reason entry) {
+        entry.liveLeases--;
+        if (entry.liveLeases > 0) {
+            return;
+        }
+        entry.liveLeases = 0;
+        entry.deadline = 0;
+        entry.addHeld(entry.heldSince, SystemClock.elapsedRealtime());
+        try {
+            if (entry.wakeLock != null && entry.wakeLock.isHeld()) {
+                entry.wakeLock.release();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing wake lock " + entry.name, e);
+        }
+    }
+    
+    public synchronized boolean isHeld(String reason) {
+        Reason entry = reasons.get(reason);
+        return entry != null && entry.liveLeases > 0;
+    }
+    
+    // Held time for the reason over the last hour, including a lock that is still held
+    public synchronized long getHeldMillis(String reason) {
+        Reason entry = reasons.get(reason);
+        return entry != null ? entry.heldInWindow(SystemClock.elapsedRealtime()) : 0;
+    }
+    
+    public synchronized String summary() {
+        long now = SystemClock.elapsedRealtime();
+        StringBuilder builder = new StringBuilder("Wake locks (held ms, last hour):");
+        if (reasons.isEmpty()) {
+            builder.append(" none");
+        }
+        for (Reason entry : reasons.values()) {
+            builder.append("\n  ").append(entry.name)
+                .append(": held ").append(entry.heldInWindow(now))
+                .append(", live ").append(entry.liveLeases)
+                .append(", acquired ").append(entry.acquiredCount)
+                .append(", leaked ").append(entry.expiredCount)
+                .append(", refused ").append(entry.refusedCount);
+        }
+        return builder.toString();
+    }
+    
+    public class Lease {
+        private final Reason entry;
+        private boolean live = false;
+        
+        private final Runnable expiryRunnable = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (WakeLockManager.this) {
+                    if (live) {
+                        entry.expiredCount++;
+                        Log.w(TAG, "⚠️ Wake lock lease for " + entry.name + " expired without release");
+                        live = false;
+                        unhold(entry);
+                    }
+                }
+            }
+        };
+        
+        private Lease(Reason entry) {
+            this.entry = entry;
+        }
+        
+        private boolean start(long timeoutMs) {
+            live = hold(entry, SystemClock.elapsedRealtime() + timeoutMs);
+            if (live) {
+                handler.postDelayed(expiryRunnable, timeoutMs);
+            }
+            return live;
+        }
+        
+        // Extends a live lease, or re-takes one that already expired
+        public void renew(long timeoutMs) {
+            synchronized (WakeLockManager.this) {
+                if (live) {
+                    handler.removeCallbacks(expiryRunnable);
+                    live = false;
+                    unhold(entry);
+                }
+                start(Math.min(Math.max(1, timeoutMs), MAX_TIMEOUT));
+            }
+        }
+        
+        public void release() {
+            synchronized (WakeLockManager.this) {
+                if (!live) {
+                    return;
+                }
+                handler.removeCallbacks(expiryRunnable);
+                live = false;
+                unhold(entry);
+            }
+        }
+        
+        public boolean isLive() {
+            synchronized (WakeLockManager.this) {
+                return live;
+            }
+        }
+    }
+    
+    private static class Reason {
+        final String name;
+        final int levelAndFlags;
+        PowerManager.WakeLock wakeLock;
+        int liveLeases = 0;
+        long heldSince = 0;
+        long deadline = 0;
+        long acquiredCount = 0;
+        long expiredCount = 0;
+        long refusedCount = 0;
+        final long[] buckets = new long[WINDOW_BUCKETS];
+        long newestBucket = 0; // Absolute bucket number of buckets[newestBucket % WINDOW_BUCKETS]
+        
+        Reason(String name, int levelAndFlags) {
+            this.name = name;
+            this.levelAndFlags = levelAndFlags;
+        }
+        
+        void addHeld(long start, long end) {
+            while (start < end) {
+                long bucket = start / BUCKET_MILLIS;
+                long bucketEnd = Math.min(end, (bucket + 1) * BUCKET_MILLIS);
+                advanceTo(bucket);
+                if (bucket > newestBucket - WINDOW_BUCKETS) {
+                    buckets[(int) (bucket % WINDOW_BUCKETS)] += bucketEnd - start;
+                }
+                start = bucketEnd;
+            }
+        }
+        
+        private void advanceTo(long bucket) {
+            if (bucket <= newestBucket) {
+                return;
+            }
+            long steps = Math.min(bucket - newestBucket, WINDOW_BUCKETS);
+            for (long i = 1; i <= steps; i++) {
+                buckets[(int) ((newestBucket + i) % WINDOW_BUCKETS)] = 0;
+            }
+            newestBucket = bucket;
+        }
+        
+        long heldInWindow(long now) {
+            advanceTo(now / BUCKET_MILLIS);
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (liveLeases > 0) {
+                total += Math.min(now - heldSince, WINDOW_BUCKETS * BUCKET_MILLIS);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mybike;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+// Posts the alert as a small JSON document to a configured endpoint - an https service, or a
+// relay listening on loopback (the only place plain http is allowed, see network_security_config).
+// Disabled while no URL is set.
+public class WebhookAlertChannel implements AlertChannel {
+    private static final long TIMEOUT = 5000;
+    
+    private volatile String url;
+    
+    public WebhookAlertChannel(String url) {
+        setUrl(url);
+    }
+    
+    public void setUrl(String url) {
+        this.url = url != null ? url.trim() : "";
+    }
+    
+    @Override
+    public int getId() {
+        return AlertDispatcher.CHANNEL_WEBHOOK;
+    }
+    
+    @Override
+    public String getName() {
+        return "Webhook";
+    }
+    
+    @Override
+    public long getTimeoutMs() {
+        return TIMEOUT;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return !url.isEmpty();
+    }
+    
+    @Override
+    public boolean deliver(AlertEvent event) throws Exception {
+        byte[] body = toJson(event).getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout((int) TIMEOUT);
+            connection.setReadTimeout((int) TIMEOUT);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            int code = connection.getResponseCode();
+            InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                in.close();
+            }
+            return code >= 200 && code < 300;
+        } finally {
+            connection.disconnect();
+        }
+    }
+    
+    static String toJson(AlertEvent event) {
+        return "{\"event\":\"motion\",\"time\":" + event.wallTime +
+                ",\"magnitude\":" + (Double.isFinite(event.magnitude) ? String.valueOf(event.magnitude) : "null") +
+                ",\"status\":\"" + escape(event.status) + "\"}";
+    }
+    
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c >= 0x20) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
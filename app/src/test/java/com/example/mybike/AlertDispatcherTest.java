@@ -0,0 +1,191 @@
+package com.example.mybike;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for parallel alert dispatch, with a loopback socket standing in for the webhook receiver.
+ */
+public class AlertDispatcherTest {
+    private final AlertDispatcher dispatcher = new AlertDispatcher();
+    
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+    
+    @Test
+    public void webhookReachesLoopbackReceiver() throws Exception {
+        final AtomicReference<String> received = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (Socket socket = server.accept()) {
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    int contentLength = 0;
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    char[] body = new char[contentLength];
+                    int read = 0;
+                    while (read < contentLength) {
+                        read += reader.read(body, read, contentLength - read);
+                    }
+                    received.set(new String(body));
+                    OutputStream out = socket.getOutputStream();
+                    out.write("HTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (Exception e) {
+                    received.set("error: " + e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        receiver.start();
+        
+        try {
+            WebhookAlertChannel webhook = new WebhookAlertChannel("http://127.0.0.1:" + server.getLocalPort() + "/alert");
+            dispatcher.register(webhook, false);
+            dispatcher.dispatch(new AlertEvent(System.nanoTime(), 1700000000000L, 1.5f, "locked"),
+                    AlertDispatcher.CHANNEL_WEBHOOK);
+            
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals("{\"event\":\"motion\",\"time\":1700000000000,\"magnitude\":1.5,\"status\":\"locked\"}", received.get());
+            waitFor(AlertDispatcher.CHANNEL_WEBHOOK, 1);
+            assertEquals(1, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_WEBHOOK));
+        } finally {
+            server.close();
+        }
+    }
+    
+    @Test
+    public void slowAndFailingChannelsDoNotHoldUpOthers() throws Exception {
+        // The call channel blocks until the watchdog interrupts it - it never returns on its own
+        TestChannel call = new TestChannel(AlertDispatcher.CHANNEL_CALL, TestChannel.BLOCK, 100, null);
+        dispatcher.register(call, false);
+        dispatcher.register(new TestChannel(AlertDispatcher.CHANNEL_WEBHOOK, 0, 1000, new IllegalStateException("boom")), false);
+        dispatcher.register(new TestChannel(AlertDispatcher.CHANNEL_SMS, 0, 1000, null), false);
+        
+        // Returning at all while the call channel is blocked shows dispatch() does not wait for it
+        int dispatched = dispatcher.dispatch(new AlertEvent(System.nanoTime(), 0, 1f, "locked"),
+                AlertDispatcher.CHANNEL_CALL | AlertDispatcher.CHANNEL_WEBHOOK | AlertDispatcher.CHANNEL_SMS);
+        assertEquals(3, dispatched);
+        
+        waitFor(AlertDispatcher.CHANNEL_SMS, 1);
+        assertEquals(0, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_CALL));
+        
+        assertTrue("blocked channel was never interrupted", call.interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getTimedOutCount(AlertDispatcher.CHANNEL_CALL));
+        assertEquals(0, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_CALL));
+        assertEquals(1, dispatcher.getFailedCount(AlertDispatcher.CHANNEL_WEBHOOK));
+    }
+    
+    @Test
+    public void inlineOverrunCountsAsTimeout() throws Exception {
+        dispatcher.register(new TestChannel(AlertDispatcher.CHANNEL_SIREN, 50, 10, null), true);
+        
+        assertEquals(1, dispatcher.dispatch(new AlertEvent(System.nanoTime(), 0, 1f, "locked"), AlertDispatcher.CHANNEL_SIREN));
+        assertEquals(1, dispatcher.getTimedOutCount(AlertDispatcher.CHANNEL_SIREN));
+        assertEquals(0, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_SIREN));
+    }
+    
+    @Test
+    public void nonFiniteMagnitudeIsValidJson() {
+        assertEquals("{\"event\":\"motion\",\"time\":0,\"magnitude\":null,\"status\":\"locked\"}",
+                WebhookAlertChannel.toJson(new AlertEvent(0, 0, Float.NaN, "locked")));
+    }
+    
+    @Test
+    public void maskSelectsChannels() throws Exception {
+        dispatcher.register(new TestChannel(AlertDispatcher.CHANNEL_SIREN, 0, 1000, null), true);
+        dispatcher.register(new TestChannel(AlertDispatcher.CHANNEL_SMS, 0, 1000, null), false);
+        
+        assertEquals(1, dispatcher.dispatch(new AlertEvent(System.nanoTime(), 0, 1f, "locked"), AlertDispatcher.CHANNEL_SIREN));
+        // Inline channels complete before dispatch() returns
+        assertEquals(1, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_SIREN));
+        assertEquals(0, dispatcher.getDeliveredCount(AlertDispatcher.CHANNEL_SMS));
+    }
+    
+    private void waitFor(int channelId, long delivered) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getDeliveredCount(channelId) < delivered && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(delivered, dispatcher.getDeliveredCount(channelId));
+    }
+    
+    private static class TestChannel implements AlertChannel {
+        static final long BLOCK = -1; // Wait until interrupted
+        
+        private final int id;
+        private final long sleepMs;
+        private final long timeoutMs;
+        private final RuntimeException failure;
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        
+        TestChannel(int id, long sleepMs, long timeoutMs, RuntimeException failure) {
+            this.id = id;
+            this.sleepMs = sleepMs;
+            this.timeoutMs = timeoutMs;
+            this.failure = failure;
+        }
+        
+        @Override
+        public int getId() {
+            return id;
+        }
+        
+        @Override
+        public String getName() {
+            return "Test " + id;
+        }
+        
+        @Override
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+        
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+        
+        @Override
+        public boolean deliver(AlertEvent event) throws Exception {
+            if (sleepMs == BLOCK) {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            } else if (sleepMs > 0) {
+                Thread.sleep(sleepMs);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return true;
+        }
+    }
+}
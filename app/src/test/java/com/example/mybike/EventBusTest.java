@@ -0,0 +1,40 @@
+package com.example.mybike;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for EventBus delivery through an executor.
+ */
+public class EventBusTest {
+    private int received;
+    
+    @Test
+    public void executorDeliveryDropsEventsAfterUnregister() {
+        EventBus bus = new EventBus();
+        final Runnable[] queued = new Runnable[1];
+        EventBus.Subscriber subscriber = new EventBus.Subscriber() {
+            @Override
+            public void onEvent(int topic, int flags, long value1, long value2) {
+                received++;
+            }
+        };
+        bus.register(EventBus.TOPIC_MOTION, subscriber, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued[0] = command; // Held back so the unregister lands first
+            }
+        });
+        
+        received = 0;
+        bus.postMotion(true);
+        bus.unregister(EventBus.TOPIC_MOTION, subscriber);
+        queued[0].run();
+        
+        assertEquals(0, received);
+        assertEquals(0, bus.getSubscriberCount(EventBus.TOPIC_MOTION));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.mybike;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for incident journal recovery: torn tails, checksum failures, snapshots and compaction.
+ */
+public class IncidentJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private IncidentJournal journal;
+    
+    @After
+    public void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+    
+    private IncidentJournal.State reopen() {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new IncidentJournal(folder.getRoot());
+        return journal.open();
+    }
+    
+    private File journalFile() {
+        return new File(folder.getRoot(), "incident.journal");
+    }
+    
+    private void appendTriggers(int count) {
+        for (int i = 0; i < count; i++) {
+            journal.append(IncidentJournal.TRIGGER, 1000 + i, Float.floatToIntBits(1.5f));
+        }
+    }
+    
+    @Test
+    public void recordsSurviveReopen() {
+        reopen();
+        appendTriggers(3);
+        journal.append(IncidentJournal.CALL, 2000, 0);
+        
+        IncidentJournal.State state = reopen();
+        assertTrue(state.incidentActive);
+        assertEquals(1000, state.incidentStart);
+        assertEquals(3, state.triggers);
+        assertEquals(1, state.calls);
+        assertFalse(state.callReady);
+    }
+    
+    @Test
+    public void tornTailIsCutOff() throws IOException {
+        reopen();
+        appendTriggers(3);
+        journal.close();
+        journal = null;
+        long intact = journalFile().length();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.seek(intact);
+            file.write(new byte[] {1, 2, 3, 4, 5, 6, 7}); // Half-written fourth record
+        }
+        
+        IncidentJournal.State state = reopen();
+        assertEquals(3, state.triggers);
+        assertEquals(intact, journalFile().length());
+        
+        // Appends after recovery land on a clean boundary
+        appendTriggers(1);
+        assertEquals(4, reopen().triggers);
+    }
+    
+    @Test
+    public void checksumMismatchDropsRecordAndEverythingAfter() throws IOException {
+        reopen();
+        appendTriggers(3);
+        journal.close();
+        journal = null;
+        long recordSize = journalFile().length() / 3;
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            long offset = recordSize + recordSize - 1; // Last byte of the second record
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xff);
+        }
+        
+        IncidentJournal.State state = reopen();
+        assertEquals(1, state.triggers);
+        assertEquals(recordSize, journalFile().length());
+    }
+    
+    @Test
+    public void snapshotPlusReplayRecoversState() {
+        reopen();
+        appendTriggers(2);
+        journal.append(IncidentJournal.ALERT, 1500, 0x3);
+        journal.compact();
+        journal.append(IncidentJournal.CALL, 2000, 0);
+        journal.append(IncidentJournal.COOLDOWN_START, 2100, 0);
+        
+        IncidentJournal.State state = reopen();
+        assertEquals(2, state.triggers);
+        assertEquals(1, state.alerts);
+        assertEquals(0x3, state.alertChannels);
+        assertEquals(1, state.calls);
+        assertEquals(2000, state.lastCallTime);
+        assertTrue(state.cooldownActive);
+        assertEquals(2100, state.cooldownStart);
+    }
+    
+    @Test
+    public void compactionEmptiesJournalAndKeepsSequence() {
+        reopen();
+        appendTriggers(5);
+        journal.compact();
+        assertEquals(0, journalFile().length());
+        assertTrue(new File(folder.getRoot(), "incident.snapshot").exists());
+        
+        // Records after the snapshot carry on from its sequence number, so none are skipped
+        appendTriggers(2);
+        assertEquals(7, reopen().triggers);
+        journal.compact();
+        assertEquals(7, reopen().triggers);
+    }
+    
+    @Test
+    public void corruptSnapshotIsIgnored() throws IOException {
+        reopen();
+        appendTriggers(4);
+        journal.compact();
+        journal.close();
+        journal = null;
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder.getRoot(), "incident.snapshot"), "rw")) {
+            file.seek(10);
+            file.write(0x7f);
+        }
+        
+        IncidentJournal.State state = reopen();
+        assertFalse(state.incidentActive);
+        assertEquals(0, state.triggers);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mybike;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Generates the traces/lift-capture.bin fixture: still 3s, lift 2s at 0.6 rad/s, still 7s, recorded
+ * through FlightRecorder with fusion samples and frozen on the first gyro sample of the lift.
+ * Run main() with the fixture path as its argument after a change to the capture format.
+ */
+class LiftCapture {
+    static final long TRIGGER_NANOS = SyntheticTrace.START_NANOS + 3_000_000_000L;
+    static final long WALL_TIME = 1_700_000_000_000L;
+    private static final long BEFORE_NANOS = 10_000_000_000L;
+    private static final long AFTER_NANOS = 9_000_000_000L;
+    private static final long WRITE_TIMEOUT_MS = 5000;
+    
+    static byte[] generate(File directory) throws IOException, InterruptedException {
+        final FlightRecorder recorder = new FlightRecorder(directory, BEFORE_NANOS, AFTER_NANOS);
+        if (!recorder.open()) {
+            throw new IOException("Could not open flight recorder in " + directory);
+        }
+        new SyntheticTrace().still(3000).rotate(2000, 0.6f).still(7000).play(new FlightRecorder.Visitor() {
+            @Override
+            public void onSample(int sensor, long timestampNanos, float x, float y, float z) {
+                recorder.record(sensor, timestampNanos, x, y, z);
+                if (sensor == MotionDetector.SENSOR_GYRO && timestampNanos == TRIGGER_NANOS) {
+                    recorder.freeze(timestampNanos, WALL_TIME);
+                }
+            }
+        });
+        recorder.close();
+        // The capture is written on the recorder's own thread
+        long deadline = System.currentTimeMillis() + WRITE_TIMEOUT_MS;
+        while (recorder.getCaptureCount() == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Capture not written within " + WRITE_TIMEOUT_MS + "ms");
+            }
+            Thread.sleep(10);
+        }
+        return Files.readAllBytes(new File(directory, "capture-" + WALL_TIME + ".bin").toPath());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        File scratch = Files.createTempDirectory("lift-capture").toFile();
+        byte[] capture = generate(scratch);
+        for (File file : scratch.listFiles()) {
+            file.delete();
+        }
+        scratch.delete();
+        try (FileOutputStream out = new FileOutputStream(args[0])) {
+            out.write(capture);
+        }
+        System.out.println("Wrote " + capture.length + " bytes to " + args[0]);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.mybike;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays synthetic and recorded sensor traces through the motion detector faster than real time
+ * and checks exactly which transitions, alerts and calls the service would have fired.
+ */
+public class MotionDetectorReplayTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private static final String FULL = "siren+sms+call+webhook";
+    private static final String NO_CALL = "siren+sms+webhook";
+    
+    private static TraceReplay replay(SyntheticTrace trace, TraceReplay replay) {
+        trace.play(replay);
+        return replay;
+    }
+    
+    private static TraceReplay replay(SyntheticTrace trace) {
+        return replay(trace, new TraceReplay(detector(false)));
+    }
+    
+    private static ThresholdMotionDetector detector(boolean fusion) {
+        ThresholdMotionDetector detector = new ThresholdMotionDetector();
+        detector.setSensorFusion(fusion);
+        return detector;
+    }
+    
+    @Test
+    public void stillBikeFiresNothing() {
+        TraceReplay replay = replay(new SyntheticTrace().still(5 * 60 * 1000));
+        assertEquals(Collections.emptyList(), replay.events());
+        assertEquals(2 * 5 * 60 * 1000 / SyntheticTrace.PERIOD_MS, replay.samples());
+    }
+    
+    @Test
+    public void liftAlertsCallsAndStartsCooldown() {
+        TraceReplay replay = replay(new SyntheticTrace().still(2000).rotate(2000, 0.8f).still(40000));
+        assertEquals(Arrays.asList(
+                "2000 motion",
+                "2000 alert " + FULL,
+                "2000 call",
+                "4000 still",
+                "32000 cooldown-end"), replay.events());
+    }
+    
+    @Test
+    public void motionDuringCooldownOnlyAlerts() {
+        TraceReplay replay = replay(new SyntheticTrace()
+                .still(2000).rotate(1000, 0.8f).still(7000).rotate(1000, 0.8f).still(35000));
+        assertEquals(Arrays.asList(
+                "2000 motion",
+                "2000 alert " + FULL,
+                "2000 call",
+                "3000 still",
+                "10000 motion",
+                "10000 alert " + NO_CALL,
+                "11000 still",
+                "32000 cooldown-end"), replay.events());
+    }
+    
+    @Test
+    public void motionAfterCooldownCallsAgain() {
+        TraceReplay replay = replay(new SyntheticTrace()
+                .still(2000).rotate(1000, 0.8f).still(37000).rotate(1000, 0.8f).still(4000));
+        assertEquals(Arrays.asList(
+                "2000 motion",
+                "2000 alert " + FULL,
+                "2000 call",
+                "3000 still",
+                "32000 cooldown-end",
+                "40000 motion",
+                "40000 alert " + FULL,
+                "40000 call",
+                "41000 still"), replay.events());
+    }
+    
+    @Test
+    public void unlockedBikeOnlyReportsTransitions() {
+        TraceReplay replay = replay(new SyntheticTrace().still(2000).rotate(1000, 0.8f).still(2000),
+                new TraceReplay(detector(false)).locked(false));
+        assertEquals(Arrays.asList("2000 motion", "3000 still"), replay.events());
+    }
+    
+    @Test
+    public void callInProgressSkipsCallAndCooldown() {
+        TraceReplay replay = replay(new SyntheticTrace().still(2000).rotate(1000, 0.8f).still(40000),
+                new TraceReplay(detector(false)).callInProgress(true));
+        assertEquals(Arrays.asList("2000 motion", "2000 alert " + NO_CALL, "3000 still"), replay.events());
+    }
+    
+    @Test
+    public void callDisabledStillStartsCooldown() {
+        TraceReplay replay = replay(new SyntheticTrace().still(2000).rotate(1000, 0.8f).still(40000),
+                new TraceReplay(detector(false)).callEnabled(false));
+        assertEquals(Arrays.asList("2000 motion", "2000 alert " + NO_CALL, "3000 still", "32000 cooldown-end"),
+                replay.events());
+    }
+    
+    @Test
+    public void slowRotationStaysBelowThreshold() {
+        TraceReplay replay = replay(new SyntheticTrace().still(2000).rotate(5000, 0.2f).still(2000));
+        assertEquals(Collections.emptyList(), replay.events());
+    }
+    
+    @Test
+    public void pushWithoutRotationNeedsSensorFusion() {
+        SyntheticTrace trace = new SyntheticTrace().still(2000).push(1000, 8f).still(2000);
+        
+        assertEquals(Collections.emptyList(), replay(trace, new TraceReplay(detector(false))).events());
+        
+        // The accelerometer sample 10ms after each gyro sample decides both edges
+        TraceReplay fused = replay(trace, new TraceReplay(detector(true)));
+        assertEquals(Arrays.asList("2010 motion", "2010 alert " + FULL, "2010 call", "3010 still"), fused.events());
+    }
+    
+    @Test
+    public void recordedCaptureReplays() throws Exception {
+        // FlightRecorder capture of still 3s, lift 2s at 0.6 rad/s, still 7s - see LiftCapture
+        ByteBuffer capture = ByteBuffer.wrap(readResource("/traces/lift-capture.bin"));
+        TraceReplay replay = new TraceReplay(detector(true));
+        int samples = FlightRecorder.decodeCapture(capture, replay);
+        
+        assertEquals(2 * 12000 / SyntheticTrace.PERIOD_MS, samples);
+        assertEquals(Arrays.asList("3000 motion", "3000 alert " + FULL, "3000 call", "5000 still"), replay.events());
+    }
+    
+    @Test
+    public void recordedCaptureMatchesItsGenerator() throws Exception {
+        // Fails after a FlightRecorder format change - regenerate with LiftCapture.main()
+        assertArrayEquals(readResource("/traces/lift-capture.bin"), LiftCapture.generate(folder.newFolder()));
+    }
+    
+    @Test
+    public void hourOfTraceReplaysFasterThanRealTime() {
+        SyntheticTrace trace = new SyntheticTrace();
+        for (int minute = 0; minute < 60; minute++) {
+            trace.still(59000).rotate(1000, 0.8f);
+        }
+        long start = System.nanoTime();
+        TraceReplay replay = replay(trace, new TraceReplay(detector(true)));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        
+        assertEquals(60, replay.count("motion"));
+        assertEquals(59, replay.count("still")); // Trace ends mid-rotation
+        assertEquals(60, replay.count("call"));
+        assertEquals(60, replay.count("cooldown-end") + 1);
+        assertTrue("Replay took " + elapsedMs + "ms for " + trace.getDurationMs() + "ms of trace",
+                elapsedMs * 100 < trace.getDurationMs());
+    }
+    
+    private byte[] readResource(String name) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            assertNotNull("Missing test resource " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
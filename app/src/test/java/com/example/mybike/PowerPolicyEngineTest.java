@@ -0,0 +1,61 @@
+package com.example.mybike;
+
+import android.os.PowerManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for the tier boundaries of {@link PowerPolicyEngine#choose}.
+ */
+public class PowerPolicyEngineTest {
+    private static final int COOL = PowerManager.THERMAL_STATUS_NONE;
+    
+    @Test
+    public void batteryBoundaries() {
+        assertEquals(PowerPolicyEngine.Policy.FULL, PowerPolicyEngine.choose(100, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.FULL, PowerPolicyEngine.choose(50, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.BALANCED, PowerPolicyEngine.choose(49, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.BALANCED, PowerPolicyEngine.choose(20, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.SAVER, PowerPolicyEngine.choose(19, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.SAVER, PowerPolicyEngine.choose(10, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.CRITICAL, PowerPolicyEngine.choose(9, false, COOL));
+        assertEquals(PowerPolicyEngine.Policy.CRITICAL, PowerPolicyEngine.choose(0, false, COOL));
+    }
+    
+    @Test
+    public void chargingKeepsFullAtAnyLevel() {
+        assertEquals(PowerPolicyEngine.Policy.FULL, PowerPolicyEngine.choose(1, true, COOL));
+    }
+    
+    @Test
+    public void thermalStatusStepsDown() {
+        // LIGHT only takes the edge off FULL
+        assertEquals(PowerPolicyEngine.Policy.BALANCED,
+                PowerPolicyEngine.choose(100, true, PowerManager.THERMAL_STATUS_LIGHT));
+        assertEquals(PowerPolicyEngine.Policy.SAVER,
+                PowerPolicyEngine.choose(15, false, PowerManager.THERMAL_STATUS_LIGHT));
+        
+        // MODERATE caps at SAVER but never raises a lower tier
+        assertEquals(PowerPolicyEngine.Policy.SAVER,
+                PowerPolicyEngine.choose(100, true, PowerManager.THERMAL_STATUS_MODERATE));
+        assertEquals(PowerPolicyEngine.Policy.SAVER,
+                PowerPolicyEngine.choose(30, false, PowerManager.THERMAL_STATUS_MODERATE));
+        assertEquals(PowerPolicyEngine.Policy.CRITICAL,
+                PowerPolicyEngine.choose(5, false, PowerManager.THERMAL_STATUS_MODERATE));
+        
+        // SEVERE and above force CRITICAL, charging included
+        assertEquals(PowerPolicyEngine.Policy.CRITICAL,
+                PowerPolicyEngine.choose(100, true, PowerManager.THERMAL_STATUS_SEVERE));
+        assertEquals(PowerPolicyEngine.Policy.CRITICAL,
+                PowerPolicyEngine.choose(100, true, PowerManager.THERMAL_STATUS_SHUTDOWN));
+    }
+    
+    @Test
+    public void noTierAddsTheAccelerometerTrigger() {
+        for (PowerPolicyEngine.Policy policy : PowerPolicyEngine.Policy.values()) {
+            assertFalse(policy.toString(), policy.sensorFusion);
+        }
+    }
+}
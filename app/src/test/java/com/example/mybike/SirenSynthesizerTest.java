@@ -0,0 +1,91 @@
+package com.example.mybike;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests and a CPU benchmark for the procedural siren, run on the development machine.
+ */
+public class SirenSynthesizerTest {
+    private static final int SAMPLE_RATE = 48000;
+    
+    @Test
+    public void everyPatternProducesAudibleSignal() {
+        short[] buffer = new short[SAMPLE_RATE];
+        for (SirenSynthesizer.Pattern pattern : SirenSynthesizer.Pattern.values()) {
+            SirenSynthesizer synthesizer = new SirenSynthesizer(SAMPLE_RATE);
+            synthesizer.setPattern(pattern);
+            synthesizer.render(buffer, 0, buffer.length);
+            
+            int peak = 0;
+            for (short sample : buffer) {
+                peak = Math.max(peak, Math.abs(sample));
+            }
+            assertTrue(pattern + " peak " + peak, peak > Short.MAX_VALUE / 2);
+        }
+    }
+    
+    @Test
+    public void hiLoAlternatesBetweenTwoPitches() {
+        SirenSynthesizer synthesizer = new SirenSynthesizer(SAMPLE_RATE);
+        synthesizer.setPattern(SirenSynthesizer.Pattern.HI_LO);
+        short[] buffer = new short[SAMPLE_RATE];
+        synthesizer.render(buffer, 0, buffer.length);
+        
+        int highCrossings = countRisingZeroCrossings(buffer, 0, SAMPLE_RATE / 4);
+        int lowCrossings = countRisingZeroCrossings(buffer, SAMPLE_RATE / 2, SAMPLE_RATE / 4);
+        assertEquals(960 / 4, highCrossings, 3);
+        assertEquals(770 / 4, lowCrossings, 3);
+    }
+    
+    @Test
+    public void renderContinuesPhaseAcrossBuffers() {
+        SirenSynthesizer whole = new SirenSynthesizer(SAMPLE_RATE);
+        SirenSynthesizer chunked = new SirenSynthesizer(SAMPLE_RATE);
+        short[] expected = new short[4800];
+        short[] actual = new short[4800];
+        whole.render(expected, 0, expected.length);
+        for (int offset = 0; offset < actual.length; offset += 480) {
+            chunked.render(actual, offset, 480);
+        }
+        assertArrayEquals(expected, actual);
+    }
+    
+    // Reports the cost, doesn't bound it - a wall-clock limit only measures how busy the machine is
+    @Test
+    public void benchmarkCpuCostPerSecondOfAudio() {
+        short[] buffer = new short[SAMPLE_RATE / 50]; // 20 ms writes, as SynthSirenPlayer does
+        int seconds = 60;
+        for (SirenSynthesizer.Pattern pattern : SirenSynthesizer.Pattern.values()) {
+            SirenSynthesizer synthesizer = new SirenSynthesizer(SAMPLE_RATE);
+            synthesizer.setPattern(pattern);
+            
+            // Warm up so the JIT has compiled render()
+            for (int i = 0; i < 5000; i++) {
+                synthesizer.render(buffer, 0, buffer.length);
+            }
+            
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < seconds * 50; i++) {
+                synthesizer.render(buffer, 0, buffer.length);
+                checksum += buffer[i % buffer.length];
+            }
+            long nanosPerSecondOfAudio = (System.nanoTime() - start) / seconds;
+            System.out.println("SirenSynthesizer " + pattern + ": " + (nanosPerSecondOfAudio / 1000)
+                    + " us CPU per second of audio (checksum " + checksum + ")");
+            assertTrue(nanosPerSecondOfAudio > 0);
+        }
+    }
+    
+    private static int countRisingZeroCrossings(short[] buffer, int offset, int length) {
+        int crossings = 0;
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (buffer[i - 1] < 0 && buffer[i] >= 0) {
+                crossings++;
+            }
+        }
+        return crossings;
+    }
+}
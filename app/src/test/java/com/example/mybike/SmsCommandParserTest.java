@@ -0,0 +1,117 @@
+package com.example.mybike;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests and a throughput benchmark for the SMS command parser.
+ */
+public class SmsCommandParserTest {
+    private final SmsCommandParser parser = SmsCommandParser.createDefault();
+    
+    @Test
+    public void singleCommandWithArgument() {
+        List<SmsCommandParser.Invocation> result = parser.parse("  Call TRUE ");
+        assertEquals(1, result.size());
+        assertEquals(SmsCommandParser.CMD_CALL, result.get(0).id);
+        assertEquals("TRUE", result.get(0).args[0]);
+        assertTrue(result.get(0).isValid());
+    }
+    
+    @Test
+    public void rateLimitNeedsAllFourValues() {
+        SmsCommandParser.Invocation full = parser.parse("ratelimit 5 6 20 30").get(0);
+        assertEquals(SmsCommandParser.CMD_RATE_LIMIT, full.id);
+        assertTrue(full.isValid());
+        assertEquals("30", full.args[3]);
+        assertFalse(parser.parse("ratelimit 5 6").get(0).isValid());
+    }
+    
+    @Test
+    public void bothAlarmSpellingsResolveToOneCommand() {
+        assertEquals(SmsCommandParser.CMD_ALARM, parser.parse("alerm false").get(0).id);
+        assertEquals(SmsCommandParser.CMD_ALARM, parser.parse("ALARM false").get(0).id);
+        assertEquals("alarm", parser.parse("alerm false").get(0).name);
+    }
+    
+    @Test
+    public void splitsOnSemicolonsAndNewlines() {
+        List<SmsCommandParser.Invocation> result = parser.parse("lock; call false\nalerm true;;\r\nstatus;");
+        assertEquals(4, result.size());
+        assertEquals(SmsCommandParser.CMD_LOCK, result.get(0).id);
+        assertEquals(SmsCommandParser.CMD_CALL, result.get(1).id);
+        assertEquals(SmsCommandParser.CMD_ALARM, result.get(2).id);
+        assertEquals(SmsCommandParser.CMD_STATUS, result.get(3).id);
+    }
+    
+    @Test
+    public void adminNumberKeepsSpacesAndCase() {
+        SmsCommandParser.Invocation invocation = parser.parse("SetAdminNumber +880 1743 395086 ; status").get(0);
+        assertEquals(SmsCommandParser.CMD_SET_ADMIN_NUMBER, invocation.id);
+        assertEquals("+880 1743 395086", invocation.args[0]);
+    }
+    
+    @Test
+    public void reportsUnknownCommandsAndBadArguments() {
+        List<SmsCommandParser.Invocation> result = parser.parse("hello there; call; lock now");
+        assertEquals(3, result.size());
+        assertEquals(0, result.get(0).id);
+        assertEquals("hello", result.get(0).name);
+        assertNotNull(result.get(1).error);
+        assertNotNull(result.get(2).error);
+        assertFalse(result.get(2).isValid());
+    }
+    
+    @Test
+    public void ignoresCommandsPastTheLimit() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < SmsCommandParser.MAX_COMMANDS + 3; i++) {
+            message.append("status;");
+        }
+        assertEquals(SmsCommandParser.MAX_COMMANDS, parser.parse(message.toString()).size());
+        assertTrue(parser.parse("").isEmpty());
+        assertTrue(parser.parse(" ;\n ").isEmpty());
+    }
+    
+    // Reports ns/message against the old trim+lowercase+regex path - no bound, timings vary by machine
+    @Test
+    public void benchmarkParseAgainstRegexSplit() {
+        String[] messages = {
+            "lock", "status", "call true", "alerm false", "setadminnumber 01743395086",
+            "unlock; call false; siren wail\nstatus"
+        };
+        List<SmsCommandParser.Invocation> out = new ArrayList<>();
+        Pattern whitespace = Pattern.compile("\\s+");
+        int iterations = 200000;
+        
+        long sink = 0;
+        for (int i = 0; i < iterations / 10; i++) {
+            out.clear();
+            sink += parser.parse(messages[i % messages.length], out);
+            sink += whitespace.split(messages[i % messages.length].trim().toLowerCase(), 2).length;
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            out.clear();
+            sink += parser.parse(messages[i % messages.length], out);
+        }
+        long parserNanos = (System.nanoTime() - start) / iterations;
+        
+        // The old path: trim + lowercase + regex split of every message
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += whitespace.split(messages[i % messages.length].trim().toLowerCase(), 2).length;
+        }
+        long regexNanos = (System.nanoTime() - start) / iterations;
+        
+        System.out.println("SmsCommandParser: " + parserNanos + " ns/message, old trim+lowercase+split: " +
+                regexNanos + " ns/message (" + sink + ")");
+        assertTrue(sink > 0);
+    }
+}
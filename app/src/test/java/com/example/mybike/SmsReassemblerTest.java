@@ -0,0 +1,118 @@
+package com.example.mybike;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for concatenated SMS reassembly and the PDU concatenation header reader.
+ */
+public class SmsReassemblerTest {
+    private static final String SENDER = "+8801743395086";
+    private static final long TIMESTAMP = 1700000000000L;
+    private static final long TIMEOUT = 5 * 60 * 1000;
+    
+    private final SmsReassembler reassembler = new SmsReassembler();
+    
+    @Test
+    public void singlePartMessagePassesThrough() {
+        assertEquals("status", reassembler.accept(SENDER, SmsReassembler.NO_REFERENCE, 1, 1, "status", TIMESTAMP, 0));
+        assertEquals(1, reassembler.getMessageCount());
+        assertEquals(0, reassembler.getReassembledCount());
+    }
+    
+    @Test
+    public void outOfOrderPartsAreJoinedInSequence() {
+        assertNull(reassembler.accept(SENDER, 42, 3, 3, "status", TIMESTAMP, 0));
+        assertNull(reassembler.accept(SENDER, 42, 1, 3, "lock; ", TIMESTAMP, 10));
+        assertEquals(1, reassembler.getPartialCount());
+        assertEquals("lock; call true; status", reassembler.accept(SENDER, 42, 2, 3, "call true; ", TIMESTAMP, 20));
+        assertEquals(0, reassembler.getPartialCount());
+        assertEquals(1, reassembler.getReassembledCount());
+    }
+    
+    @Test
+    public void duplicatePartIsDroppedAndMessageRunsOnce() {
+        assertNull(reassembler.accept(SENDER, 7, 1, 2, "lock; ", TIMESTAMP, 0));
+        assertNull(reassembler.accept(SENDER, 7, 1, 2, "lock; ", TIMESTAMP, 5));
+        assertEquals(1, reassembler.getDuplicateCount());
+        assertEquals("lock; status", reassembler.accept(SENDER, 7, 2, 2, "status", TIMESTAMP, 10));
+        
+        // A retransmission of the whole message after completion must not run it again
+        assertNull(reassembler.accept(SENDER, 7, 1, 2, "lock; ", TIMESTAMP, 20));
+        assertNull(reassembler.accept(SENDER, 7, 2, 2, "status", TIMESTAMP, 30));
+        assertEquals(3, reassembler.getDuplicateCount());
+        assertEquals(1, reassembler.getMessageCount());
+    }
+    
+    @Test
+    public void sameReferenceFromDifferentSendersIsKeptApart() {
+        assertNull(reassembler.accept(SENDER, 9, 1, 2, "lock", TIMESTAMP, 0));
+        assertNull(reassembler.accept("+15550100", 9, 2, 2, "status", TIMESTAMP, 0));
+        assertEquals(2, reassembler.getPartialCount());
+    }
+    
+    @Test
+    public void missingPartExpires() {
+        assertNull(reassembler.accept(SENDER, 11, 1, 2, "lock; ", TIMESTAMP, 0));
+        
+        // Any later fragment sweeps partials older than the timeout
+        assertNull(reassembler.accept("+15550100", 12, 1, 2, "status", TIMESTAMP, TIMEOUT + 1));
+        assertEquals(1, reassembler.getExpiredCount());
+        assertEquals(1, reassembler.getPartialCount());
+        
+        // The late second part starts a new partial instead of completing the expired one
+        assertNull(reassembler.accept(SENDER, 11, 2, 2, "status", TIMESTAMP, TIMEOUT + 2));
+        assertEquals(0, reassembler.getReassembledCount());
+    }
+    
+    @Test
+    public void readsEightBitReference() {
+        byte[] pdu = deliverPdu(new byte[] {0x00, 0x03, (byte) 0xA5, 0x03, 0x02});
+        assertArrayEquals(new int[] {0xA5, 3, 2}, SmsReassembler.readConcatInfo(pdu));
+    }
+    
+    @Test
+    public void readsSixteenBitReference() {
+        byte[] pdu = deliverPdu(new byte[] {0x08, 0x04, 0x12, 0x34, 0x04, 0x01});
+        assertArrayEquals(new int[] {0x1234, 4, 1}, SmsReassembler.readConcatInfo(pdu));
+    }
+    
+    @Test
+    public void skipsOtherHeaderElementsBeforeConcatInfo() {
+        // A port addressing element (0x05) ahead of the concatenation element
+        byte[] pdu = deliverPdu(new byte[] {0x05, 0x04, 0x0B, (byte) 0x84, 0x00, 0x00, 0x00, 0x03, 0x01, 0x02, 0x01});
+        assertArrayEquals(new int[] {1, 2, 1}, SmsReassembler.readConcatInfo(pdu));
+    }
+    
+    @Test
+    public void pduWithoutHeaderOrTruncatedIsSinglePart() {
+        byte[] pdu = deliverPdu(new byte[] {0x00, 0x03, 0x01, 0x02, 0x01});
+        pdu[1] &= ~0x40; // Clear the user data header indicator
+        assertNull(SmsReassembler.readConcatInfo(pdu));
+        
+        byte[] full = deliverPdu(new byte[] {0x00, 0x03, 0x01, 0x02, 0x01});
+        byte[] truncated = new byte[full.length - 4];
+        System.arraycopy(full, 0, truncated, 0, truncated.length);
+        assertNull(SmsReassembler.readConcatInfo(truncated));
+    }
+    
+    // SMS-DELIVER with an empty SMSC prefix, an 11-digit originator and the given user data header
+    private static byte[] deliverPdu(byte[] header) {
+        byte[] prefix = {
+            0x00,                                     // SMSC address length
+            0x44,                                     // SMS-DELIVER, user data header present
+            0x0B, (byte) 0x91, 0x10, 0x47, 0x33, (byte) 0x93, 0x05, (byte) 0xF6, // Originator
+            0x00, 0x00,                               // PID, DCS
+            0x52, 0x10, 0x71, 0x21, 0x43, 0x00, 0x00, // Service centre timestamp
+            (byte) (1 + header.length + 2)            // UDL
+        };
+        byte[] pdu = new byte[prefix.length + 1 + header.length + 2];
+        System.arraycopy(prefix, 0, pdu, 0, prefix.length);
+        pdu[prefix.length] = (byte) header.length;
+        System.arraycopy(header, 0, pdu, prefix.length + 1, header.length);
+        pdu[pdu.length - 2] = 0x41;
+        pdu[pdu.length - 1] = 0x42;
+        return pdu;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.mybike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds sensor traces out of still, rotation and push segments: gyro every 20ms, accelerometer
+ * 10ms after each gyro sample, both in the SensorEvent timebase.
+ */
+class SyntheticTrace {
+    static final long PERIOD_MS = 20;
+    static final long START_NANOS = 5_000_000_000L;
+    private static final float GRAVITY = 9.81f;
+    private static final float GYRO_NOISE = 0.01f;
+    
+    private static final int STILL = 0;
+    private static final int ROTATE = 1;
+    private static final int PUSH = 2;
+    
+    private final List<long[]> segments = new ArrayList<>(); // kind, duration ms, value bits
+    private long durationMs = 0;
+    
+    SyntheticTrace still(long ms) {
+        return add(STILL, ms, 0f);
+    }
+    
+    // Rotation at radPerSecond, no linear acceleration
+    SyntheticTrace rotate(long ms, float radPerSecond) {
+        return add(ROTATE, ms, radPerSecond);
+    }
+    
+    // Horizontal acceleration on top of gravity, no rotation
+    SyntheticTrace push(long ms, float metersPerSecondSquared) {
+        return add(PUSH, ms, metersPerSecondSquared);
+    }
+    
+    long getDurationMs() {
+        return durationMs;
+    }
+    
+    private SyntheticTrace add(int kind, long ms, float value) {
+        segments.add(new long[]{kind, ms, Float.floatToIntBits(value)});
+        durationMs += ms;
+        return this;
+    }
+    
+    void play(FlightRecorder.Visitor visitor) {
+        long t = 0;
+        for (long[] segment : segments) {
+            int kind = (int) segment[0];
+            float value = Float.intBitsToFloat((int) segment[2]);
+            long end = t + segment[1];
+            for (; t < end; t += PERIOD_MS) {
+                long nanos = START_NANOS + t * 1_000_000L;
+                if (kind == ROTATE) {
+                    double angle = t / 1000.0;
+                    visitor.onSample(MotionDetector.SENSOR_GYRO, nanos,
+                            (float) (value * Math.cos(angle)), (float) (value * Math.sin(angle)), 0f);
+                } else {
+                    visitor.onSample(MotionDetector.SENSOR_GYRO, nanos, GYRO_NOISE, 0f, 0f);
+                }
+                float push = kind == PUSH ? value : 0f;
+                visitor.onSample(MotionDetector.SENSOR_ACCEL, nanos + PERIOD_MS / 2 * 1_000_000L, push, 0f, GRAVITY);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.mybike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a sensor trace through the production MotionDetector and MotionResponse on the trace's
+ * own clock and records what the service would have done, one "<ms> <event>" line per event.
+ * Times are milliseconds since the first sample.
+ */
+class TraceReplay implements FlightRecorder.Visitor {
+    private final MotionDetector detector;
+    private final List<String> events = new ArrayList<>();
+    private boolean locked = true;
+    private boolean callEnabled = true;
+    private boolean callInProgress = false;
+    private long startNanos = -1;
+    private long cooldownStart = -1;
+    private long lastCallTime = Long.MIN_VALUE / 2;
+    private int samples = 0;
+    
+    TraceReplay(MotionDetector detector) {
+        this.detector = detector;
+    }
+    
+    TraceReplay locked(boolean locked) {
+        this.locked = locked;
+        return this;
+    }
+    
+    TraceReplay callEnabled(boolean callEnabled) {
+        this.callEnabled = callEnabled;
+        return this;
+    }
+    
+    TraceReplay callInProgress(boolean callInProgress) {
+        this.callInProgress = callInProgress;
+        return this;
+    }
+    
+    @Override
+    public void onSample(int sensor, long timestampNanos, float x, float y, float z) {
+        if (startNanos < 0) {
+            startNanos = timestampNanos;
+        }
+        long now = (timestampNanos - startNanos) / 1_000_000L;
+        samples++;
+        if (cooldownStart >= 0 && MotionResponse.cooldownExpired(now, cooldownStart)) {
+            // The service's expiry timer fires at the exact deadline, not at the next sample
+            events.add((cooldownStart + MotionResponse.CALL_DELAY) + " cooldown-end");
+            cooldownStart = -1;
+        }
+        if (!detector.onSample(sensor, timestampNanos, x, y, z)) {
+            return;
+        }
+        if (!detector.isMotionDetected()) {
+            events.add(now + " still");
+            return;
+        }
+        events.add(now + " motion");
+        MotionResponse.Onset onset = MotionResponse.onset(locked, cooldownStart >= 0, callInProgress, callEnabled,
+                now, lastCallTime);
+        if (onset.channels == 0) {
+            return;
+        }
+        events.add(now + " alert " + describe(onset.channels));
+        if (onset.startsCooldown) {
+            cooldownStart = now;
+        }
+        if (onset.dials) {
+            events.add(now + " call");
+            lastCallTime = now;
+        }
+    }
+    
+    List<String> events() {
+        return events;
+    }
+    
+    int samples() {
+        return samples;
+    }
+    
+    int count(String event) {
+        int count = 0;
+        for (String line : events) {
+            if (line.endsWith(" " + event)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    static String describe(int channels) {
+        StringBuilder out = new StringBuilder();
+        String[] names = {"siren", "sms", "call", "webhook"};
+        for (int i = 0; i < names.length; i++) {
+            if ((channels & (1 << i)) != 0) {
+                out.append(out.length() > 0 ? "+" : "").append(names[i]);
+            }
+        }
+        return out.toString();
+    }
+}